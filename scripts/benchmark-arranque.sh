@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+#
+# Compara arranque y latencia de la primera petición entre:
+#   fatjar   -> target/validadorRIPS_JSON-0.0.1-SNAPSHOT.jar          (mvn package)
+#   aot-cds  -> target/arranque-rapido/ con application.jsa            (mvn -Parranque-rapido package)
+#   native   -> target/validadorRIPS_JSON                              (mvn -Pnative native:compile)
+# Los modos cuyo artefacto no existe se omiten.
+#
+# Uso: scripts/benchmark-arranque.sh [repeticiones] [puerto]
+#
+# Por cada corrida mide:
+#   listo_ms    : desde que se lanza el proceso hasta la primera respuesta 200 de /validar_pyp
+#   primera_ms  : duración de esa primera petición (la que paga JIT / carga de clases)
+#   segunda_ms  : duración de una segunda petición igual, como referencia en caliente
+#   spring_s    : "Started ... in X seconds" del log de Spring
+set -euo pipefail
+
+RAIZ="$(cd "$(dirname "$0")/.." && pwd)"
+REPETICIONES="${1:-5}"
+PUERTO="${2:-18081}"
+PAYLOAD="$RAIZ/scripts/factura-ejemplo.json"
+URL="http://localhost:$PUERTO/api/factura/validar_pyp"
+JAR="validadorRIPS_JSON-0.0.1-SNAPSHOT.jar"
+
+# Los reportes van a un directorio temporal (validador.reportes.directorio)
+TRABAJO="$(mktemp -d)"
+trap 'rm -rf "$TRABAJO"' EXIT
+
+ahora_ms() { date +%s%3N; }
+
+peticion() {
+  curl -s -o /dev/null -w '%{http_code} %{time_total}' -X POST "$URL" \
+       -H 'Content-Type: application/json' --data-binary "@$PAYLOAD" || true
+}
+
+# medir <modo> <directorio de trabajo> <comando...>
+medir() {
+  local modo="$1" directorio="$2"; shift 2
+  for ((i = 1; i <= REPETICIONES; i++)); do
+    local log="$TRABAJO/$modo-$i.log"
+    local inicio; inicio="$(ahora_ms)"
+    # sin caché de resultados: la segunda petición (mismo JSON) debe validar de verdad
+    (cd "$directorio" && exec "$@" --server.port="$PUERTO" --validador.cache-resultados.habilitada=false \
+        --validador.reportes.directorio="$TRABAJO" >"$log" 2>&1) &
+    local pid=$!
+
+    local resultado="000 0"
+    until [[ "$resultado" == 200* ]]; do
+      if ! kill -0 "$pid" 2>/dev/null; then
+        echo "$modo: el proceso terminó antes de responder (ver $log)" >&2
+        cat "$log" >&2
+        exit 1
+      fi
+      sleep 0.02
+      resultado="$(peticion)"
+    done
+    local listo=$(( $(ahora_ms) - inicio ))
+    local primera; primera="$(awk '{printf "%.1f", $2 * 1000}' <<<"$resultado")"
+    local segunda; segunda="$(peticion | awk '{printf "%.1f", $2 * 1000}')"
+    local spring; spring="$(grep -oE 'Started [A-Za-z]+ in [0-9.]+' "$log" | awk '{print $4}' || true)"
+
+    kill "$pid" 2>/dev/null; wait "$pid" 2>/dev/null || true
+    printf '%-8s %3d %10d %11s %11s %9s\n' "$modo" "$i" "$listo" "$primera" "$segunda" "${spring:-?}"
+  done
+}
+
+# Otro proceso en el puerto respondería por los que se miden
+if [[ "$(peticion)" != 000* ]]; then
+  echo "El puerto $PUERTO ya está en uso" >&2
+  exit 1
+fi
+
+printf '%-8s %3s %10s %11s %11s %9s\n' modo run listo_ms primera_ms segunda_ms spring_s
+
+if [[ -f "$RAIZ/target/$JAR" ]]; then
+  medir fatjar "$TRABAJO" java -jar "$RAIZ/target/$JAR"
+fi
+if [[ -f "$RAIZ/target/arranque-rapido/application.jsa" ]]; then
+  # El archivo CDS guarda la ruta relativa del jar: desde otro directorio la JVM lo ignora sin avisar
+  medir aot-cds "$RAIZ/target/arranque-rapido" java -Xshare:on -XX:SharedArchiveFile=application.jsa \
+        -Dspring.aot.enabled=true -jar "$JAR"
+fi
+if [[ -x "$RAIZ/target/validadorRIPS_JSON" ]]; then
+  medir native "$TRABAJO" "$RAIZ/target/validadorRIPS_JSON"
+fi
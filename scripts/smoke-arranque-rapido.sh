@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+#
+# Prueba de humo del artefacto de arranque rápido (mvn -Parranque-rapido verify la corre sola):
+# arranca target/arranque-rapido/ con el archivo CDS obligatorio (-Xshare:on falla si no se
+# puede usar) y spring.aot.enabled=true (falla si no están las clases generadas por AOT),
+# comprueba que clases de la aplicación se cargaron del archivo y que /validar_pyp responde 200.
+#
+# Uso: scripts/smoke-arranque-rapido.sh [puerto]
+set -euo pipefail
+
+RAIZ="$(cd "$(dirname "$0")/.." && pwd)"
+PUERTO="${1:-18082}"
+DIR="$RAIZ/target/arranque-rapido"
+JAR="validadorRIPS_JSON-0.0.1-SNAPSHOT.jar"
+URL="http://localhost:$PUERTO/api/factura/validar_pyp"
+ESPERA_S=60
+
+TRABAJO="$(mktemp -d)"
+PID=""
+terminar() {
+  if [[ -n "$PID" ]]; then kill "$PID" 2>/dev/null; wait "$PID" 2>/dev/null || true; fi
+  rm -rf "$TRABAJO"
+}
+trap terminar EXIT
+
+fallar() {
+  echo "smoke arranque-rapido: $1" >&2
+  [[ -f "$TRABAJO/app.log" ]] && tail -n 40 "$TRABAJO/app.log" >&2
+  exit 1
+}
+
+curl -s -o /dev/null "http://localhost:$PUERTO/" && fallar "el puerto $PUERTO ya está en uso"
+[[ -f "$DIR/application.jsa" ]] || fallar "no existe $DIR/application.jsa (mvn -Parranque-rapido package)"
+
+# El archivo guarda la ruta del jar relativa a $DIR (la de la corrida de entrenamiento): se arranca
+# desde ahí. Con AOT el almacén de reportes quedó fijo al compilar; se cambia solo su directorio.
+(cd "$DIR" && exec java -Xshare:on -XX:SharedArchiveFile=application.jsa \
+    -Xlog:class+load=info:file="$TRABAJO/clases.log" \
+    -Dspring.aot.enabled=true -jar "$JAR" \
+    --server.port="$PUERTO" --validador.reportes.directorio="$TRABAJO" >"$TRABAJO/app.log" 2>&1) &
+PID=$!
+
+codigo="000"
+limite=$(( $(date +%s) + ESPERA_S ))
+until [[ "$codigo" == "200" ]]; do
+  kill -0 "$PID" 2>/dev/null || fallar "el proceso terminó antes de responder"
+  (( $(date +%s) < limite )) || fallar "sin respuesta 200 de $URL en ${ESPERA_S}s (última: $codigo)"
+  sleep 0.2
+  codigo="$(curl -s -o "$TRABAJO/reporte.txt" -w '%{http_code}' -X POST "$URL" \
+      -H 'Content-Type: application/json' --data-binary "@$RAIZ/scripts/factura-ejemplo.json" || true)"
+done
+
+grep -q 'com.example.validadorjson.*source: shared objects file' "$TRABAJO/clases.log" \
+  || fallar "ninguna clase de la aplicación salió del archivo CDS"
+grep -q 'Starting AOT-processed' "$TRABAJO/app.log" \
+  || fallar "el log no muestra un arranque AOT"
+[[ -s "$TRABAJO/reporte.txt" ]] || fallar "/validar_pyp respondió 200 sin reporte"
+
+echo "smoke arranque-rapido: OK ($(grep -c 'source: shared objects file' "$TRABAJO/clases.log") clases desde CDS)"
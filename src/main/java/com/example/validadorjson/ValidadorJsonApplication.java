@@ -2,12 +2,23 @@ package com.example.validadorjson;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.time.Clock;
 
 @SpringBootApplication
+@ImportRuntimeHints(ValidadorRuntimeHints.class)
 public class ValidadorJsonApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(ValidadorJsonApplication.class, args);
     }
 
+    /** Reloj de las reglas que dependen de la fecha actual (PYP: documento vs edad). */
+    @Bean
+    public Clock reloj() {
+        return Clock.systemDefaultZone();
+    }
+
 }
@@ -0,0 +1,30 @@
+package com.example.validadorjson;
+
+import com.example.validadorjson.dto.*;
+import com.example.validadorjson.json.FilasServiciosDeserializer;
+import com.example.validadorjson.json.SeccionServiciosDeserializer;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+
+/**
+ * Hints de reflexión para AOT / native image.
+ *
+ * Las facturas no siempre llegan por un @RequestBody (la ingesta por carpeta usa el ObjectMapper
+ * directamente), así que se registran explícitamente los records de dto: Factura y todo lo que
+ * alcanza (Usuario, Servicios, Consulta, Procedimiento). Los elementos de las secciones diferidas
+ * (urgencias, medicamentos, ...) quedan detrás de un genérico, por eso van aparte, igual que su
+ * deserializador, que Jackson instancia por reflexión. También el perfil JFR que se lee del classpath.
+ */
+public class ValidadorRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), Factura.class,
+                Urgencia.class, Hospitalizacion.class, RecienNacido.class, Medicamento.class, OtroServicio.class);
+        hints.reflection().registerType(SeccionServiciosDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(FilasServiciosDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.resources().registerPattern("jfr/validador.jfc");
+    }
+}
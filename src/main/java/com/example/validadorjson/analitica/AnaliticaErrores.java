@@ -0,0 +1,164 @@
+package com.example.validadorjson.analitica;
+
+import com.example.validadorjson.service.ReglaValidacion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores agregados de hallazgos por regla × prestador × código (CUPS, CIE-10 o tipo de documento),
+ * separados en ventanas de tiempo fijas dentro de un anillo.
+ *
+ * Pensado para llamarse desde los hilos de validación: en el caso común (la clave ya existe
+ * en la ventana actual) solo hace un get en el ConcurrentHashMap y un increment de LongAdder,
+ * sin locks ni escrituras compartidas.
+ *
+ * La rotación tampoco toma locks, a cambio de una carrera aceptada: un hilo toma la ventana y
+ * luego incrementa; si entre una cosa y otra esa posición del anillo pasa a otra ventana, el
+ * incremento cae en la ventana descartada y se pierde sin aviso. Solo pasa si el hilo se demora
+ * una vuelta completa del anillo (con una sola ventana, basta con cruzar el borde de la ventana),
+ * así que la pérdida es de unos pocos hallazgos y en ventanas que ya están saliendo de la consulta.
+ */
+@Component
+public class AnaliticaErrores {
+
+    private static final String SIN_DATO = "N/A";
+
+    private final long duracionVentanaMs;
+    private final Clock reloj;
+    private final AtomicReferenceArray<Ventana> anillo;
+
+    public AnaliticaErrores(@Value("${validador.analitica.ventana-segundos:60}") long ventanaSegundos,
+                            @Value("${validador.analitica.ventanas:60}") int ventanas,
+                            Clock reloj) {
+        if (ventanaSegundos <= 0 || ventanas <= 0) {
+            throw new IllegalArgumentException("validador.analitica.ventana-segundos y validador.analitica.ventanas deben ser > 0");
+        }
+        this.duracionVentanaMs = ventanaSegundos * 1000L;
+        this.anillo = new AtomicReferenceArray<>(ventanas);
+        this.reloj = reloj;
+    }
+
+    /**
+     * Registra un hallazgo en la ventana actual.
+     */
+    public void registrar(ReglaValidacion regla, String codPrestador, String codigo) {
+        Clave clave = new Clave(regla,
+                codPrestador == null || codPrestador.isBlank() ? SIN_DATO : codPrestador,
+                codigo == null || codigo.isBlank() ? SIN_DATO : codigo);
+        Map<Clave, LongAdder> contadores = ventanaActual().contadores;
+        LongAdder contador = contadores.get(clave);
+        if (contador == null) {
+            contador = contadores.computeIfAbsent(clave, k -> new LongAdder());
+        }
+        contador.increment();
+    }
+
+    /**
+     * Un reporte servido desde la caché de resultados. Sus hallazgos ya se contaron cuando se validó:
+     * no se vuelven a contar, solo se lleva cuántos reportes salieron de la caché.
+     */
+    public void registrarDesdeCache() {
+        ventanaActual().desdeCache.increment();
+    }
+
+    /**
+     * Top de combinaciones regla × prestador × código en las últimas {@code minutos}
+     * (0 = todo lo que guarda el anillo). Los filtros nulos no filtran.
+     */
+    public ResumenAnalitica consultar(int minutos, int top, ReglaValidacion regla, String codPrestador) {
+        long ahora = indiceVentana(reloj.millis());
+        long ventanasPedidas = minutos <= 0
+                ? anillo.length()
+                : Math.max(1, Math.min(anillo.length(), (minutos * 60_000L + duracionVentanaMs - 1) / duracionVentanaMs));
+        long desde = ahora - ventanasPedidas + 1;
+
+        Map<Clave, Long> totales = new HashMap<>();
+        long desdeCache = 0;
+        for (int i = 0; i < anillo.length(); i++) {
+            Ventana v = anillo.get(i);
+            if (v == null || v.indice < desde || v.indice > ahora) continue;
+            desdeCache += v.desdeCache.sum();
+            v.contadores.forEach((clave, contador) -> {
+                if (regla != null && clave.regla != regla) return;
+                if (codPrestador != null && !codPrestador.equals(clave.codPrestador)) return;
+                totales.merge(clave, contador.sum(), Long::sum);
+            });
+        }
+
+        Map<String, Long> porRegla = new TreeMap<>();
+        Map<String, Long> porPrestador = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<Clave, Long> e : totales.entrySet()) {
+            porRegla.merge(e.getKey().regla.descripcion(), e.getValue(), Long::sum);
+            porPrestador.merge(e.getKey().codPrestador, e.getValue(), Long::sum);
+            total += e.getValue();
+        }
+
+        List<ConteoHallazgo> ranking = totales.entrySet().stream()
+                .sorted(Map.Entry.<Clave, Long>comparingByValue().reversed())
+                .limit(top > 0 ? top : Long.MAX_VALUE)
+                .map(e -> new ConteoHallazgo(e.getKey().regla.descripcion(), e.getKey().codPrestador,
+                        e.getKey().codigo, e.getValue()))
+                .toList();
+
+        return new ResumenAnalitica(ventanasPedidas * duracionVentanaMs / 1000, total, desdeCache, porRegla, porPrestador, ranking);
+    }
+
+    /* --------------------------- Ventanas --------------------------- */
+
+    private Ventana ventanaActual() {
+        long indice = indiceVentana(reloj.millis());
+        int posicion = (int) (indice % anillo.length());
+        while (true) {
+            Ventana v = anillo.get(posicion);
+            if (v != null && v.indice == indice) {
+                return v;
+            }
+            if (v != null && v.indice > indice) {
+                // reloj retrocedió o hilo muy demorado: se cuenta en la ventana vigente
+                return v;
+            }
+            Ventana nueva = new Ventana(indice);
+            if (anillo.compareAndSet(posicion, v, nueva)) {
+                return nueva;
+            }
+        }
+    }
+
+    private long indiceVentana(long epochMs) {
+        return epochMs / duracionVentanaMs;
+    }
+
+    private static final class Ventana {
+        final long indice;
+        final ConcurrentHashMap<Clave, LongAdder> contadores = new ConcurrentHashMap<>();
+        final LongAdder desdeCache = new LongAdder();
+
+        Ventana(long indice) {
+            this.indice = indice;
+        }
+    }
+
+    private record Clave(ReglaValidacion regla, String codPrestador, String codigo) { }
+
+    /* --------------------------- Respuesta --------------------------- */
+
+    public record ConteoHallazgo(String regla, String codPrestador, String codigo, long total) { }
+
+    /**
+     * @param reportesDesdeCache reportes servidos desde la caché de resultados en el período; no
+     *                           suman a los hallazgos ni se filtran por regla o prestador
+     */
+    public record ResumenAnalitica(long ventanaSegundos,
+                                   long totalHallazgos,
+                                   long reportesDesdeCache,
+                                   Map<String, Long> porRegla,
+                                   Map<String, Long> porPrestador,
+                                   List<ConteoHallazgo> top) { }
+}
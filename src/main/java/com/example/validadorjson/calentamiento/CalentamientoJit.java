@@ -0,0 +1,157 @@
+package com.example.validadorjson.calentamiento;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.reporte.CacheResultados;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.reporte.ReportStore;
+import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Calentamiento del JIT al arrancar: valida facturas sintéticas ({@link FacturasSinteticas}) con PYP y Morb,
+ * en los dos formatos de reporte, hasta que la compilación se asienta
+ * (varias rondas seguidas en que el compilador trabajó menos del 5% de la ronda) o se acaba el tiempo máximo.
+ * Así las primeras facturas reales no pagan Jackson, el parseo de fechas y las reglas interpretados.
+ *
+ * Se usan instancias propias de los servicios, con un almacén que descarta los reportes y una analítica
+ * aparte: no se escribe nada en disco ni en la caché de resultados, la analítica y los planes de reglas
+ * de los servicios reales no ven las facturas sintéticas. El código que se compila es el mismo.
+ *
+ * Corre como ApplicationRunner: SpringApplication publica la readiness ACCEPTING_TRAFFIC después de
+ * todos los runners, así que /actuator/health/readiness responde OUT_OF_SERVICE hasta que termina.
+ */
+@Component
+@ConditionalOnProperty(prefix = "validador.calentamiento", name = "habilitado", havingValue = "true")
+public class CalentamientoJit implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CalentamientoJit.class);
+
+    // Validaciones de cada factura sintética por ronda, para que una ronda alcance a medir algo
+    private static final int REPETICIONES_POR_RONDA = 20;
+    // Rondas mínimas antes de mirar si la compilación se estabilizó
+    private static final int RONDAS_MINIMAS = 5;
+    // Una ronda es estable si el compilador trabajó menos de este porcentaje de lo que duró la ronda
+    private static final long COMPILACION_ESTABLE_PORCENTAJE = 5;
+
+    private static final ReportStore DESCARTAR = new ReportStore() {
+        @Override
+        public void guardar(String clave, byte[] contenido) {
+        }
+
+        @Override
+        public Optional<byte[]> obtener(String clave) {
+            return Optional.empty();
+        }
+    };
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventos;
+    private final Clock reloj;
+    private final String versionReglas;
+    private final long tiempoMaximoMs;
+    private final int rondasEstables;
+    private final int usuariosPorFactura;
+
+    public CalentamientoJit(ObjectMapper objectMapper,
+                            ApplicationEventPublisher eventos,
+                            Clock reloj,
+                            @Value("${validador.reglas.version:2}") String versionReglas,
+                            @Value("${validador.calentamiento.tiempo-maximo-ms:30000}") long tiempoMaximoMs,
+                            @Value("${validador.calentamiento.rondas-estables:3}") int rondasEstables,
+                            @Value("${validador.calentamiento.usuarios-por-factura:48}") int usuariosPorFactura) {
+        this.objectMapper = objectMapper;
+        this.eventos = eventos;
+        this.reloj = reloj;
+        this.versionReglas = versionReglas;
+        this.tiempoMaximoMs = tiempoMaximoMs;
+        this.rondasEstables = rondasEstables;
+        this.usuariosPorFactura = Math.max(usuariosPorFactura, FacturasSinteticas.casos());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        AvailabilityChangeEvent.publish(eventos, this, ReadinessState.REFUSING_TRAFFIC);
+        long inicio = System.nanoTime();
+        try {
+            Resultado r = calentar();
+            log.info("Calentamiento JIT: {} rondas, {} validaciones en {} ms (compilación JIT: {}){}",
+                    r.rondas(), r.validaciones(), (System.nanoTime() - inicio) / 1_000_000,
+                    r.compilacionMs() < 0 ? "no medible" : r.compilacionMs() + " ms",
+                    r.estable() ? "" : "; se detuvo por tiempo máximo sin estabilizarse");
+        } catch (Exception e) {
+            // No impide arrancar: solo las primeras facturas reales serán más lentas
+            log.warn("Calentamiento JIT interrumpido tras {} ms: {}", (System.nanoTime() - inicio) / 1_000_000, e.toString());
+        }
+    }
+
+    Resultado calentar() throws IOException {
+        AnaliticaErrores analitica = new AnaliticaErrores(60, 1, reloj);
+        ValidadorServicePYP pyp = new ValidadorServicePYP(analitica, DESCARTAR, versionReglas, reloj);
+        ValidadorServiceMorb morb = new ValidadorServiceMorb(analitica, DESCARTAR, versionReglas);
+
+        byte[] json = FacturasSinteticas.factura("CALENTAMIENTO", usuariosPorFactura, LocalDate.now(reloj));
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean medible = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long compilacionInicial = medible ? jit.getTotalCompilationTime() : 0;
+        long compilacionAnterior = compilacionInicial;
+
+        long limite = System.nanoTime() + tiempoMaximoMs * 1_000_000;
+        int rondas = 0;
+        int estables = 0;
+        long validaciones = 0;
+        while (System.nanoTime() < limite) {
+            long inicioRonda = System.nanoTime();
+            for (int i = 0; i < REPETICIONES_POR_RONDA; i++) {
+                FormatoReporte formato = i % 4 == 3 ? FormatoReporte.AGRUPADO : FormatoReporte.DETALLADO;
+                // Lo mismo que hace el controlador: hash del cuerpo y luego deserializar
+                Factura factura = leer(json, formato.version(pyp.versionReglas()));
+                pyp.validarFactura(factura, formato);
+                factura = leer(json, formato.version(morb.versionReglas()));
+                morb.validarFactura(factura, formato);
+                validaciones += 2;
+            }
+            rondas++;
+            if (!medible) {
+                // sin el contador de compilación no hay cómo saber cuándo para: un número fijo de rondas
+                if (rondas >= RONDAS_MINIMAS * 10) return new Resultado(rondas, validaciones, -1, true);
+                continue;
+            }
+            long compilacion = jit.getTotalCompilationTime();
+            long rondaMs = (System.nanoTime() - inicioRonda) / 1_000_000;
+            estables = (compilacion - compilacionAnterior) * 100 < rondaMs * COMPILACION_ESTABLE_PORCENTAJE ? estables + 1 : 0;
+            compilacionAnterior = compilacion;
+            if (rondas >= RONDAS_MINIMAS && estables >= rondasEstables) {
+                return new Resultado(rondas, validaciones, compilacion - compilacionInicial, true);
+            }
+        }
+        return new Resultado(rondas, validaciones, medible ? compilacionAnterior - compilacionInicial : -1, false);
+    }
+
+    private Factura leer(byte[] json, String version) throws IOException {
+        CacheResultados.CuerpoConHash cuerpo = CacheResultados.leer(new ByteArrayInputStream(json), version);
+        return LectorFactura.leer(objectMapper, cuerpo.bytes());
+    }
+
+    record Resultado(int rondas, long validaciones, long compilacionMs, boolean estable) { }
+}
@@ -0,0 +1,124 @@
+package com.example.validadorjson.calentamiento;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * JSON de facturas inventadas para el calentamiento: cada usuario cae en un caso distinto
+ * (tipo de documento vs edad, documento inválido, fechas ilegibles, sin servicios...) y cada
+ * usuario trae consultas y procedimientos que pasan por todas las ramas de las reglas PYP y Morb:
+ * duplicados, planificación y prenatal con otra finalidad, los cuatro casos de diagnóstico
+ * principal vs relacionados, los formatos de fecha de atención que se aceptan y uno que no,
+ * consecutivos faltantes y documentos repetidos. También trae secciones que se saltan al parsear.
+ *
+ * Las fechas se calculan desde "hoy" para que las edades sean las del caso.
+ */
+final class FacturasSinteticas {
+
+    // tipo de documento, edad en días al día de hoy (negativo: fecha de nacimiento ilegible), sin servicios
+    private static final Object[][] CASOS = {
+            {"CC", 40 * 365, false},
+            {"RC", 10 * 365, false},
+            {"MS", 60, false},
+            {"TI", 20 * 365, false},
+            {"AS", 12 * 365, false},
+            {"CE", 30 * 365, false},
+            {"XX", 30 * 365, false},
+            {"CC", -1, false},
+            {"TI", 12 * 365, true},
+            {"RC", 3 * 365, false},
+            {"MS", 10, false},
+            {"CC", 15 * 365, false},
+    };
+
+    private FacturasSinteticas() {
+    }
+
+    /** Cuántos usuarios distintos hay antes de repetir casos. */
+    static int casos() {
+        return CASOS.length;
+    }
+
+    static byte[] factura(String numFactura, int usuarios, LocalDate hoy) {
+        StringBuilder sb = new StringBuilder(usuarios * 2048);
+        sb.append("{\"numDocumentoIdObligado\":\"900000001\",\"numFactura\":\"").append(numFactura)
+                .append("\",\"tipoNota\":null,\"numNota\":null,\"usuarios\":[");
+        for (int i = 0; i < usuarios; i++) {
+            if (i > 0) sb.append(',');
+            usuario(sb, i, hoy);
+        }
+        return sb.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void usuario(StringBuilder sb, int i, LocalDate hoy) {
+        Object[] caso = CASOS[i % CASOS.length];
+        String tipoDoc = (String) caso[0];
+        int dias = (Integer) caso[1];
+        String nacimiento = dias < 0 ? "1990/13/01" : hoy.minusDays(dias).toString();
+        // el sexto usuario repite el documento del quinto; falta el consecutivo de usuario 8
+        String documento = String.valueOf(1000000 + (i % CASOS.length == 5 ? i - 1 : i));
+        int consecutivo = i + 1 + (i >= 7 ? 1 : 0);
+
+        sb.append("{\"tipoDocumentoIdentificacion\":\"").append(tipoDoc)
+                .append("\",\"numDocumentoIdentificacion\":\"").append(documento)
+                .append("\",\"tipoUsuario\":\"01\",\"fechaNacimiento\":\"").append(nacimiento)
+                .append("\",\"codSexo\":\"").append(i % 2 == 0 ? 'F' : 'M')
+                .append("\",\"codPaisResidencia\":\"170\",\"codMunicipioResidencia\":\"05001\"")
+                .append(",\"codZonaTerritorialResidencia\":\"01\",\"incapacidad\":\"NO\",\"consecutivo\":").append(consecutivo)
+                .append(",\"codPaisOrigen\":\"170\",\"servicios\":");
+        if ((Boolean) caso[2]) {
+            sb.append("null}");
+            return;
+        }
+        String dia = hoy.toString();
+        sb.append("{\"consultas\":[");
+        // fecha, código, finalidad, diagnóstico principal, relacionado 1, relacionado 2
+        consulta(sb, 1, dia + " 08:00", "890201", "15", "Z123", null, null).append(',');
+        consulta(sb, 2, dia + " 08:30:00", "890201", "15", "Z123", null, null).append(',');
+        consulta(sb, 3, dia + "T09:15:00", "890301", "11", "Z300", null, null).append(',');
+        consulta(sb, 4, dia, "890301", "11", "Z321", "", null).append(',');
+        // falta el consecutivo 5
+        consulta(sb, 6, dia + " 10:00", "890201", "15", "A099", "Z123", null).append(',');
+        consulta(sb, 7, dia + " 10:20", "890201", "15", "A099", "B001", "Z762").append(',');
+        consulta(sb, 8, "10/03/2025", "890201", "15", "K021", "", null);
+        sb.append("],\"procedimientos\":[");
+        procedimiento(sb, 1, dia + " 07:00", "903841").append(',');
+        procedimiento(sb, 2, dia + " 07:45", "903841").append(',');
+        procedimiento(sb, 3, null, "997106").append(',');
+        procedimiento(sb, 3, dia + " 11:00:00", "997107");
+        sb.append("],\"urgencias\":[{\"codPrestador\":\"050010000001\",\"fechaInicioAtencion\":\"").append(dia)
+                .append(" 06:00\",\"causaMotivoAtencion\":\"38\",\"codDiagnosticoPrincipal\":\"R104\",\"consecutivo\":1}]")
+                .append(",\"medicamentos\":[{\"codPrestador\":\"050010000001\",\"codTecnologiaSalud\":\"19943544-01\"")
+                .append(",\"cantidadMedicamento\":2.0,\"vrUnitMedicamento\":1500.5,\"consecutivo\":1}]")
+                .append(",\"otrosServicios\":null}}");
+    }
+
+    private static StringBuilder consulta(StringBuilder sb, int consecutivo, String fecha, String codigo, String finalidad,
+                                          String principal, String rel1, String rel2) {
+        sb.append("{\"codPrestador\":\"050010000001\",\"fechaInicioAtencion\":");
+        texto(sb, fecha).append(",\"numAutorizacion\":null,\"codConsulta\":\"").append(codigo)
+                .append("\",\"modalidadGrupoServicioTecSal\":\"01\",\"grupoServicios\":\"01\",\"codServicio\":325")
+                .append(",\"finalidadTecnologiaSalud\":\"").append(finalidad)
+                .append("\",\"causaMotivoAtencion\":\"38\",\"codDiagnosticoPrincipal\":\"").append(principal)
+                .append("\",\"codDiagnosticoRelacionado1\":");
+        texto(sb, rel1).append(",\"codDiagnosticoRelacionado2\":");
+        texto(sb, rel2).append(",\"tipoDiagnosticoPrincipal\":\"01\",\"tipoDocumentoIdentificacion\":\"CC\"")
+                .append(",\"numDocumentoIdentificacion\":\"43000000\",\"vrServicio\":35000,\"conceptoRecaudo\":\"05\"")
+                .append(",\"valorPagoModerador\":0,\"consecutivo\":").append(consecutivo).append('}');
+        return sb;
+    }
+
+    private static StringBuilder procedimiento(StringBuilder sb, int consecutivo, String fecha, String codigo) {
+        sb.append("{\"codPrestador\":\"050010000001\",\"fechaInicioAtencion\":");
+        texto(sb, fecha).append(",\"numAutorizacion\":null,\"codProcedimiento\":\"").append(codigo)
+                .append("\",\"viaIngresoServicioSalud\":\"02\",\"modalidadGrupoServicioTecSal\":\"01\",\"grupoServicios\":\"02\"")
+                .append(",\"codServicio\":328,\"finalidadTecnologiaSalud\":\"15\",\"tipoDocumentoIdentificacion\":\"CC\"")
+                .append(",\"numDocumentoIdentificacion\":\"43000000\",\"codDiagnosticoPrincipal\":\"Z123\",\"vrServicio\":12000.0")
+                .append(",\"conceptoRecaudo\":\"05\",\"valorPagoModerador\":0,\"consecutivo\":").append(consecutivo).append('}');
+        return sb;
+    }
+
+    private static StringBuilder texto(StringBuilder sb, String valor) {
+        return valor == null ? sb.append("null") : sb.append('"').append(valor).append('"');
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.validadorjson.columnar;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas o procedimientos de toda una factura como arreglos por campo (una fila por servicio):
+ * cada texto es un id del {@link Diccionario} de la factura y los números quedan primitivos.
+ * El día de atención (los 10 primeros caracteres de fechaInicioAtencion) se guarda aparte como
+ * entero: días desde 1970-01-01 si es una fecha yyyy-MM-dd válida, o el id del texto si no.
+ * Dos filas tienen el mismo día si y solo si el entero es el mismo.
+ *
+ * Los servicios de cada usuario son un rango de filas ({@link FilasColumnares}). Se llena mientras
+ * se lee el JSON, en un solo hilo; después de {@link #cerrar()} solo se consulta.
+ */
+public final class Columnas {
+
+    /** Campos numéricos, comunes a consultas y procedimientos; los de texto son >= 0. */
+    public static final int COD_SERVICIO = -1;
+    public static final int CONSECUTIVO = -2;
+    public static final int VR_SERVICIO = -3;
+    public static final int VALOR_PAGO_MODERADOR = -4;
+    public static final int DESCONOCIDO = Integer.MIN_VALUE;
+
+    // Días desde 1970 de yyyy-MM-dd están muy por encima; el id del texto se suma a este valor
+    private static final int DIA_NO_FECHA = Integer.MIN_VALUE;
+
+    private final Diccionario diccionario;
+    private final Map<String, Integer> campos;
+    private final String[] nombresVistos = new String[32];
+    private final int[] camposVistos = new int[32];
+    private final int campoFecha;
+    private final int campoCodigo;
+    private final int campoFinalidad;
+    private final int campoDiagnostico;
+
+    private int filas;
+    private int[][] textos;
+    private int[] dias;
+    private int[] codServicio;
+    private int[] consecutivos;
+    private double[] vrServicio;
+    private double[] valorPagoModerador;
+    private final BitSet nulas = new BitSet();
+
+    /**
+     * @param nombres campos de texto en el orden del record
+     * @param codigo  código del servicio (codConsulta, codProcedimiento) para {@link #repetidas}
+     */
+    Columnas(Diccionario diccionario, List<String> nombres, String codigo, int capacidad) {
+        this.diccionario = diccionario;
+        this.campos = new HashMap<>();
+        for (int i = 0; i < nombres.size(); i++) campos.put(nombres.get(i), i);
+        campos.put("codServicio", COD_SERVICIO);
+        campos.put("consecutivo", CONSECUTIVO);
+        campos.put("vrServicio", VR_SERVICIO);
+        campos.put("valorPagoModerador", VALOR_PAGO_MODERADOR);
+        this.campoFecha = nombres.indexOf("fechaInicioAtencion");
+        this.campoCodigo = nombres.indexOf(codigo);
+        this.campoFinalidad = nombres.indexOf("finalidadTecnologiaSalud");
+        this.campoDiagnostico = nombres.indexOf("codDiagnosticoPrincipal");
+
+        this.textos = new int[nombres.size()][capacidad];
+        this.dias = new int[capacidad];
+        this.codServicio = new int[capacidad];
+        this.consecutivos = new int[capacidad];
+        this.vrServicio = new double[capacidad];
+        this.valorPagoModerador = new double[capacidad];
+    }
+
+    /* --------------------------- Escritura (al leer el JSON) --------------------------- */
+
+    /**
+     * Índice del campo, uno de los numéricos o {@link #DESCONOCIDO}.
+     *
+     * @param posicion orden del campo dentro del objeto: los servicios suelen traer los campos en el
+     *                 mismo orden y el parser entrega siempre la misma instancia del nombre, así que se
+     *                 recuerda el último nombre de cada posición y casi siempre basta comparar referencias
+     */
+    public int campo(String nombre, int posicion) {
+        if (posicion < nombresVistos.length && nombresVistos[posicion] == nombre) return camposVistos[posicion];
+        Integer i = campos.get(nombre);
+        int campo = i == null ? DESCONOCIDO : i;
+        if (posicion < nombresVistos.length) {
+            nombresVistos[posicion] = nombre;
+            camposVistos[posicion] = campo;
+        }
+        return campo;
+    }
+
+    public int filas() {
+        return filas;
+    }
+
+    /** Fila nueva con todos los campos null / 0, como un record sin esos campos en el JSON. */
+    public int agregar() {
+        if (filas == dias.length) crecer();
+        dias[filas] = DIA_NO_FECHA + Diccionario.VACIO;
+        return filas++;
+    }
+
+    /** Elemento null del arreglo. */
+    public void agregarNula() {
+        nulas.set(agregar());
+    }
+
+    public void texto(int fila, int campo, char[] buf, int offset, int longitud) {
+        int id = diccionario.id(buf, offset, longitud);
+        textos[campo][fila] = id;
+        if (campo == campoFecha) {
+            dias[fila] = longitud > 10 ? dia(buf, offset, 10, -1) : dia(buf, offset, longitud, id);
+        }
+    }
+
+    public void texto(int fila, int campo, String valor) {
+        int id = diccionario.id(valor);
+        textos[campo][fila] = id;
+        if (campo == campoFecha) {
+            // null cuenta como "" (diaAtencion de ContextoFila)
+            char[] c = valor == null ? new char[0] : valor.toCharArray();
+            dias[fila] = c.length > 10 ? dia(c, 0, 10, -1) : dia(c, 0, c.length, valor == null ? Diccionario.VACIO : id);
+        }
+    }
+
+    public void entero(int fila, int campo, int valor) {
+        if (campo == COD_SERVICIO) codServicio[fila] = valor;
+        else consecutivos[fila] = valor;
+    }
+
+    public void decimal(int fila, int campo, double valor) {
+        if (campo == VR_SERVICIO) vrServicio[fila] = valor;
+        else valorPagoModerador[fila] = valor;
+    }
+
+    /** Fin de la lectura: recorta los arreglos a las filas leídas. */
+    void cerrar() {
+        for (int i = 0; i < textos.length; i++) textos[i] = Arrays.copyOf(textos[i], filas);
+        dias = Arrays.copyOf(dias, filas);
+        codServicio = Arrays.copyOf(codServicio, filas);
+        consecutivos = Arrays.copyOf(consecutivos, filas);
+        vrServicio = Arrays.copyOf(vrServicio, filas);
+        valorPagoModerador = Arrays.copyOf(valorPagoModerador, filas);
+    }
+
+    private void crecer() {
+        int capacidad = dias.length * 2;
+        for (int i = 0; i < textos.length; i++) textos[i] = Arrays.copyOf(textos[i], capacidad);
+        dias = Arrays.copyOf(dias, capacidad);
+        codServicio = Arrays.copyOf(codServicio, capacidad);
+        consecutivos = Arrays.copyOf(consecutivos, capacidad);
+        vrServicio = Arrays.copyOf(vrServicio, capacidad);
+        valorPagoModerador = Arrays.copyOf(valorPagoModerador, capacidad);
+    }
+
+    /**
+     * Día de c[o, o + longitud), que ya son como mucho los 10 primeros caracteres de la fecha:
+     * días desde 1970 si es yyyy-MM-dd válida; si no, el id de ese texto (idDia, o -1 si hay que buscarlo).
+     */
+    private int dia(char[] c, int o, int longitud, int idDia) {
+        if (longitud == 10 && c[o + 4] == '-' && c[o + 7] == '-') {
+            int anio = digitos(c, o, 4);
+            int mes = digitos(c, o + 5, 2);
+            int dia = digitos(c, o + 8, 2);
+            if (anio >= 0 && mes >= 1 && mes <= 12 && dia >= 1 && dia <= Month.of(mes).length(Year.isLeap(anio))) {
+                return (int) LocalDate.of(anio, mes, dia).toEpochDay();
+            }
+        }
+        return DIA_NO_FECHA + (idDia >= 0 ? idDia : diccionario.id(c, o, longitud));
+    }
+
+    private static int digitos(char[] c, int o, int n) {
+        int v = 0;
+        for (int i = 0; i < n; i++) {
+            char d = c[o + i];
+            if (d < '0' || d > '9') return -1;
+            v = v * 10 + (d - '0');
+        }
+        return v;
+    }
+
+    /* --------------------------- Lectura --------------------------- */
+
+    Diccionario diccionario() {
+        return diccionario;
+    }
+
+    boolean nula(int fila) {
+        return nulas.get(fila);
+    }
+
+    String texto(int fila, int campo) {
+        return diccionario.texto(textos[campo][fila]);
+    }
+
+    LocalDate atencion(int fila) {
+        return diccionario.atencion(textos[campoFecha][fila]);
+    }
+
+    int codServicio(int fila) {
+        return codServicio[fila];
+    }
+
+    int consecutivo(int fila) {
+        return consecutivos[fila];
+    }
+
+    double vrServicio(int fila) {
+        return vrServicio[fila];
+    }
+
+    double valorPagoModerador(int fila) {
+        return valorPagoModerador[fila];
+    }
+
+    /**
+     * Filas de [desde, hasta) (bit fila - desde) con el mismo código, finalidad, diagnóstico
+     * principal y día de atención que una fila anterior del rango; las nulas no cuentan.
+     * null y "" son lo mismo, como en la clave de texto de los servicios. Tabla abierta de
+     * índices de fila con factor de carga <= 0,5; compara los cuatro enteros, sin armar claves.
+     */
+    BitSet repetidas(int desde, int hasta) {
+        int n = hasta - desde;
+        BitSet repetidas = new BitSet(n);
+        if (n < 2) return repetidas;
+        int[] codigos = textos[campoCodigo];
+        int[] finalidades = textos[campoFinalidad];
+        int[] diagnosticos = textos[campoDiagnostico];
+        int capacidad = Integer.highestOneBit(n * 2 - 1) << 1;
+        int mascara = capacidad - 1;
+        int[] tabla = new int[capacidad];   // fila + 1; 0 = libre
+        for (int f = desde; f < hasta; f++) {
+            if (nulas.get(f)) continue;
+            int codigo = sinVacio(codigos[f]);
+            int finalidad = sinVacio(finalidades[f]);
+            int diagnostico = sinVacio(diagnosticos[f]);
+            int dia = dias[f];
+            int h = ((codigo * 31 + finalidad) * 31 + diagnostico) * 31 + dia;
+            h *= 0x9E3779B1;
+            int slot = (h ^ (h >>> 16)) & mascara;
+            boolean repetida = false;
+            for (int otra; (otra = tabla[slot]) != 0; slot = (slot + 1) & mascara) {
+                otra--;
+                if (dias[otra] == dia && sinVacio(codigos[otra]) == codigo && sinVacio(finalidades[otra]) == finalidad
+                        && sinVacio(diagnosticos[otra]) == diagnostico) {
+                    repetida = true;
+                    break;
+                }
+            }
+            if (repetida) repetidas.set(f - desde);
+            else tabla[slot] = f + 1;
+        }
+        return repetidas;
+    }
+
+    private static int sinVacio(int id) {
+        return id == Diccionario.VACIO ? Diccionario.NULO : id;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.validadorjson.columnar;
+
+import com.example.validadorjson.reglas.Fechas;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Textos de una factura, cada valor distinto una sola vez: las {@link Columnas} guardan su id.
+ * id 0 es null y id 1 es "". Mientras se lee, la búsqueda es sobre el buffer de caracteres del
+ * parser (tabla abierta de ids, comparando solo si coincide el hash), así que un valor repetido
+ * no crea String. {@link #cerrar()} suelta la tabla: después solo se consulta.
+ *
+ * La fecha de atención se parsea una vez por texto distinto ({@link #atencion(int)}).
+ */
+public final class Diccionario {
+
+    public static final int NULO = 0;
+    public static final int VACIO = 1;
+
+    // Fecha de atención que Fechas.atencion no pudo leer
+    private static final LocalDate ILEGIBLE = LocalDate.MIN;
+
+    private String[] textos = new String[64];
+    private int tamano;
+    private int[] tabla = new int[128];   // id; 0 = libre (null nunca entra)
+    private int mascara = tabla.length - 1;
+
+    // Por id; se llena al validar, desde cualquier hilo: LocalDate es inmutable y el peor caso es parsear dos veces
+    private LocalDate[] atenciones;
+
+    Diccionario() {
+        tamano = 1;   // NULO
+        id("");
+    }
+
+    /** Id del texto {@code buf[offset, offset + longitud)}; lo agrega si es nuevo. */
+    int id(char[] buf, int offset, int longitud) {
+        int h = 0;
+        for (int i = 0; i < longitud; i++) {
+            h = 31 * h + buf[offset + i];
+        }
+        int slot = dispersar(h) & mascara;
+        for (int id; (id = tabla[slot]) != 0; slot = (slot + 1) & mascara) {
+            String s = textos[id];
+            if (s.hashCode() == h && iguales(s, buf, offset, longitud)) return id;
+        }
+        return agregar(slot, new String(buf, offset, longitud));
+    }
+
+    int id(String valor) {
+        if (valor == null) return NULO;
+        int h = valor.hashCode();
+        int slot = dispersar(h) & mascara;
+        for (int id; (id = tabla[slot]) != 0; slot = (slot + 1) & mascara) {
+            String s = textos[id];
+            if (s.hashCode() == h && s.equals(valor)) return id;
+        }
+        return agregar(slot, valor);
+    }
+
+    public String texto(int id) {
+        return textos[id];
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Fecha de atención del texto con ese id, o null si es null o {@link Fechas#atencion} falla
+     * (quien la pide la parsea de nuevo para tener la misma excepción).
+     */
+    public LocalDate atencion(int id) {
+        if (id == NULO) return null;
+        LocalDate[] memo = atenciones;
+        if (memo == null) atenciones = memo = new LocalDate[tamano];
+        LocalDate fecha = memo[id];
+        if (fecha == null) {
+            try {
+                fecha = Fechas.atencion(textos[id]);
+            } catch (RuntimeException e) {
+                fecha = ILEGIBLE;
+            }
+            memo[id] = fecha;
+        }
+        return fecha == ILEGIBLE ? null : fecha;
+    }
+
+    /** Fin de la lectura: recorta los textos y suelta la tabla de búsqueda. */
+    void cerrar() {
+        textos = Arrays.copyOf(textos, tamano);
+        tabla = null;
+    }
+
+    private int agregar(int slot, String valor) {
+        if (tamano == textos.length) textos = Arrays.copyOf(textos, tamano * 2);
+        int id = tamano++;
+        textos[id] = valor;
+        tabla[slot] = id;
+        // factor de carga <= 0,5
+        if (tamano * 2 > tabla.length) redimensionar();
+        return id;
+    }
+
+    private void redimensionar() {
+        tabla = new int[tabla.length * 2];
+        mascara = tabla.length - 1;
+        for (int id = VACIO; id < tamano; id++) {
+            int slot = dispersar(textos[id].hashCode()) & mascara;
+            while (tabla[slot] != 0) slot = (slot + 1) & mascara;
+            tabla[slot] = id;
+        }
+    }
+
+    private static boolean iguales(String s, char[] buf, int offset, int longitud) {
+        if (s.length() != longitud) return false;
+        for (int i = 0; i < longitud; i++) {
+            if (s.charAt(i) != buf[offset + i]) return false;
+        }
+        return true;
+    }
+
+    private static int dispersar(int h) {
+        h *= 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+}
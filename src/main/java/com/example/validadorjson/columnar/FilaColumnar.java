@@ -0,0 +1,68 @@
+package com.example.validadorjson.columnar;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Cursor sobre las filas de un {@link FilasColumnares}: es a la vez el iterador y la fila actual
+ * (el mismo objeto en cada next(); null si el elemento del JSON es null). Uno por recorrido, así
+ * que no se comparte entre hilos.
+ */
+public abstract class FilaColumnar<F> implements Iterator<F>, Iterable<F> {
+
+    final Columnas columnas;
+    private final int desde;
+    private final int hasta;
+    int fila;
+    private BitSet repetidas;
+
+    FilaColumnar(FilasColumnares<?> filas) {
+        this.columnas = filas.columnas;
+        this.desde = filas.desde;
+        this.hasta = filas.hasta;
+        this.fila = desde - 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return fila + 1 < hasta;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public F next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        fila++;
+        return columnas.nula(fila) ? null : (F) this;
+    }
+
+    @Override
+    public Iterator<F> iterator() {
+        return this;
+    }
+
+    /**
+     * Misma regla que la clave de texto código_finalidad_diagnóstico_día de los servicios: true si
+     * una fila anterior del usuario tiene los mismos valores. Se calcula para todo el rango la primera vez.
+     */
+    public boolean repetida() {
+        if (repetidas == null) repetidas = columnas.repetidas(desde, hasta);
+        return repetidas.get(fila - desde);
+    }
+
+    /** fechaInicioAtencion ya leída con Fechas.atencion, o null si es null o no se puede leer. */
+    public LocalDate atencion() {
+        return columnas.atencion(fila);
+    }
+
+    /** La fecha de atención ya leída si fila es un cursor columnar; null para un record. */
+    public static LocalDate atencion(Object fila) {
+        return fila instanceof FilaColumnar<?> c ? c.atencion() : null;
+    }
+
+    String texto(int campo) {
+        return columnas.texto(fila, campo);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.validadorjson.columnar;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Servicios de un usuario como rango [desde, hasta) de unas {@link Columnas}. Es la lista que
+ * queda en {@link com.example.validadorjson.dto.Servicios}: {@link #get(int)} arma el record en
+ * cada llamada (para quien necesite el objeto), mientras que las reglas recorren la sección con
+ * un {@link FilaColumnar} que lee las columnas sin crear nada por fila.
+ */
+public abstract class FilasColumnares<T> extends AbstractList<T> implements RandomAccess {
+
+    final Columnas columnas;
+    final int desde;
+    final int hasta;
+
+    FilasColumnares(Columnas columnas, int desde, int hasta) {
+        this.columnas = columnas;
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+
+    @Override
+    public T get(int index) {
+        int fila = desde + Objects.checkIndex(index, size());
+        return columnas.nula(fila) ? null : crear(fila);
+    }
+
+    @Override
+    public int size() {
+        return hasta - desde;
+    }
+
+    abstract T crear(int fila);
+}
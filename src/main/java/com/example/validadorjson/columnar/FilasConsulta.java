@@ -0,0 +1,93 @@
+package com.example.validadorjson.columnar;
+
+import com.example.validadorjson.dto.Consulta;
+import com.example.validadorjson.dto.FilaConsulta;
+
+import java.util.List;
+
+/** Consultas de un usuario sobre las columnas de consultas de la factura. */
+public final class FilasConsulta extends FilasColumnares<Consulta> {
+
+    // Campos de texto de Consulta, en el orden del record
+    static final List<String> CAMPOS = List.of(
+            "codPrestador", "fechaInicioAtencion", "numAutorizacion", "codConsulta", "modalidadGrupoServicioTecSal",
+            "grupoServicios", "finalidadTecnologiaSalud", "causaMotivoAtencion", "codDiagnosticoPrincipal",
+            "codDiagnosticoRelacionado1", "codDiagnosticoRelacionado2", "tipoDiagnosticoPrincipal",
+            "tipoDocumentoIdentificacion", "numDocumentoIdentificacion", "conceptoRecaudo");
+    static final String CODIGO = "codConsulta";
+
+    private static final int COD_PRESTADOR = 0;
+    private static final int FECHA = 1;
+    private static final int COD_CONSULTA = 3;
+    private static final int FINALIDAD = 6;
+    private static final int DIAGNOSTICO = 8;
+    private static final int RELACIONADO1 = 9;
+    private static final int RELACIONADO2 = 10;
+
+    FilasConsulta(Columnas columnas, int desde, int hasta) {
+        super(columnas, desde, hasta);
+    }
+
+    /**
+     * Para recorrer las consultas de un usuario: con un cursor si vienen en columnas, si no la lista tal cual.
+     */
+    public static Iterable<? extends FilaConsulta> recorrer(List<Consulta> consultas) {
+        return consultas instanceof FilasConsulta filas ? new Cursor(filas) : consultas;
+    }
+
+    @Override
+    Consulta crear(int f) {
+        Columnas c = columnas;
+        return new Consulta(c.texto(f, 0), c.texto(f, 1), c.texto(f, 2), c.texto(f, 3), c.texto(f, 4), c.texto(f, 5),
+                c.codServicio(f), c.texto(f, 6), c.texto(f, 7), c.texto(f, 8), c.texto(f, 9), c.texto(f, 10),
+                c.texto(f, 11), c.texto(f, 12), c.texto(f, 13), c.vrServicio(f), c.texto(f, 14),
+                c.valorPagoModerador(f), c.consecutivo(f));
+    }
+
+    private static final class Cursor extends FilaColumnar<FilaConsulta> implements FilaConsulta {
+
+        Cursor(FilasConsulta filas) {
+            super(filas);
+        }
+
+        @Override
+        public String codPrestador() {
+            return texto(COD_PRESTADOR);
+        }
+
+        @Override
+        public String fechaInicioAtencion() {
+            return texto(FECHA);
+        }
+
+        @Override
+        public String codConsulta() {
+            return texto(COD_CONSULTA);
+        }
+
+        @Override
+        public String finalidadTecnologiaSalud() {
+            return texto(FINALIDAD);
+        }
+
+        @Override
+        public String codDiagnosticoPrincipal() {
+            return texto(DIAGNOSTICO);
+        }
+
+        @Override
+        public String codDiagnosticoRelacionado1() {
+            return texto(RELACIONADO1);
+        }
+
+        @Override
+        public String codDiagnosticoRelacionado2() {
+            return texto(RELACIONADO2);
+        }
+
+        @Override
+        public int consecutivo() {
+            return columnas.consecutivo(fila);
+        }
+    }
+}
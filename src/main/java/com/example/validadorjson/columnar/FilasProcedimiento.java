@@ -0,0 +1,77 @@
+package com.example.validadorjson.columnar;
+
+import com.example.validadorjson.dto.FilaProcedimiento;
+import com.example.validadorjson.dto.Procedimiento;
+
+import java.util.List;
+
+/** Procedimientos de un usuario sobre las columnas de procedimientos de la factura. */
+public final class FilasProcedimiento extends FilasColumnares<Procedimiento> {
+
+    // Campos de texto de Procedimiento, en el orden del record
+    static final List<String> CAMPOS = List.of(
+            "codPrestador", "fechaInicioAtencion", "numAutorizacion", "codProcedimiento", "viaIngresoServicioSalud",
+            "modalidadGrupoServicioTecSal", "grupoServicios", "finalidadTecnologiaSalud", "tipoDocumentoIdentificacion",
+            "numDocumentoIdentificacion", "codDiagnosticoPrincipal", "conceptoRecaudo");
+    static final String CODIGO = "codProcedimiento";
+
+    private static final int COD_PRESTADOR = 0;
+    private static final int FECHA = 1;
+    private static final int COD_PROCEDIMIENTO = 3;
+    private static final int FINALIDAD = 7;
+    private static final int DIAGNOSTICO = 10;
+
+    FilasProcedimiento(Columnas columnas, int desde, int hasta) {
+        super(columnas, desde, hasta);
+    }
+
+    /** Ver {@link FilasConsulta#recorrer}. */
+    public static Iterable<? extends FilaProcedimiento> recorrer(List<Procedimiento> procedimientos) {
+        return procedimientos instanceof FilasProcedimiento filas ? new Cursor(filas) : procedimientos;
+    }
+
+    @Override
+    Procedimiento crear(int f) {
+        Columnas c = columnas;
+        return new Procedimiento(c.texto(f, 0), c.texto(f, 1), c.texto(f, 2), c.texto(f, 3), c.texto(f, 4), c.texto(f, 5),
+                c.texto(f, 6), c.codServicio(f), c.texto(f, 7), c.texto(f, 8), c.texto(f, 9), c.texto(f, 10),
+                c.vrServicio(f), c.texto(f, 11), c.valorPagoModerador(f), c.consecutivo(f));
+    }
+
+    private static final class Cursor extends FilaColumnar<FilaProcedimiento> implements FilaProcedimiento {
+
+        Cursor(FilasProcedimiento filas) {
+            super(filas);
+        }
+
+        @Override
+        public String codPrestador() {
+            return texto(COD_PRESTADOR);
+        }
+
+        @Override
+        public String fechaInicioAtencion() {
+            return texto(FECHA);
+        }
+
+        @Override
+        public String codProcedimiento() {
+            return texto(COD_PROCEDIMIENTO);
+        }
+
+        @Override
+        public String finalidadTecnologiaSalud() {
+            return texto(FINALIDAD);
+        }
+
+        @Override
+        public String codDiagnosticoPrincipal() {
+            return texto(DIAGNOSTICO);
+        }
+
+        @Override
+        public int consecutivo() {
+            return columnas.consecutivo(fila);
+        }
+    }
+}
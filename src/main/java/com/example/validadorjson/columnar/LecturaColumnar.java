@@ -0,0 +1,56 @@
+package com.example.validadorjson.columnar;
+
+import com.example.validadorjson.dto.Consulta;
+import com.example.validadorjson.dto.Procedimiento;
+
+import java.util.List;
+
+/**
+ * Columnas de consultas y procedimientos de una factura mientras se lee, con un solo {@link Diccionario}.
+ * Cada arreglo de servicios de un usuario se agrega al final de las columnas de su tipo y queda como
+ * una {@link FilasColumnares} sobre ese rango. Se usa para una sola lectura y se cierra al terminar.
+ */
+public final class LecturaColumnar {
+
+    // Bytes de JSON por fila para la capacidad inicial (un servicio ocupa unos 300, más su parte del usuario)
+    private static final int BYTES_POR_FILA = 1024;
+
+    private final Diccionario diccionario = new Diccionario();
+    private final int capacidad;
+    private Columnas consultas;
+    private Columnas procedimientos;
+
+    /** @param bytesJson tamaño de la factura, para no empezar con columnas pequeñas que haya que copiar muchas veces */
+    public LecturaColumnar(int bytesJson) {
+        this.capacidad = Math.max(64, bytesJson / BYTES_POR_FILA);
+    }
+
+    /** Columnas para elementos de ese tipo, o null si el tipo no se lee en columnas. */
+    public Columnas columnas(Class<?> tipo) {
+        if (tipo == Consulta.class) {
+            if (consultas == null) consultas = new Columnas(diccionario, FilasConsulta.CAMPOS, FilasConsulta.CODIGO, capacidad);
+            return consultas;
+        }
+        if (tipo == Procedimiento.class) {
+            if (procedimientos == null) {
+                procedimientos = new Columnas(diccionario, FilasProcedimiento.CAMPOS, FilasProcedimiento.CODIGO, capacidad);
+            }
+            return procedimientos;
+        }
+        return null;
+    }
+
+    /** Lista de las filas [desde, hasta) de esas columnas. */
+    public List<?> filas(Columnas columnas, int desde, int hasta) {
+        return columnas == consultas
+                ? new FilasConsulta(columnas, desde, hasta)
+                : new FilasProcedimiento(columnas, desde, hasta);
+    }
+
+    /** Fin de la lectura: recorta columnas y diccionario; ya no se agregan filas. */
+    public void cerrar() {
+        if (consultas != null) consultas.cerrar();
+        if (procedimientos != null) procedimientos.cerrar();
+        diccionario.cerrar();
+    }
+}
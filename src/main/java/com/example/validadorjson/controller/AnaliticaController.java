@@ -0,0 +1,52 @@
+package com.example.validadorjson.controller;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.reglas.PlanReglas;
+import com.example.validadorjson.service.ReglaValidacion;
+import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analitica")
+public class AnaliticaController {
+
+    private final AnaliticaErrores analiticaErrores;
+    private final ValidadorServicePYP validadorServicePYP;
+    private final ValidadorServiceMorb validadorServiceMorb;
+
+    public AnaliticaController(AnaliticaErrores analiticaErrores, ValidadorServicePYP validadorServicePYP,
+                               ValidadorServiceMorb validadorServiceMorb) {
+        this.analiticaErrores = analiticaErrores;
+        this.validadorServicePYP = validadorServicePYP;
+        this.validadorServiceMorb = validadorServiceMorb;
+    }
+
+    /**
+     * Ej: GET /api/analitica/hallazgos?minutos=60&top=20&regla=PROCEDIMIENTO_DUPLICADO&prestador=123456789001
+     */
+    @GetMapping("/hallazgos")
+    public ResponseEntity<AnaliticaErrores.ResumenAnalitica> hallazgos(
+            @RequestParam(defaultValue = "0") int minutos,
+            @RequestParam(defaultValue = "50") int top,
+            @RequestParam(required = false) ReglaValidacion regla,
+            @RequestParam(required = false) String prestador) {
+        return ResponseEntity.ok(analiticaErrores.consultar(minutos, top, regla, prestador));
+    }
+
+    /**
+     * Orden de evaluación que eligió el planificador para cada tipo de servicio, con el costo
+     * medido y la selectividad observada de cada regla desde que arrancó la instancia.
+     * Ej: GET /api/analitica/plan-reglas
+     */
+    @GetMapping("/plan-reglas")
+    public ResponseEntity<List<PlanReglas.ResumenPlan>> planReglas() {
+        List<PlanReglas.ResumenPlan> planes = new ArrayList<>(validadorServicePYP.planes());
+        planes.addAll(validadorServiceMorb.planes());
+        return ResponseEntity.ok(planes);
+    }
+}
@@ -1,45 +1,180 @@
 package com.example.validadorjson.controller;
 
+import com.example.validadorjson.analitica.AnaliticaErrores;
 import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.reporte.CacheResultados;
+import com.example.validadorjson.reporte.CacheResultados.CuerpoConHash;
+import com.example.validadorjson.reporte.CacheResultados.ResultadoCacheado;
+import com.example.validadorjson.reporte.FormatoReporte;
 import com.example.validadorjson.service.ValidadorServicePYP;
 import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/factura")
 public class ValidadorController {
 
+    private static final Logger log = LoggerFactory.getLogger(ValidadorController.class);
+
     private final ValidadorServicePYP validadorServicePYP;
     private final ValidadorServiceMorb validadorServiceMorb;
+    private final CacheResultados cacheResultados;
+    private final AnaliticaErrores analiticaErrores;
+    private final ObjectMapper objectMapper;
 
 
-    public ValidadorController(ValidadorServicePYP validadorServicePYP, ValidadorServiceMorb validadorServiceMorb) {
+    public ValidadorController(ValidadorServicePYP validadorServicePYP, ValidadorServiceMorb validadorServiceMorb,
+                               CacheResultados cacheResultados, AnaliticaErrores analiticaErrores,
+                               ObjectMapper objectMapper) {
         this.validadorServicePYP = validadorServicePYP;
         this.validadorServiceMorb = validadorServiceMorb;
+        this.cacheResultados = cacheResultados;
+        this.analiticaErrores = analiticaErrores;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * formato=agrupado (opcional) devuelve una línea por regla, código y sección (de todos los usuarios)
+     * en vez de una por hallazgo.
+     */
     @PostMapping("/validar_pyp")
-    public ResponseEntity<Resource> validarFacturaPyp(@RequestBody Factura factura) {
-        ByteArrayResource resource = validadorServicePYP.validarFactura(factura);
-        String fileName = "errores_validacion_fact_" + factura.numFactura() + ".txt";
+    public ResponseEntity<Resource> validarFacturaPyp(HttpServletRequest request,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                      @RequestParam(required = false) String formato) throws IOException {
+        FormatoReporte f = formato(formato);
+        return validar(request, ifNoneMatch, "pyp", f.version(validadorServicePYP.versionReglas()),
+                factura -> validadorServicePYP.validarFactura(factura, f),
+                (numFactura, reporte) -> validadorServicePYP.publicar(numFactura, f, reporte));
+    }
+
+    @PostMapping("/validar_morb")
+    public ResponseEntity<Resource> validarFacturaMorb(HttpServletRequest request,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                       @RequestParam(required = false) String formato) throws IOException {
+        FormatoReporte f = formato(formato);
+        return validar(request, ifNoneMatch, "morb", f.version(validadorServiceMorb.versionReglas()),
+                factura -> validadorServiceMorb.validarFactura(factura, f),
+                (numFactura, reporte) -> validadorServiceMorb.publicar(numFactura, f, reporte));
+    }
+
+    /**
+     * El cuerpo se lee una sola vez calculando el hash (versión de reglas + formato + JSON), que es el ETag.
+     * - If-None-Match igual al ETag: 412 sin cuerpo. Es un POST, y RFC 9110 §13.1.2 no permite 304
+     *   fuera de GET/HEAD; el cliente que ya tiene ese reporte lo reconoce por el ETag.
+     * - Reporte ya en caché: se devuelve sin deserializar ni validar. La analítica cuenta el acierto,
+     *   no los hallazgos (ya se contaron al validar), y el reporte se vuelve a guardar como el último
+     *   de la factura, como si se hubiera validado (otra validación con el mismo numFactura pudo
+     *   reemplazarlo entre tanto).
+     * - Si no: se valida y se guarda en caché.
+     */
+    private ResponseEntity<Resource> validar(HttpServletRequest request, String ifNoneMatch, String modo,
+                                             String versionReglas, Function<Factura, ByteArrayResource> validador,
+                                             Publicacion publicacion) throws IOException {
+        CuerpoConHash cuerpo = CacheResultados.leer(request.getInputStream(), versionReglas);
+
+        if (cuerpo.coincideCon(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(cuerpo.etag()).build();
+        }
+
+        Optional<ResultadoCacheado> cacheado = cacheResultados.obtener(modo, cuerpo.hash());
+        if (cacheado.isPresent()) {
+            ResultadoCacheado r = cacheado.get();
+            analiticaErrores.registrarDesdeCache();
+            try {
+                publicacion.publicar(r.numFactura(), r.reporte());
+            } catch (IOException | RuntimeException e) {
+                // el reporte se sirve igual; solo /descargar_* puede seguir dando el anterior
+                log.warn("No se pudo volver a guardar el reporte de {} servido desde la caché: {}", r.numFactura(), e.toString());
+            }
+            return reporte(r.numFactura(), cuerpo.etag(), new ByteArrayResource(r.reporte()));
+        }
+
+        Factura factura = LectorFactura.leer(objectMapper, cuerpo.bytes());
+        ByteArrayResource resource = validador.apply(factura);
+        // el mismo número con el que los servicios guardan el reporte
+        String numFactura = Optional.ofNullable(factura.numFactura()).orElse("sin_numfact");
+        cacheResultados.guardar(modo, cuerpo.hash(), numFactura, resource.getByteArray());
+        return reporte(numFactura, cuerpo.etag(), resource);
+    }
+
+    /** Guarda un reporte como el último de su factura ({@code publicar} de cada servicio). */
+    @FunctionalInterface
+    private interface Publicacion {
+        void publicar(String numFactura, byte[] reporte) throws IOException;
+    }
+
+    private ResponseEntity<Resource> reporte(String numFactura, String etag, ByteArrayResource resource) {
+        String fileName = "errores_validacion_fact_" + numFactura + ".txt";
         return ResponseEntity.ok()
+                .eTag(etag)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.TEXT_PLAIN)
                 .body(resource);
     }
 
-    @PostMapping("/validar_morb")
-    public ResponseEntity<Resource> validarFacturaMorb(@RequestBody Factura factura) {
-        ByteArrayResource resource = validadorServiceMorb.validarFactura(factura);
-        String fileName = "errores_validacion_fact_" + factura.numFactura() + ".txt";
+    @ExceptionHandler(JsonProcessingException.class)
+    public ResponseEntity<String> jsonInvalido(JsonProcessingException ex) {
+        return ResponseEntity.badRequest()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body("⚠️ JSON de factura inválido: " + ex.getOriginalMessage());
+    }
+
+    /**
+     * Una sección diferida con tipos inválidos falla al materializarse, no al leer la factura
+     * (ver LectorFactura): si eso pasa durante el request, se responde igual que un JSON inválido.
+     */
+    @ExceptionHandler(UncheckedIOException.class)
+    public ResponseEntity<String> seccionInvalida(UncheckedIOException ex) {
+        if (ex.getCause() instanceof JsonProcessingException json) {
+            return jsonInvalido(json);
+        }
+        throw ex;
+    }
+
+    @GetMapping("/descargar_pyp/{numFactura}")
+    public ResponseEntity<Resource> descargarReportePyp(@PathVariable String numFactura,
+                                                        @RequestParam(required = false) String formato) {
+        return descargar(numFactura, validadorServicePYP.obtenerErrores(numFactura, formato(formato)));
+    }
+
+    @GetMapping("/descargar_morb/{numFactura}")
+    public ResponseEntity<Resource> descargarReporteMorb(@PathVariable String numFactura,
+                                                         @RequestParam(required = false) String formato) {
+        return descargar(numFactura, validadorServiceMorb.obtenerErrores(numFactura, formato(formato)));
+    }
+
+    private static FormatoReporte formato(String valor) {
+        try {
+            return FormatoReporte.de(valor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private ResponseEntity<Resource> descargar(String numFactura, StringBuilder errores) {
+        String fileName = "errores_validacion_fact_" + numFactura + ".txt";
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
                 .contentType(MediaType.TEXT_PLAIN)
-                .body(resource);
+                .body(new ByteArrayResource(errores.toString().getBytes(StandardCharsets.UTF_8)));
     }
-}
\ No newline at end of file
+}
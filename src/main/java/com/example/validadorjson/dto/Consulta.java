@@ -20,5 +20,5 @@ public record Consulta (
      String conceptoRecaudo,
      double valorPagoModerador,
      int consecutivo
-){}
+) implements FilaConsulta {}
 
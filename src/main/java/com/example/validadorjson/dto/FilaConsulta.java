@@ -0,0 +1,16 @@
+package com.example.validadorjson.dto;
+
+/**
+ * Lo que las reglas leen de una consulta. Lo implementan el record {@link Consulta} y el cursor
+ * sobre columnas de {@link com.example.validadorjson.columnar.FilasConsulta}, que no crea un objeto por fila.
+ */
+public interface FilaConsulta {
+    String codPrestador();
+    String fechaInicioAtencion();
+    String codConsulta();
+    String finalidadTecnologiaSalud();
+    String codDiagnosticoPrincipal();
+    String codDiagnosticoRelacionado1();
+    String codDiagnosticoRelacionado2();
+    int consecutivo();
+}
@@ -0,0 +1,13 @@
+package com.example.validadorjson.dto;
+
+/**
+ * Lo que las reglas leen de un procedimiento (ver {@link FilaConsulta}).
+ */
+public interface FilaProcedimiento {
+    String codPrestador();
+    String fechaInicioAtencion();
+    String codProcedimiento();
+    String finalidadTecnologiaSalud();
+    String codDiagnosticoPrincipal();
+    int consecutivo();
+}
@@ -0,0 +1,19 @@
+package com.example.validadorjson.dto;
+
+public record Hospitalizacion (
+     String codPrestador,
+     String viaIngresoServicioSalud,
+     String fechaInicioAtencion,
+     String numAutorizacion,
+     String causaMotivoAtencion,
+     String codDiagnosticoPrincipal,
+     String codDiagnosticoPrincipalE,
+     String codDiagnosticoRelacionadoE1,
+     String codDiagnosticoRelacionadoE2,
+     String codDiagnosticoRelacionadoE3,
+     String codComplicacion,
+     String condicionDestinoUsuarioEgreso,
+     String codDiagnosticoCausaMuerte,
+     String fechaEgreso,
+     int consecutivo
+){}
@@ -0,0 +1,27 @@
+package com.example.validadorjson.dto;
+
+public record Medicamento (
+     String codPrestador,
+     String numAutorizacion,
+     String idMIPRES,
+     String fechaDispensAdmon,
+     String codDiagnosticoPrincipal,
+     String codDiagnosticoRelacionado,
+     String tipoMedicamento,
+     String codTecnologiaSalud,
+     String nomTecnologiaSalud,
+     double concentracionMedicamento,
+     int unidadMedida,
+     String formaFarmaceutica,
+     int unidadMinDispensa,
+     double cantidadMedicamento,
+     int diasTratamiento,
+     String tipoDocumentoIdentificacion,
+     String numDocumentoIdentificacion,
+     double vrUnitMedicamento,
+     double vrServicio,
+     String conceptoRecaudo,
+     double valorPagoModerador,
+     String numFEVPagoModerador,
+     int consecutivo
+){}
@@ -0,0 +1,20 @@
+package com.example.validadorjson.dto;
+
+public record OtroServicio (
+     String codPrestador,
+     String numAutorizacion,
+     String idMIPRES,
+     String fechaSuministroTecnologia,
+     String tipoOS,
+     String codTecnologiaSalud,
+     String nomTecnologiaSalud,
+     double cantidadOS,
+     String tipoDocumentoIdentificacion,
+     String numDocumentoIdentificacion,
+     double vrUnitOS,
+     double vrServicio,
+     String conceptoRecaudo,
+     double valorPagoModerador,
+     String numFEVPagoModerador,
+     int consecutivo
+){}
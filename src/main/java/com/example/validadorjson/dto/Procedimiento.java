@@ -17,4 +17,4 @@ public record Procedimiento (
      String conceptoRecaudo,
      double valorPagoModerador,
      int consecutivo
-){}
+) implements FilaProcedimiento {}
@@ -0,0 +1,17 @@
+package com.example.validadorjson.dto;
+
+public record RecienNacido (
+     String codPrestador,
+     String tipoDocumentoIdentificacion,
+     String numDocumentoIdentificacion,
+     String fechaNacimiento,
+     int edadGestacional,
+     int numConsultasCPrenatal,
+     String codSexoBiologico,
+     double peso,
+     String codDiagnosticoPrincipal,
+     String condicionDestinoUsuarioEgreso,
+     String codDiagnosticoCausaMuerte,
+     String fechaEgreso,
+     int consecutivo
+){}
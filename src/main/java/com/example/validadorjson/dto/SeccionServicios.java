@@ -0,0 +1,96 @@
+package com.example.validadorjson.dto;
+
+import com.example.validadorjson.json.SeccionServiciosDeserializer;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Sección de servicios que ninguna regla usa todavía (urgencias, hospitalización, recién nacidos,
+ * medicamentos, otros servicios). Al deserializar la factura el arreglo se salta a nivel de tokens
+ * y solo se guarda dónde está en el JSON original; los objetos se crean la primera vez que alguien
+ * llama {@link #obtener()}. Mientras no se materialice, la sección retiene el arreglo de bytes
+ * del request (el mismo que ya retiene la factura durante la validación).
+ *
+ * Nunca es null: una sección ausente o null en el JSON queda como lista vacía.
+ *
+ * Una sección diferida no se valida al leer la factura: si sus elementos no tienen los tipos
+ * esperados, el error sale de {@link #obtener()}.
+ */
+@JsonDeserialize(using = SeccionServiciosDeserializer.class)
+public final class SeccionServicios<T> {
+
+    private static final SeccionServicios<?> VACIA = new SeccionServicios<>(List.of());
+
+    /** Parsea el arreglo cuando se pide. */
+    @FunctionalInterface
+    public interface Cargador<T> {
+        List<T> cargar() throws IOException;
+    }
+
+    private volatile List<T> lista;
+    private Cargador<T> cargador;
+    private final int bytesJson;
+
+    private SeccionServicios(List<T> lista) {
+        this.lista = lista;
+        this.bytesJson = 0;
+    }
+
+    private SeccionServicios(Cargador<T> cargador, int bytesJson) {
+        this.cargador = cargador;
+        this.bytesJson = bytesJson;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> SeccionServicios<T> vacia() {
+        return (SeccionServicios<T>) VACIA;
+    }
+
+    public static <T> SeccionServicios<T> de(List<T> lista) {
+        return lista == null || lista.isEmpty() ? vacia() : new SeccionServicios<>(lista);
+    }
+
+    public static <T> SeccionServicios<T> diferida(Cargador<T> cargador, int bytesJson) {
+        return new SeccionServicios<>(cargador, bytesJson);
+    }
+
+    /**
+     * Los elementos de la sección; la primera llamada sobre una sección diferida la parsea.
+     *
+     * @throws UncheckedIOException si el arreglo diferido no se puede convertir; la causa es la
+     *                              excepción de Jackson (JsonProcessingException si es el contenido)
+     */
+    @JsonValue
+    public List<T> obtener() {
+        List<T> l = lista;
+        if (l == null) {
+            synchronized (this) {
+                l = lista;
+                if (l == null) {
+                    try {
+                        l = cargador.cargar();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("No se pudo leer la sección de servicios: " + e.getMessage(), e);
+                    }
+                    lista = l;
+                    cargador = null; // ya no hace falta retener el JSON
+                }
+            }
+        }
+        return l;
+    }
+
+    /** true si ya hay objetos (sección ansiosa o diferida que alguien pidió). */
+    public boolean materializada() {
+        return lista != null;
+    }
+
+    /** Tamaño del arreglo en el JSON original (0 si no fue diferida). */
+    public int bytesJson() {
+        return bytesJson;
+    }
+}
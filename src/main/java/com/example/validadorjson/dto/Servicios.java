@@ -1,9 +1,27 @@
 package com.example.validadorjson.dto;
 
+import com.example.validadorjson.json.FilasServiciosDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 import java.util.List;
 
+/**
+ * consultas y procedimientos se deserializan siempre (las reglas PYP y Morb los recorren), con
+ * LectorFactura a columnas en vez de records; las demás secciones se saltan al parsear y se
+ * materializan solo si una regla las pide.
+ */
 public record Servicios(
-     List<Consulta> consultas,
-     List<Procedimiento> procedimientos
+     @JsonDeserialize(using = FilasServiciosDeserializer.class) List<Consulta> consultas,
+     @JsonDeserialize(using = FilasServiciosDeserializer.class) List<Procedimiento> procedimientos,
+     SeccionServicios<Urgencia> urgencias,
+     SeccionServicios<Hospitalizacion> hospitalizacion,
+     SeccionServicios<RecienNacido> recienNacidos,
+     SeccionServicios<Medicamento> medicamentos,
+     SeccionServicios<OtroServicio> otrosServicios
 
-){}
+){
+    public Servicios(List<Consulta> consultas, List<Procedimiento> procedimientos) {
+        this(consultas, procedimientos, SeccionServicios.vacia(), SeccionServicios.vacia(),
+                SeccionServicios.vacia(), SeccionServicios.vacia(), SeccionServicios.vacia());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.validadorjson.dto;
+
+public record Urgencia (
+     String codPrestador,
+     String fechaInicioAtencion,
+     String causaMotivoAtencion,
+     String codDiagnosticoPrincipal,
+     String codDiagnosticoPrincipalE,
+     String codDiagnosticoRelacionadoE1,
+     String codDiagnosticoRelacionadoE2,
+     String codDiagnosticoRelacionadoE3,
+     String condicionDestinoUsuarioEgreso,
+     String codDiagnosticoCausaMuerte,
+     String fechaEgreso,
+     int consecutivo
+){}
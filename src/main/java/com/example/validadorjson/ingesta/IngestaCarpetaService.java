@@ -0,0 +1,420 @@
+package com.example.validadorjson.ingesta;
+
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ingesta de facturas desde una carpeta compartida ("drop directory").
+ *
+ * Flujo de cada archivo *.json que aparece en la carpeta de entrada:
+ *   entrada/x.json --(move atómico)--> entrada/procesando/x.json
+ *   -> validación (PYP, Morb o ambos) en el pool de trabajadores
+ *   -> reportes x.json.pyp.txt / x.json.morb.txt (en resultados/ o junto al archivo)
+ *   -> entrada/procesados/x.json  ó  entrada/fallidos/x.json (+ x.json.error.txt)
+ *
+ * El move atómico a "procesando" es el que reclama el archivo: solo un hilo (o instancia
+ * que comparta la carpeta) lo gana, así que un archivo nunca se procesa dos veces.
+ * Si llega otro archivo con el mismo nombre mientras el primero sigue en "procesando", espera en la
+ * entrada y se reclama cuando el primero termina.
+ * Al reiniciar se recuperan los archivos que quedaron en "procesando".
+ *
+ * Cola acotada: con todos los trabajadores ocupados y la cola llena, el hilo vigilante espera a que
+ * haya cupo antes de encolar más (no valida él mismo).
+ *
+ * Los productores deben escribir con un nombre temporal (.tmp / .part / oculto) y renombrar
+ * a .json al terminar; esos temporales se ignoran.
+ */
+@Service
+@ConditionalOnProperty(prefix = "validador.ingesta", name = "habilitada", havingValue = "true")
+public class IngestaCarpetaService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestaCarpetaService.class);
+
+    private static final String SUFIJO_PYP = ".pyp.txt";
+    private static final String SUFIJO_MORB = ".morb.txt";
+    private static final String SUFIJO_ERROR = ".error.txt";
+    private static final Set<String> REGLAS_VALIDAS = Set.of("pyp", "morb", "ambos");
+
+    private final ValidadorServicePYP validadorServicePYP;
+    private final ValidadorServiceMorb validadorServiceMorb;
+    private final ObjectMapper objectMapper;
+
+    private final Path entrada;
+    private final Path procesando;
+    private final Path procesados;
+    private final Path fallidos;
+    private final Path resultados; // null -> reportes junto al archivo de entrada
+    private final String reglas;   // pyp | morb | ambos
+    private final FormatoReporte formato;
+    private final int hilos;
+    private final int capacidadCola;
+
+    // Nombres reclamados por esta instancia que siguen en "procesando"
+    private final Set<String> enCurso = ConcurrentHashMap.newKeySet();
+    // Cupos de trabajadores + cola; quien encola espera aquí cuando no hay
+    private Semaphore cupos;
+    private ThreadPoolExecutor trabajadores;
+    private WatchService watchService;
+    private Thread hiloVigilante;
+    private volatile boolean activo;
+
+    public IngestaCarpetaService(ValidadorServicePYP validadorServicePYP,
+                                 ValidadorServiceMorb validadorServiceMorb,
+                                 ObjectMapper objectMapper,
+                                 @Value("${validador.ingesta.directorio:ingesta}") String directorio,
+                                 @Value("${validador.ingesta.resultados:}") String resultados,
+                                 @Value("${validador.ingesta.reglas:ambos}") String reglas,
+                                 @Value("${validador.ingesta.formato:detallado}") String formato,
+                                 @Value("${validador.ingesta.hilos:0}") int hilos,
+                                 @Value("${validador.ingesta.capacidad-cola:256}") int capacidadCola) {
+        this.validadorServicePYP = validadorServicePYP;
+        this.validadorServiceMorb = validadorServiceMorb;
+        this.objectMapper = objectMapper;
+        this.entrada = Paths.get(directorio).toAbsolutePath().normalize();
+        this.procesando = entrada.resolve("procesando");
+        this.procesados = entrada.resolve("procesados");
+        this.fallidos = entrada.resolve("fallidos");
+        this.resultados = resultados.isBlank() ? null : Paths.get(resultados).toAbsolutePath().normalize();
+        this.reglas = reglas.trim().toLowerCase(Locale.ROOT);
+        this.formato = FormatoReporte.de(formato);
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.capacidadCola = capacidadCola;
+
+        if (!REGLAS_VALIDAS.contains(this.reglas)) {
+            throw new IllegalArgumentException("validador.ingesta.reglas debe ser pyp, morb o ambos. Actual: " + reglas);
+        }
+    }
+
+    /* --------------------------- Ciclo de vida --------------------------- */
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        Files.createDirectories(procesando);
+        Files.createDirectories(procesados);
+        Files.createDirectories(fallidos);
+        if (resultados != null) {
+            Files.createDirectories(resultados);
+        }
+
+        AtomicInteger contador = new AtomicInteger();
+        // La cola la acotan los cupos: el executor nunca rechaza
+        cupos = new Semaphore(hilos + capacidadCola);
+        trabajadores = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "ingesta-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        watchService = FileSystems.getDefault().newWatchService();
+        // un rename hacia la carpeta también llega como ENTRY_CREATE
+        entrada.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+
+        activo = true;
+        // El arranque no espera a los cupos: la recuperación y el primer escaneo van en el hilo vigilante
+        hiloVigilante = new Thread(this::vigilar, "ingesta-vigilante");
+        hiloVigilante.setDaemon(true);
+        hiloVigilante.start();
+
+        log.info("Ingesta de carpeta activa en {} (reglas={}, hilos={}, resultados={})",
+                entrada, reglas, hilos, resultados != null ? resultados : "junto al archivo");
+    }
+
+    @PreDestroy
+    public void detener() throws IOException, InterruptedException {
+        activo = false;
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (hiloVigilante != null) {
+            // puede estar esperando un cupo
+            hiloVigilante.interrupt();
+            hiloVigilante.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        if (trabajadores != null) {
+            trabajadores.shutdown();
+            // Lo que no termine queda en "procesando" y se recupera al siguiente arranque
+            trabajadores.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /* --------------------------- Vigilancia de la carpeta --------------------------- */
+
+    private void vigilar() {
+        try {
+            recuperarPendientes();
+            escanearEntrada();
+            while (activo) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> evento : key.pollEvents()) {
+                    if (evento.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // se perdieron eventos: volvemos a mirar toda la carpeta
+                        escanearEntrada();
+                        continue;
+                    }
+                    Path nombre = (Path) evento.context();
+                    encolar(entrada.resolve(nombre));
+                }
+                if (!key.reset()) {
+                    log.error("La carpeta de ingesta {} ya no es accesible; se detiene la vigilancia", entrada);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // detener()
+        } catch (IOException e) {
+            log.error("No se pudieron recuperar los archivos de {}: {}", procesando, e.getMessage());
+        }
+    }
+
+    /** Los archivos que llegaron mientras la aplicación estaba abajo no generan eventos. */
+    private void escanearEntrada() throws InterruptedException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(entrada, "*.json")) {
+            for (Path archivo : ds) {
+                encolar(archivo);
+            }
+        } catch (IOException e) {
+            log.error("No se pudo listar la carpeta de ingesta {}: {}", entrada, e.getMessage());
+        }
+    }
+
+    /**
+     * Archivos en "procesando" son de una ejecución anterior que no terminó.
+     * Si sus reportes ya quedaron escritos solo falta moverlos; si no, se validan de nuevo.
+     */
+    private void recuperarPendientes() throws IOException, InterruptedException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(procesando, "*.json")) {
+            for (Path reclamado : ds) {
+                if (reportesCompletos(reclamado)) {
+                    mover(reclamado, procesados);
+                } else {
+                    enCurso.add(reclamado.getFileName().toString());
+                    ejecutar(() -> procesarYSiguientes(reclamado));
+                }
+            }
+        }
+    }
+
+    private void encolar(Path archivo) throws InterruptedException {
+        if (!esCandidato(archivo)) return;
+        ejecutar(() -> {
+            Path reclamado = reclamar(archivo);
+            if (reclamado != null) {
+                procesarYSiguientes(reclamado);
+            }
+        });
+    }
+
+    /** Espera un cupo libre y entrega la tarea a los trabajadores; el cupo se libera al terminar la tarea. */
+    private void ejecutar(Runnable tarea) throws InterruptedException {
+        cupos.acquire();
+        try {
+            trabajadores.execute(() -> {
+                try {
+                    tarea.run();
+                } finally {
+                    cupos.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // detener() ya apagó el pool; el archivo sigue en la entrada para el siguiente arranque
+            cupos.release();
+        }
+    }
+
+    private boolean esCandidato(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        return nombre.toLowerCase(Locale.ROOT).endsWith(".json")
+                && !nombre.startsWith(".")
+                && Files.isRegularFile(archivo);
+    }
+
+    /**
+     * Reclama el archivo moviéndolo atómicamente a "procesando".
+     * Devuelve null si otro hilo/instancia lo reclamó primero o si ya hay uno en "procesando" con ese nombre:
+     * el move atómico reemplazaría a ese, así que el archivo se deja en la entrada y se vuelve a encolar
+     * cuando termina el que está en curso (si es de otra instancia, al siguiente escaneo completo).
+     * Entre la revisión y el move queda una ventana para otra instancia que comparta la carpeta;
+     * entre hilos de esta instancia no, porque el nombre se aparta antes en {@link #enCurso}.
+     */
+    private Path reclamar(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        if (!enCurso.add(nombre)) {
+            return null;
+        }
+        Path destino = procesando.resolve(nombre);
+        try {
+            if (Files.exists(destino, LinkOption.NOFOLLOW_LINKS)) {
+                enCurso.remove(nombre);
+                return null;
+            }
+            return Files.move(archivo, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException | FileAlreadyExistsException e) {
+            enCurso.remove(nombre);
+            return null;
+        } catch (IOException e) {
+            enCurso.remove(nombre);
+            log.warn("No se pudo reclamar {}: {}", archivo, e.getMessage());
+            return null;
+        }
+    }
+
+    /* --------------------------- Procesamiento --------------------------- */
+
+    /**
+     * Procesa el archivo reclamado y luego, en el mismo trabajador y con el mismo cupo, los que llegaron
+     * con ese nombre mientras tanto: un bucle y no recursión, así una racha de archivos con el mismo
+     * nombre no crece la pila ni ocupa más cupos de los que tomó la tarea.
+     */
+    private void procesarYSiguientes(Path reclamado) {
+        for (Path actual = reclamado; actual != null; actual = liberar(actual)) {
+            procesar(actual);
+        }
+    }
+
+    private void procesar(Path reclamado) {
+        long inicio = System.nanoTime();
+        try {
+            Factura factura = LectorFactura.leer(objectMapper, Files.readAllBytes(reclamado));
+
+            // Primero todas las validaciones; los reportes se publican solo si todas terminaron
+            Map<String, byte[]> reportes = new LinkedHashMap<>();
+            if (validaPyp()) {
+                reportes.put(SUFIJO_PYP, validadorServicePYP.validarFactura(factura, formato).getByteArray());
+            }
+            if (validaMorb()) {
+                reportes.put(SUFIJO_MORB, validadorServiceMorb.validarFactura(factura, formato).getByteArray());
+            }
+            publicarReportes(reclamado, reportes);
+
+            mover(reclamado, procesados);
+            log.info("Factura {} ({}) validada en {} ms", Optional.ofNullable(factura.numFactura()).orElse("sin_numfact"),
+                    reclamado.getFileName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        } catch (Exception e) {
+            log.warn("Falló la validación de {}: {}", reclamado.getFileName(), e.getMessage());
+            try {
+                escribirReporte(reclamado, fallidos, SUFIJO_ERROR,
+                        ("⚠️ No se pudo validar el archivo: " + e.getMessage() + System.lineSeparator())
+                                .getBytes(StandardCharsets.UTF_8));
+                mover(reclamado, fallidos);
+            } catch (IOException io) {
+                log.error("No se pudo mover {} a fallidos: {}", reclamado, io.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Suelta el nombre y reclama el archivo con ese nombre que haya llegado mientras tanto.
+     * Devuelve el archivo reclamado, o null si no hay ninguno.
+     */
+    private Path liberar(Path reclamado) {
+        String nombre = reclamado.getFileName().toString();
+        enCurso.remove(nombre);
+        Path enEspera = entrada.resolve(nombre);
+        return activo && esCandidato(enEspera) ? reclamar(enEspera) : null;
+    }
+
+    private boolean validaPyp() {
+        return "pyp".equals(reglas) || "ambos".equals(reglas);
+    }
+
+    private boolean validaMorb() {
+        return "morb".equals(reglas) || "ambos".equals(reglas);
+    }
+
+    /**
+     * Los reportes cuentan si existen y son posteriores al archivo reclamado (el move conserva su fecha de
+     * modificación): un reporte anterior es de otro archivo con el mismo nombre, procesado antes.
+     * Como {@link #publicarReportes} los publica juntos, que estén todos quiere decir que la validación terminó.
+     */
+    private boolean reportesCompletos(Path reclamado) throws IOException {
+        FileTime archivo = Files.getLastModifiedTime(reclamado);
+        return (!validaPyp() || reporteVigente(destinoReporte(reclamado, procesados, SUFIJO_PYP), archivo))
+                && (!validaMorb() || reporteVigente(destinoReporte(reclamado, procesados, SUFIJO_MORB), archivo));
+    }
+
+    private static boolean reporteVigente(Path reporte, FileTime archivo) throws IOException {
+        return Files.exists(reporte) && Files.getLastModifiedTime(reporte).compareTo(archivo) >= 0;
+    }
+
+    /**
+     * Escribe todos los reportes en temporales y solo entonces los renombra a su nombre final.
+     * Si algo falla se borran temporales y los ya renombrados: no queda un .pyp.txt sin su .morb.txt
+     * que la recuperación pudiera tomar por bueno.
+     */
+    private void publicarReportes(Path reclamado, Map<String, byte[]> reportes) throws IOException {
+        List<Path> temporales = new ArrayList<>();
+        List<Path> publicados = new ArrayList<>();
+        try {
+            for (Map.Entry<String, byte[]> e : reportes.entrySet()) {
+                Path temporal = temporal(destinoReporte(reclamado, procesados, e.getKey()));
+                temporales.add(temporal);
+                Files.write(temporal, e.getValue());
+            }
+            for (String sufijo : reportes.keySet()) {
+                Path destino = destinoReporte(reclamado, procesados, sufijo);
+                Files.move(temporal(destino), destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                publicados.add(destino);
+            }
+        } catch (IOException e) {
+            for (Path p : temporales) Files.deleteIfExists(p);
+            for (Path p : publicados) Files.deleteIfExists(p);
+            throw e;
+        }
+    }
+
+    /**
+     * Escribe primero en un temporal y luego renombra: si existe el reporte, está completo.
+     */
+    private void escribirReporte(Path reclamado, Path carpetaFinal, String sufijo, byte[] contenido) throws IOException {
+        Path destino = destinoReporte(reclamado, carpetaFinal, sufijo);
+        Path temporal = temporal(destino);
+        Files.write(temporal, contenido);
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path temporal(Path destino) {
+        return destino.resolveSibling("." + destino.getFileName() + ".tmp");
+    }
+
+    private Path destinoReporte(Path reclamado, Path carpetaFinal, String sufijo) {
+        Path carpeta = resultados != null ? resultados : carpetaFinal;
+        return carpeta.resolve(reclamado.getFileName() + sufijo);
+    }
+
+    private void mover(Path reclamado, Path carpeta) throws IOException {
+        Files.move(reclamado, carpeta.resolve(reclamado.getFileName()),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
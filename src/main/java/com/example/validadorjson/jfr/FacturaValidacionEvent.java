@@ -0,0 +1,74 @@
+package com.example.validadorjson.jfr;
+
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.dto.Servicios;
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.reporte.Reporte;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Validación completa de una factura (de la cabecera a la persistencia del reporte).
+ */
+@Name("validador.FacturaValidacion")
+@Label("Validación de factura")
+@Category({"Validador RIPS"})
+@Description("Validación completa de una factura por PYP o Morb")
+public class FacturaValidacionEvent extends Event {
+
+    // Se devuelve cuando el evento está deshabilitado: no se asigna nada por llamada
+    private static final FacturaValidacionEvent INACTIVO = new FacturaValidacionEvent();
+
+    @Label("Modo")
+    String modo;
+
+    @Label("Número de factura")
+    String numFactura;
+
+    @Label("Usuarios")
+    int usuarios;
+
+    @Label("Consultas + procedimientos")
+    int servicios;
+
+    @Label("Hallazgos")
+    int hallazgos;
+
+    private transient int hallazgosAlIniciar;
+
+    public static FacturaValidacionEvent iniciar(Reporte reporte) {
+        if (!INACTIVO.isEnabled()) return INACTIVO;
+        FacturaValidacionEvent e = new FacturaValidacionEvent();
+        e.hallazgosAlIniciar = reporte.hallazgos();
+        e.begin();
+        return e;
+    }
+
+    public void terminar(String modo, String numFactura, Factura factura, Reporte reporte) {
+        if (this == INACTIVO) return;
+        end();
+        if (shouldCommit()) {
+            this.modo = modo;
+            this.numFactura = numFactura;
+            this.usuarios = factura.usuarios() != null ? factura.usuarios().size() : 0;
+            this.servicios = totalServicios(factura);
+            this.hallazgos = reporte.hallazgos() - hallazgosAlIniciar;
+            commit();
+        }
+    }
+
+    private static int totalServicios(Factura factura) {
+        int total = 0;
+        if (factura.usuarios() == null) return total;
+        for (Usuario u : factura.usuarios()) {
+            Servicios s = u != null ? u.servicios() : null;
+            if (s == null) continue;
+            if (s.consultas() != null) total += s.consultas().size();
+            if (s.procedimientos() != null) total += s.procedimientos().size();
+        }
+        return total;
+    }
+}
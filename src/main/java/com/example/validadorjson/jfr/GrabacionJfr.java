@@ -0,0 +1,71 @@
+package com.example.validadorjson.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Grabación JFR continua desde la propia aplicación: configuración "default" del JDK más
+ * los eventos del validador según jfr/validador.jfc. Se vuelca al archivo configurado al
+ * apagar; mientras tanto se puede volcar con jcmd (JFR.dump name=validador).
+ *
+ * Sin esta propiedad los eventos no cuestan nada: nadie los habilita y no se registran.
+ */
+@Component
+@ConditionalOnProperty(prefix = "validador.jfr", name = "habilitado", havingValue = "true")
+public class GrabacionJfr {
+
+    private static final Logger log = LoggerFactory.getLogger(GrabacionJfr.class);
+
+    static final String PERFIL = "jfr/validador.jfc";
+
+    private final Recording grabacion;
+
+    public GrabacionJfr(@Value("${validador.jfr.archivo:validador.jfr}") String archivo,
+                        @Value("${validador.jfr.edad-maxima-minutos:30}") long edadMaximaMinutos)
+            throws IOException, ParseException {
+        Map<String, String> configuracion = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        configuracion.putAll(perfilValidador().getSettings());
+
+        this.grabacion = new Recording(configuracion);
+        grabacion.setName("validador");
+        grabacion.setToDisk(true);
+        grabacion.setMaxAge(Duration.ofMinutes(edadMaximaMinutos));
+        grabacion.setDestination(Path.of(archivo));
+        grabacion.start();
+        log.info("Grabación JFR 'validador' iniciada; se vuelca en {}", Path.of(archivo).toAbsolutePath());
+    }
+
+    private static Configuration perfilValidador() throws IOException, ParseException {
+        try (Reader r = new InputStreamReader(
+                GrabacionJfr.class.getClassLoader().getResourceAsStream(PERFIL), StandardCharsets.UTF_8)) {
+            return Configuration.create(r);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        // con destino configurado, stop() escribe el archivo; si la JVM ya está apagándose,
+        // el propio hook de JFR pudo haberla detenido y volcado antes
+        if (grabacion.getState() == RecordingState.RUNNING) {
+            grabacion.stop();
+        }
+        grabacion.close();
+    }
+}
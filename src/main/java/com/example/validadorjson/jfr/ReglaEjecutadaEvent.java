@@ -0,0 +1,84 @@
+package com.example.validadorjson.jfr;
+
+import com.example.validadorjson.reporte.Reporte;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Una ejecución de un método de regla (validarDocumentoSegunEdad, validarDuplicadosProcedimientos, ...)
+ * o la evaluación de una regla de un PlanReglas sobre un servicio.
+ */
+@Name("validador.ReglaEjecutada")
+@Label("Regla ejecutada")
+@Category({"Validador RIPS"})
+@Description("Ejecución de un método de regla sobre un usuario o un servicio")
+public class ReglaEjecutadaEvent extends Event {
+
+    // Se devuelve cuando el evento está deshabilitado: no se asigna nada por llamada
+    private static final ReglaEjecutadaEvent INACTIVO = new ReglaEjecutadaEvent();
+
+    @Label("Modo")
+    String modo;
+
+    @Label("Regla")
+    String regla;
+
+    @Label("Número de factura")
+    String numFactura;
+
+    @Label("Consecutivo usuario")
+    int usuarioConsecutivo;
+
+    @Label("Consecutivo servicio")
+    @Description("Consecutivo de la consulta/procedimiento, o 0 si la regla es por usuario")
+    int servicioConsecutivo;
+
+    @Label("Hallazgos")
+    int hallazgos;
+
+    private transient int hallazgosAlIniciar;
+
+    public static ReglaEjecutadaEvent iniciar(Reporte reporte) {
+        if (!INACTIVO.isEnabled()) return INACTIVO;
+        ReglaEjecutadaEvent e = new ReglaEjecutadaEvent();
+        e.hallazgosAlIniciar = reporte.hallazgos();
+        e.begin();
+        return e;
+    }
+
+    public void terminar(String modo, String regla, String numFactura, int usuarioConsecutivo,
+                         int servicioConsecutivo, Reporte reporte) {
+        if (this == INACTIVO) return;
+        end();
+        if (shouldCommit()) {
+            this.modo = modo;
+            this.regla = regla;
+            this.numFactura = numFactura;
+            this.usuarioConsecutivo = usuarioConsecutivo;
+            this.servicioConsecutivo = servicioConsecutivo;
+            this.hallazgos = reporte.hallazgos() - hallazgosAlIniciar;
+            commit();
+        }
+    }
+
+    /**
+     * Para reglas que deciden el hallazgo sin escribir todavía en el reporte.
+     */
+    public void terminar(String modo, String regla, String numFactura, int usuarioConsecutivo,
+                         int servicioConsecutivo, int hallazgos) {
+        if (this == INACTIVO) return;
+        end();
+        if (shouldCommit()) {
+            this.modo = modo;
+            this.regla = regla;
+            this.numFactura = numFactura;
+            this.usuarioConsecutivo = usuarioConsecutivo;
+            this.servicioConsecutivo = servicioConsecutivo;
+            this.hallazgos = hallazgos;
+            commit();
+        }
+    }
+}
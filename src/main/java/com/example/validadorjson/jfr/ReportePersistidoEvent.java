@@ -0,0 +1,57 @@
+package com.example.validadorjson.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Escritura del reporte en el ReportStore.
+ */
+@Name("validador.ReportePersistido")
+@Label("Reporte persistido")
+@Category({"Validador RIPS"})
+@Description("Escritura del reporte de una factura en el ReportStore")
+public class ReportePersistidoEvent extends Event {
+
+    // Se devuelve cuando el evento está deshabilitado: no se asigna nada por llamada
+    private static final ReportePersistidoEvent INACTIVO = new ReportePersistidoEvent();
+
+    @Label("Modo")
+    String modo;
+
+    @Label("Número de factura")
+    String numFactura;
+
+    @Label("Clave")
+    String clave;
+
+    @Label("Tamaño")
+    @DataAmount
+    long bytes;
+
+    @Label("Éxito")
+    boolean exito;
+
+    public static ReportePersistidoEvent iniciar() {
+        if (!INACTIVO.isEnabled()) return INACTIVO;
+        ReportePersistidoEvent e = new ReportePersistidoEvent();
+        e.begin();
+        return e;
+    }
+
+    public void terminar(String modo, String numFactura, String clave, long bytes, boolean exito) {
+        if (this == INACTIVO) return;
+        end();
+        if (shouldCommit()) {
+            this.modo = modo;
+            this.numFactura = numFactura;
+            this.clave = clave;
+            this.bytes = bytes;
+            this.exito = exito;
+            commit();
+        }
+    }
+}
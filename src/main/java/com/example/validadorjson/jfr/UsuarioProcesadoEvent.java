@@ -0,0 +1,68 @@
+package com.example.validadorjson.jfr;
+
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.reporte.Reporte;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Un usuario dentro de procesarUsuario: todas sus reglas y servicios.
+ */
+@Name("validador.UsuarioProcesado")
+@Label("Usuario procesado")
+@Category({"Validador RIPS"})
+@Description("Procesamiento de un usuario (procesarUsuario) con sus consultas y procedimientos")
+public class UsuarioProcesadoEvent extends Event {
+
+    // Se devuelve cuando el evento está deshabilitado: no se asigna nada por llamada
+    private static final UsuarioProcesadoEvent INACTIVO = new UsuarioProcesadoEvent();
+
+    @Label("Modo")
+    String modo;
+
+    @Label("Número de factura")
+    String numFactura;
+
+    @Label("Consecutivo usuario")
+    int usuarioConsecutivo;
+
+    @Label("Consultas")
+    int consultas;
+
+    @Label("Procedimientos")
+    int procedimientos;
+
+    @Label("Hallazgos")
+    int hallazgos;
+
+    private transient int hallazgosAlIniciar;
+
+    public static UsuarioProcesadoEvent iniciar(Reporte reporte) {
+        if (!INACTIVO.isEnabled()) return INACTIVO;
+        UsuarioProcesadoEvent e = new UsuarioProcesadoEvent();
+        e.hallazgosAlIniciar = reporte.hallazgos();
+        e.begin();
+        return e;
+    }
+
+    public void terminar(String modo, String numFactura, Usuario usuario, Reporte reporte) {
+        if (this == INACTIVO) return;
+        end();
+        if (shouldCommit()) {
+            this.modo = modo;
+            this.numFactura = numFactura;
+            if (usuario != null) {
+                this.usuarioConsecutivo = usuario.consecutivo();
+                if (usuario.servicios() != null) {
+                    this.consultas = usuario.servicios().consultas() != null ? usuario.servicios().consultas().size() : 0;
+                    this.procedimientos = usuario.servicios().procedimientos() != null ? usuario.servicios().procedimientos().size() : 0;
+                }
+            }
+            this.hallazgos = reporte.hallazgos() - hallazgosAlIniciar;
+            commit();
+        }
+    }
+}
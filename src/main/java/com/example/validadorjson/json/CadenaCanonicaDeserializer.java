@@ -0,0 +1,70 @@
+package com.example.validadorjson.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Deserializador de String que canonicaliza los campos cortos y de baja cardinalidad
+ * de los records de {@code com.example.validadorjson.dto} a través de {@link InternadorCadenas}.
+ *
+ * Se registra para todo String, pero al contextualizarse solo se queda en los campos
+ * listados de los DTO; para cualquier otra propiedad devuelve el deserializador estándar
+ * de Jackson, así que no cambia nada fuera de las facturas.
+ */
+public class CadenaCanonicaDeserializer extends StdScalarDeserializer<String> implements ContextualDeserializer {
+
+    static final String PAQUETE_DTO = "com.example.validadorjson.dto";
+
+    /** Campos con pocos valores distintos que se repiten en miles de filas. */
+    static final Set<String> CAMPOS_CANONICOS = Set.of(
+            "numDocumentoIdObligado", "tipoNota",
+            "tipoDocumentoIdentificacion", "tipoUsuario", "codSexo",
+            "codPaisResidencia", "codMunicipioResidencia", "codZonaTerritorialResidencia",
+            "incapacidad", "codPaisOrigen",
+            "codPrestador", "codConsulta", "codProcedimiento", "viaIngresoServicioSalud",
+            "modalidadGrupoServicioTecSal", "grupoServicios", "finalidadTecnologiaSalud",
+            "causaMotivoAtencion", "codDiagnosticoPrincipal", "codDiagnosticoRelacionado1",
+            "codDiagnosticoRelacionado2", "tipoDiagnosticoPrincipal", "conceptoRecaudo",
+            "codDiagnosticoPrincipalE", "codDiagnosticoRelacionadoE1", "codDiagnosticoRelacionadoE2",
+            "codDiagnosticoRelacionadoE3", "codComplicacion", "condicionDestinoUsuarioEgreso",
+            "codDiagnosticoCausaMuerte", "codDiagnosticoRelacionado", "codSexoBiologico",
+            "tipoMedicamento", "tipoOS", "formaFarmaceutica"
+    );
+
+    private final InternadorCadenas internador;
+
+    public CadenaCanonicaDeserializer(InternadorCadenas internador) {
+        super(String.class);
+        this.internador = internador;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) {
+        if (property != null
+                && property.getMember() != null
+                && PAQUETE_DTO.equals(property.getMember().getDeclaringClass().getPackageName())
+                && CAMPOS_CANONICOS.contains(property.getName())) {
+            return this;
+        }
+        return StringDeserializer.instance;
+    }
+
+    @Override
+    public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_STRING)) {
+            // sin crear String si el valor ya está en la tabla
+            return internador.canonica(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        }
+        // números, null, etc.: mismas conversiones que Jackson por defecto
+        return internador.canonica(StringDeserializer.instance.deserialize(p, ctxt));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.validadorjson.json;
+
+import com.example.validadorjson.columnar.Columnas;
+import com.example.validadorjson.columnar.LecturaColumnar;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Deserializa consultas y procedimientos directo a {@link Columnas}, desde los tokens y sin crear
+ * un record por servicio: los textos van al diccionario de la factura buscando sobre el buffer del
+ * parser, los números quedan primitivos. Devuelve la lista del usuario como rango de esas columnas.
+ *
+ * Solo si el ObjectReader trae el atributo {@link #COLUMNAS} (ver {@link LectorFactura}); sin él se
+ * leen records como siempre. Las conversiones que no son texto o número directo (número en un campo
+ * de texto, texto en uno numérico, null en un int...) las hace Jackson igual que para el record, y
+ * un campo desconocido sigue FAIL_ON_UNKNOWN_PROPERTIES. Lo que cambia es el mensaje de un error de
+ * tipo: no trae la ruta del elemento dentro de la factura.
+ */
+public class FilasServiciosDeserializer extends StdDeserializer<List<?>> implements ContextualDeserializer {
+
+    /** Atributo del ObjectReader con la {@link LecturaColumnar} de esta lectura. */
+    public static final String COLUMNAS = "validador.json.columnas";
+
+    private final Class<?> elemento;
+    // Deserializador estándar de la lista, para cuando no se lee a columnas
+    private final JsonDeserializer<Object> registros;
+
+    public FilasServiciosDeserializer() {
+        this(null, null);
+    }
+
+    private FilasServiciosDeserializer(Class<?> elemento, JsonDeserializer<Object> registros) {
+        super(List.class);
+        this.elemento = elemento;
+        this.registros = registros;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) throws JsonMappingException {
+        JavaType tipo = property != null ? property.getType() : ctxt.getContextualType();
+        JavaType elemento = tipo == null ? null : tipo.containedType(0);
+        if (elemento == null) {
+            elemento = ctxt.constructType(Object.class);
+        }
+        JavaType lista = ctxt.getTypeFactory().constructCollectionType(List.class, elemento);
+        return new FilasServiciosDeserializer(elemento.getRawClass(), ctxt.findContextualValueDeserializer(lista, property));
+    }
+
+    @Override
+    public List<?> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.START_ARRAY) && ctxt.getAttribute(COLUMNAS) instanceof LecturaColumnar lectura) {
+            Columnas columnas = lectura.columnas(elemento);
+            if (columnas != null) {
+                int desde = columnas.filas();
+                for (JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken()) {
+                    if (t == JsonToken.VALUE_NULL) {
+                        columnas.agregarNula();
+                    } else if (t == JsonToken.START_OBJECT) {
+                        leerFila(p, ctxt, columnas);
+                    } else {
+                        return (List<?>) ctxt.handleUnexpectedToken(elemento, p);
+                    }
+                }
+                return lectura.filas(columnas, desde, columnas.filas());
+            }
+        }
+        return (List<?>) registros.deserialize(p, ctxt);
+    }
+
+    private void leerFila(JsonParser p, DeserializationContext ctxt, Columnas columnas) throws IOException {
+        int fila = columnas.agregar();
+        int posicion = 0;
+        for (String nombre = p.nextFieldName(); nombre != null; nombre = p.nextFieldName()) {
+            JsonToken t = p.nextToken();
+            int campo = columnas.campo(nombre, posicion++);
+            if (campo >= 0) {
+                if (t == JsonToken.VALUE_STRING) {
+                    columnas.texto(fila, campo, p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+                } else if (t == JsonToken.VALUE_NULL) {
+                    columnas.texto(fila, campo, null);
+                } else {
+                    columnas.texto(fila, campo, StringDeserializer.instance.deserialize(p, ctxt));
+                }
+            } else if (campo == Columnas.COD_SERVICIO || campo == Columnas.CONSECUTIVO) {
+                columnas.entero(fila, campo, t == JsonToken.VALUE_NUMBER_INT ? p.getIntValue() : ctxt.readValue(p, Integer.TYPE));
+            } else if (campo == Columnas.VR_SERVICIO || campo == Columnas.VALOR_PAGO_MODERADOR) {
+                columnas.decimal(fila, campo, t == JsonToken.VALUE_NUMBER_FLOAT || t == JsonToken.VALUE_NUMBER_INT
+                        ? p.getDoubleValue() : ctxt.readValue(p, Double.TYPE));
+            } else {
+                ctxt.handleUnknownProperty(p, this, elemento, nombre);
+            }
+        }
+    }
+}
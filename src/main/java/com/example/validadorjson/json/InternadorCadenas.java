@@ -0,0 +1,93 @@
+package com.example.validadorjson.json;
+
+/**
+ * Tabla global y acotada de cadenas canónicas para valores cortos que se repiten mucho
+ * en las facturas (prestador, finalidad, concepto de recaudo, diagnósticos...).
+ *
+ * Se busca directamente sobre el buffer de caracteres del parser, así que un acierto
+ * no crea ningún String. La tabla es de direccionamiento abierto sin locks: las lecturas y
+ * escrituras concurrentes son benignas porque String es inmutable (campos final) y en el
+ * peor caso se pierde una inserción o se crea una copia más.
+ *
+ * Cuando los slots de una clave están ocupados se reemplaza el primero, así la tabla
+ * nunca crece más allá de su capacidad y se adapta a los valores más frecuentes.
+ */
+public final class InternadorCadenas {
+
+    private static final int MAX_SONDEOS = 4;
+
+    private final String[] tabla;
+    private final int mascara;
+    private final int longitudMaxima;
+
+    public InternadorCadenas(int capacidad, int longitudMaxima) {
+        int tamano = Integer.highestOneBit(Math.max(16, capacidad - 1)) << 1;
+        this.tabla = new String[tamano];
+        this.mascara = tamano - 1;
+        this.longitudMaxima = longitudMaxima;
+    }
+
+    /**
+     * Devuelve la instancia canónica del texto {@code buf[offset, offset + longitud)}.
+     */
+    public String canonica(char[] buf, int offset, int longitud) {
+        if (longitud > longitudMaxima) {
+            return new String(buf, offset, longitud);
+        }
+        int h = 0;
+        for (int i = 0; i < longitud; i++) {
+            h = 31 * h + buf[offset + i];
+        }
+        int inicio = dispersar(h) & mascara;
+        int slot = inicio;
+        for (int sondeo = 0; sondeo < MAX_SONDEOS; sondeo++) {
+            String s = tabla[slot];
+            if (s == null) {
+                String nueva = new String(buf, offset, longitud);
+                tabla[slot] = nueva;
+                return nueva;
+            }
+            if (s.hashCode() == h && iguales(s, buf, offset, longitud)) {
+                return s;
+            }
+            slot = (slot + 1) & mascara;
+        }
+        String nueva = new String(buf, offset, longitud);
+        tabla[inicio] = nueva;
+        return nueva;
+    }
+
+    public String canonica(String valor) {
+        if (valor == null || valor.length() > longitudMaxima) {
+            return valor;
+        }
+        int h = valor.hashCode();
+        int inicio = dispersar(h) & mascara;
+        int slot = inicio;
+        for (int sondeo = 0; sondeo < MAX_SONDEOS; sondeo++) {
+            String s = tabla[slot];
+            if (s == null) {
+                tabla[slot] = valor;
+                return valor;
+            }
+            if (s.hashCode() == h && s.equals(valor)) {
+                return s;
+            }
+            slot = (slot + 1) & mascara;
+        }
+        tabla[inicio] = valor;
+        return valor;
+    }
+
+    private static boolean iguales(String s, char[] buf, int offset, int longitud) {
+        if (s.length() != longitud) return false;
+        for (int i = 0; i < longitud; i++) {
+            if (s.charAt(i) != buf[offset + i]) return false;
+        }
+        return true;
+    }
+
+    private static int dispersar(int h) {
+        return h ^ (h >>> 16);
+    }
+}
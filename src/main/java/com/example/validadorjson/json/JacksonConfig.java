@@ -0,0 +1,25 @@
+package com.example.validadorjson.json;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Spring Boot registra en el ObjectMapper cualquier bean Module, así que tanto el controlador
+     * como la ingesta por carpeta deserializan las facturas con cadenas canónicas.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "validador.json.canonicalizar", name = "habilitado", havingValue = "true", matchIfMissing = true)
+    public Module cadenasCanonicasModule(@Value("${validador.json.canonicalizar.capacidad:8192}") int capacidad,
+                                         @Value("${validador.json.canonicalizar.longitud-maxima:32}") int longitudMaxima) {
+        SimpleModule module = new SimpleModule("cadenas-canonicas-dto");
+        module.addDeserializer(String.class, new CadenaCanonicaDeserializer(new InternadorCadenas(capacidad, longitudMaxima)));
+        return module;
+    }
+}
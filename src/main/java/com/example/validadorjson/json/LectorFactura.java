@@ -0,0 +1,32 @@
+package com.example.validadorjson.json;
+
+import com.example.validadorjson.columnar.LecturaColumnar;
+import com.example.validadorjson.dto.Factura;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Lee una factura pasando el arreglo de bytes como atributo, para que las secciones de servicios
+ * que ninguna regla usa se salten a nivel de tokens y se parseen solo si alguien las pide.
+ *
+ * Al saltarlas solo se revisa que el JSON esté bien formado, no los tipos: un
+ * {@code "consecutivo":"abc"} en medicamentos no falla aquí (y el request da 200), mientras que
+ * {@code ObjectMapper.readValue} sí falla. El error aparece cuando la sección se materializa
+ * (ver {@link com.example.validadorjson.dto.SeccionServicios#obtener()}).
+ */
+public final class LectorFactura {
+
+    private LectorFactura() {
+    }
+
+    public static Factura leer(ObjectMapper mapper, byte[] json) throws IOException {
+        LecturaColumnar columnas = new LecturaColumnar(json.length);
+        Factura factura = mapper.readerFor(Factura.class)
+                .withAttribute(SeccionServiciosDeserializer.FUENTE, json)
+                .withAttribute(FilasServiciosDeserializer.COLUMNAS, columnas)
+                .readValue(json);
+        columnas.cerrar();
+        return factura;
+    }
+}
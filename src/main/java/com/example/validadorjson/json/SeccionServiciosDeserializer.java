@@ -0,0 +1,91 @@
+package com.example.validadorjson.json;
+
+import com.example.validadorjson.dto.SeccionServicios;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Deserializa una {@link SeccionServicios} sin construir sus elementos: anota el rango de bytes
+ * del arreglo, lo salta con {@link JsonParser#skipChildren()} (solo tokeniza, no crea objetos ni
+ * cadenas) y deja un cargador que parsea ese rango la primera vez que se pide.
+ *
+ * Para poder diferir hace falta el arreglo de bytes original, que llega como atributo
+ * {@link #FUENTE} del ObjectReader (ver {@link LectorFactura}). Sin él, o si el parser no trae
+ * posiciones en bytes (entrada de texto, TokenBuffer), la sección se parsea en el momento.
+ */
+public class SeccionServiciosDeserializer extends StdDeserializer<SeccionServicios<?>> implements ContextualDeserializer {
+
+    /** Atributo del ObjectReader con el byte[] que se está leyendo. */
+    public static final String FUENTE = "validador.json.fuente";
+
+    private final JavaType tipoLista;
+
+    public SeccionServiciosDeserializer() {
+        this(null);
+    }
+
+    private SeccionServiciosDeserializer(JavaType tipoLista) {
+        super(SeccionServicios.class);
+        this.tipoLista = tipoLista;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) {
+        JavaType tipo = property != null ? property.getType() : ctxt.getContextualType();
+        JavaType elemento = tipo == null ? null : tipo.containedType(0);
+        if (elemento == null) {
+            elemento = ctxt.constructType(Object.class);
+        }
+        return new SeccionServiciosDeserializer(ctxt.getTypeFactory().constructCollectionType(List.class, elemento));
+    }
+
+    @Override
+    public SeccionServicios<?> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.START_ARRAY)
+                && ctxt.getAttribute(FUENTE) instanceof byte[] fuente
+                && p.getCodec() != null) {
+            long inicio = p.currentTokenLocation().getByteOffset();
+            if (inicio >= 0) {
+                p.skipChildren();
+                long fin = p.currentLocation().getByteOffset();
+                if (fin > inicio && fin <= fuente.length) {
+                    return diferida(p.getCodec(), fuente, (int) inicio, (int) (fin - inicio));
+                }
+                throw ctxt.instantiationException(SeccionServicios.class,
+                        "rango de bytes inválido para la sección: " + inicio + ".." + fin);
+            }
+        }
+        List<?> lista = ctxt.readValue(p, tipoLista);
+        return SeccionServicios.de(lista);
+    }
+
+    private SeccionServicios<?> diferida(ObjectCodec codec, byte[] fuente, int inicio, int longitud) {
+        JavaType tipo = tipoLista;
+        return SeccionServicios.diferida(() -> {
+            try (JsonParser parser = codec.getFactory().createParser(fuente, inicio, longitud)) {
+                List<Object> lista = codec.readValue(parser, tipo);
+                return lista == null ? List.of() : lista;
+            }
+        }, longitud);
+    }
+
+    @Override
+    public SeccionServicios<?> getNullValue(DeserializationContext ctxt) {
+        return SeccionServicios.vacia();
+    }
+
+    @Override
+    public Object getAbsentValue(DeserializationContext ctxt) {
+        return SeccionServicios.vacia();
+    }
+}
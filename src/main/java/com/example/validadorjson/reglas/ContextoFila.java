@@ -0,0 +1,265 @@
+package com.example.validadorjson.reglas;
+
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.reporte.Reporte;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Estado de un {@link PlanReglas} mientras recorre los servicios de un usuario: la fila actual
+ * y las {@link Entrada entradas} ya calculadas. Las fechas se leen con {@link Fechas}: la de nacimiento
+ * una vez por usuario; la de atención una vez por fila (y se reutiliza si la fila siguiente trae el mismo texto).
+ *
+ * Un error al parsear queda guardado y cada regla que pida la fecha ve la misma excepción,
+ * así el mensaje del reporte es el mismo que si cada una la hubiera parseado.
+ */
+public final class ContextoFila<S> {
+
+    final PlanReglas<S> plan;
+    final String numFactura;
+    private final Usuario usuario;
+    private final String pacienteDocumento;
+    private Set<String> claves;
+
+    // Por usuario
+    private boolean nacimientoCalculado;
+    private LocalDate fechaNacimiento;
+    private RuntimeException errorNacimiento;
+
+    // Por fila
+    private S servicio;
+    private int consecutivo;
+    private String codPrestador;
+    private String fechaAtencion;
+    private String diagnosticoPrincipal;
+
+    private boolean atencionCalculada;
+    private String textoAtencionCalculada;
+    private LocalDate fechaAtencionParseada;
+    private RuntimeException errorAtencion;
+    private String diaAtencion;
+    private String diagnostico;
+
+    // Lo que la condición de cada regla guardó para su reporte (índice declarado); PlanReglas lo
+    // limpia antes de evaluarla y fija en regla cuál se está evaluando o reportando
+    final Object[] resultados;
+    int regla;
+
+    // Contadores por regla (índice declarado); se suman al plan en terminar()
+    final long[] evaluaciones;
+    final long[] hallazgos;
+    final long[] omitidas;
+    final long[] nanos;
+    final long[] muestras;
+    int filas;
+
+    ContextoFila(PlanReglas<S> plan, String numFactura, Usuario usuario) {
+        this.plan = plan;
+        this.numFactura = numFactura;
+        this.usuario = usuario;
+        this.pacienteDocumento = Optional.ofNullable(usuario.numDocumentoIdentificacion())
+                .orElse("ND-" + usuario.consecutivo());
+        int n = plan.tamano();
+        this.resultados = new Object[n];
+        this.evaluaciones = new long[n];
+        this.hallazgos = new long[n];
+        this.omitidas = new long[n];
+        this.nanos = new long[n];
+        this.muestras = new long[n];
+    }
+
+    /**
+     * Pasa a la fila siguiente.
+     *
+     * @param fechaAtencion fechaInicioAtencion tal como la usa el servicio (normalmente "" si viene null)
+     */
+    public ContextoFila<S> fila(S servicio, int consecutivo, String codPrestador,
+                                String fechaAtencion, String diagnosticoPrincipal) {
+        this.servicio = servicio;
+        this.consecutivo = consecutivo;
+        this.codPrestador = codPrestador;
+        this.fechaAtencion = fechaAtencion;
+        this.diagnosticoPrincipal = diagnosticoPrincipal;
+        if (atencionCalculada && !Objects.equals(fechaAtencion, textoAtencionCalculada)) {
+            atencionCalculada = false;
+        }
+        this.diaAtencion = null;
+        this.diagnostico = null;
+        return this;
+    }
+
+    /**
+     * Igual, con la fecha de atención ya leída con {@link Fechas#atencion} (p. ej. una vez por texto
+     * distinto en las columnas de la factura). null: se parsea fechaAtencion cuando haga falta.
+     */
+    public ContextoFila<S> fila(S servicio, int consecutivo, String codPrestador,
+                                String fechaAtencion, LocalDate atencion, String diagnosticoPrincipal) {
+        fila(servicio, consecutivo, codPrestador, fechaAtencion, diagnosticoPrincipal);
+        if (atencion != null) {
+            fechaAtencionParseada = atencion;
+            errorAtencion = null;
+            textoAtencionCalculada = fechaAtencion;
+            atencionCalculada = true;
+        }
+        return this;
+    }
+
+    /** Evalúa el plan sobre la fila actual y escribe los hallazgos en el reporte. */
+    public void ejecutar(Reporte errores) {
+        plan.ejecutar(this, errores);
+    }
+
+    /** Suma los contadores de este usuario a las estadísticas del plan. */
+    public void terminar() {
+        plan.acumular(this);
+    }
+
+    /* --------------------------- Datos de la fila --------------------------- */
+
+    public S servicio() {
+        return servicio;
+    }
+
+    public Usuario usuario() {
+        return usuario;
+    }
+
+    /** Nombre del plan ("consultas", "procedimientos"...), para agrupar hallazgos por sección. */
+    public String seccion() {
+        return plan.nombre();
+    }
+
+    public int consecutivoUsuario() {
+        return usuario.consecutivo();
+    }
+
+    public String pacienteDocumento() {
+        return pacienteDocumento;
+    }
+
+    public int consecutivo() {
+        return consecutivo;
+    }
+
+    public String codPrestador() {
+        return codPrestador;
+    }
+
+    public String fechaAtencion() {
+        return fechaAtencion;
+    }
+
+    /** Set de claves que una regla puede usar para detectar repetidos dentro del usuario. */
+    public Set<String> claves() {
+        if (claves == null) claves = new HashSet<>();
+        return claves;
+    }
+
+    /**
+     * Guarda lo que calculó la condición de la regla en curso (p. ej. el texto del hallazgo) para que
+     * su reporte lo use sin volver a calcularlo. Vale solo para esta fila.
+     */
+    public void guardarResultado(Object resultado) {
+        resultados[regla] = resultado;
+    }
+
+    /** Lo que guardó la condición de la regla en curso en esta fila, o null. */
+    @SuppressWarnings("unchecked")
+    public <T> T resultado() {
+        return (T) resultados[regla];
+    }
+
+    /* --------------------------- Entradas compartidas --------------------------- */
+
+    /** {@link Entrada#DIA_ATENCION}; "" si la fila no trae fecha. */
+    public String diaAtencion() {
+        if (diaAtencion == null) {
+            String f = fechaAtencion == null ? "" : fechaAtencion;
+            diaAtencion = f.length() >= 10 ? f.substring(0, 10) : f;
+        }
+        return diaAtencion;
+    }
+
+    /** {@link Entrada#TIPO_DOCUMENTO} */
+    public String tipoDocumento() {
+        return Optional.ofNullable(usuario.tipoDocumentoIdentificacion()).orElse("");
+    }
+
+    /** {@link Entrada#DIAGNOSTICO} */
+    public String diagnostico() {
+        if (diagnostico == null) {
+            diagnostico = Optional.ofNullable(diagnosticoPrincipal).orElse("").trim().toUpperCase(Locale.ROOT);
+        }
+        return diagnostico;
+    }
+
+    /**
+     * Error al parsear fecha de nacimiento (primero) o de atención, o null si ambas son válidas.
+     * Cualquier otra excepción (p. ej. fechaNacimiento null) se propaga como al parsear directamente.
+     */
+    public DateTimeParseException errorFechas() {
+        calcularNacimiento();
+        if (errorNacimiento != null) return relanzarSiNoEsDeFormato(errorNacimiento);
+        calcularAtencion();
+        if (errorAtencion != null) return relanzarSiNoEsDeFormato(errorAtencion);
+        return null;
+    }
+
+    /** {@link Entrada#EDAD}; solo si {@link #errorFechas()} es null. */
+    public int edad() {
+        return Period.between(fechaNacimiento(), fechaAtencionParseada()).getYears();
+    }
+
+    /** {@link Entrada#DIAS_VIDA}; solo si {@link #errorFechas()} es null. */
+    public long diasVida() {
+        return ChronoUnit.DAYS.between(fechaNacimiento(), fechaAtencionParseada());
+    }
+
+    private LocalDate fechaNacimiento() {
+        calcularNacimiento();
+        if (errorNacimiento != null) throw errorNacimiento;
+        return fechaNacimiento;
+    }
+
+    private LocalDate fechaAtencionParseada() {
+        calcularAtencion();
+        if (errorAtencion != null) throw errorAtencion;
+        return fechaAtencionParseada;
+    }
+
+    private void calcularNacimiento() {
+        if (nacimientoCalculado) return;
+        try {
+            fechaNacimiento = Fechas.nacimiento(usuario.fechaNacimiento());
+        } catch (RuntimeException e) {
+            errorNacimiento = e;
+        }
+        nacimientoCalculado = true;
+    }
+
+    private void calcularAtencion() {
+        if (atencionCalculada) return;
+        fechaAtencionParseada = null;
+        errorAtencion = null;
+        try {
+            fechaAtencionParseada = Fechas.atencion(fechaAtencion);
+        } catch (RuntimeException e) {
+            errorAtencion = e;
+        }
+        textoAtencionCalculada = fechaAtencion;
+        atencionCalculada = true;
+    }
+
+    private static DateTimeParseException relanzarSiNoEsDeFormato(RuntimeException e) {
+        if (e instanceof DateTimeParseException formato) return formato;
+        throw e;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.validadorjson.reglas;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Datos derivados que las reglas declaran usar. {@link ContextoFila} los calcula la primera vez
+ * que alguna regla los pide y los comparte con las demás; el planificador suma su costo solo
+ * a la primera regla del plan que los necesita.
+ *
+ * Los costos son relativos (1 = una búsqueda en un Set).
+ */
+public enum Entrada {
+
+    /** Primeros 10 caracteres de fechaInicioAtencion (clave de duplicados por día). */
+    DIA_ATENCION(1),
+    /** Tipo de documento del usuario ("" si viene null). */
+    TIPO_DOCUMENTO(1),
+    /** Diagnóstico principal sin espacios y en mayúsculas. */
+    DIAGNOSTICO(2),
+    /** fechaNacimiento parseada; una vez por usuario. */
+    FECHA_NACIMIENTO(20),
+    /** fechaInicioAtencion parseada; prueba varios formatos. */
+    FECHA_ATENCION(30),
+    /** Años cumplidos en la fecha de atención. */
+    EDAD(5, FECHA_NACIMIENTO, FECHA_ATENCION),
+    /** Días de vida en la fecha de atención. */
+    DIAS_VIDA(3, FECHA_NACIMIENTO, FECHA_ATENCION);
+
+    private final int costo;
+    private final Entrada[] base;
+
+    Entrada(int costo, Entrada... base) {
+        this.costo = costo;
+        this.base = base;
+    }
+
+    public int costo() {
+        return costo;
+    }
+
+    /** Las entradas más las que hacen falta para calcularlas. */
+    static Set<Entrada> cierre(Set<Entrada> entradas) {
+        Set<Entrada> cierre = EnumSet.noneOf(Entrada.class);
+        for (Entrada e : entradas) {
+            cierre.add(e);
+            cierre.addAll(Set.of(e.base));
+        }
+        return cierre;
+    }
+}
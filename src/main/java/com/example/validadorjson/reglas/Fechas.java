@@ -0,0 +1,51 @@
+package com.example.validadorjson.reglas;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Lectura de las fechas de la factura, la misma para {@link ContextoFila} y para las validaciones
+ * que corren fuera de un plan: nacimiento "yyyy-MM-dd"; atención con minutos, segundos, ISO
+ * o al menos el día al comienzo.
+ */
+public final class Fechas {
+
+    private static final DateTimeFormatter FN_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter FA_FMT_MIN = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter FA_FMT_SEC = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private Fechas() {
+    }
+
+    /** fechaNacimiento; null lanza NullPointerException, igual que LocalDate.parse. */
+    public static LocalDate nacimiento(String fechaNacimiento) {
+        return LocalDate.parse(fechaNacimiento, FN_FMT);
+    }
+
+    /** fechaInicioAtencion; vacía o null es DateTimeParseException. */
+    public static LocalDate atencion(String fechaAtencion) {
+        if (fechaAtencion == null || fechaAtencion.isBlank()) {
+            throw new DateTimeParseException("fechaInicioAtencion vacía", fechaAtencion, 0);
+        }
+
+        // intentamos varios formatos comunes
+        try {
+            return LocalDateTime.parse(fechaAtencion, FA_FMT_MIN).toLocalDate();
+        } catch (DateTimeParseException ignored) { }
+        try {
+            return LocalDateTime.parse(fechaAtencion, FA_FMT_SEC).toLocalDate();
+        } catch (DateTimeParseException ignored) { }
+        try {
+            // caso ISO como 2025-04-22T13:57:00
+            return LocalDateTime.parse(fechaAtencion).toLocalDate();
+        } catch (DateTimeParseException ignored) { }
+
+        // fallback: si vienen al menos yyyy-MM-dd
+        if (fechaAtencion.length() >= 10) {
+            return LocalDate.parse(fechaAtencion.substring(0, 10), FN_FMT);
+        }
+        throw new DateTimeParseException("Formato de fecha inválido para fechaInicioAtencion", fechaAtencion, 0);
+    }
+}
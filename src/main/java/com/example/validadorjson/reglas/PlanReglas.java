@@ -0,0 +1,286 @@
+package com.example.validadorjson.reglas;
+
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.jfr.ReglaEjecutadaEvent;
+import com.example.validadorjson.reporte.Reporte;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Orden de evaluación de las reglas de un tipo de servicio.
+ *
+ * Las reglas se declaran en el orden en que aparecen en el reporte. El planificador elige el
+ * orden de evaluación (respetando {@link Regla#requiere()}) de forma voraz: en cada paso toma la
+ * regla lista con menor puntaje, donde
+ * <pre>
+ *   puntaje = costo + costo de entradas aún no calculadas - selectividad * costo de sus dependientes
+ * </pre>
+ * Así una búsqueda barata que descarta la fila va antes que el parseo de fechas que solo
+ * necesitan sus dependientes, y una entrada ya calculada deja de contar para las reglas siguientes.
+ * Si una regla encuentra hallazgo, las que la requieren no se evalúan en esa fila.
+ *
+ * Los hallazgos se escriben después, en el orden declarado, por lo que el reporte es el mismo
+ * con cualquier orden de evaluación. Si una regla lanza excepción se reportan las reglas declaradas
+ * antes que ella (como si se hubieran ejecutado en orden) y la excepción sigue hacia el servicio.
+ */
+public final class PlanReglas<S> {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanReglas.class);
+
+    // Se mide el tiempo de 1 de cada MUESTREO filas por usuario (la primera siempre)
+    private static final int MUESTREO = 16;
+
+    private final String modo;
+    private final String nombre;
+    private final List<Regla<S>> reglas;
+    private final int[] orden;
+    private final long[] requisitos;
+    private final List<List<Entrada>> calcula;
+    private final int[] costoEntradas;
+
+    private final LongAdder[] evaluaciones;
+    private final LongAdder[] hallazgos;
+    private final LongAdder[] omitidas;
+    private final LongAdder[] nanos;
+    private final LongAdder[] muestras;
+
+    private PlanReglas(String modo, String nombre, List<Regla<S>> reglas) {
+        if (reglas.size() > Long.SIZE) {
+            throw new IllegalArgumentException("Máximo " + Long.SIZE + " reglas por plan");
+        }
+        this.modo = modo;
+        this.nombre = nombre;
+        this.reglas = List.copyOf(reglas);
+        int n = reglas.size();
+
+        Map<String, Integer> indice = new HashMap<>();
+        this.requisitos = new long[n];
+        for (int i = 0; i < n; i++) {
+            for (String requerida : reglas.get(i).requiere()) {
+                Integer j = indice.get(requerida);
+                if (j == null) {
+                    throw new IllegalArgumentException("La regla " + reglas.get(i).nombre()
+                            + " requiere " + requerida + ", que no está declarada antes en " + nombre);
+                }
+                requisitos[i] |= 1L << j;
+            }
+            if (indice.put(reglas.get(i).nombre(), i) != null) {
+                throw new IllegalArgumentException("Regla repetida en " + nombre + ": " + reglas.get(i).nombre());
+            }
+        }
+
+        this.orden = new int[n];
+        this.calcula = new ArrayList<>(Collections.nCopies(n, List.of()));
+        this.costoEntradas = new int[n];
+        planificar();
+
+        this.evaluaciones = contadores(n);
+        this.hallazgos = contadores(n);
+        this.omitidas = contadores(n);
+        this.nanos = contadores(n);
+        this.muestras = contadores(n);
+
+        StringJoiner pasos = new StringJoiner(" -> ");
+        for (int i : orden) pasos.add(reglas.get(i).nombre());
+        log.info("Plan de reglas {}/{}: {}", modo, nombre, pasos);
+    }
+
+    /**
+     * @param modo   PYP, Morb...; etiqueta los eventos JFR
+     * @param nombre tipo de servicio (consultas, procedimientos...)
+     * @param reglas en el orden en que deben aparecer sus hallazgos en el reporte
+     */
+    public static <S> PlanReglas<S> de(String modo, String nombre, List<Regla<S>> reglas) {
+        return new PlanReglas<>(modo, nombre, reglas);
+    }
+
+    /** Contexto para recorrer los servicios de un usuario; llamar {@link ContextoFila#terminar()} al final. */
+    public ContextoFila<S> iniciar(String numFactura, Usuario usuario) {
+        return new ContextoFila<>(this, numFactura, usuario);
+    }
+
+    int tamano() {
+        return reglas.size();
+    }
+
+    String nombre() {
+        return nombre;
+    }
+
+    /* --------------------------- Planificación --------------------------- */
+
+    private void planificar() {
+        int n = reglas.size();
+        List<Set<Entrada>> cierres = new ArrayList<>(n);
+        for (Regla<S> r : reglas) cierres.add(Entrada.cierre(r.entradas()));
+
+        EnumSet<Entrada> calculadas = EnumSet.noneOf(Entrada.class);
+        long planificadas = 0;
+        for (int paso = 0; paso < n; paso++) {
+            int mejor = -1;
+            double mejorPuntaje = Double.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                if ((planificadas & (1L << i)) != 0 || (requisitos[i] & ~planificadas) != 0) continue;
+                double puntaje = costo(i, cierres.get(i), calculadas)
+                        - reglas.get(i).selectividad() * costoDependientes(i, cierres, calculadas, cierres.get(i));
+                if (puntaje < mejorPuntaje) {
+                    mejor = i;
+                    mejorPuntaje = puntaje;
+                }
+            }
+            orden[paso] = mejor;
+            costoEntradas[mejor] = costoEntradas(cierres.get(mejor), calculadas);
+            List<Entrada> nuevas = new ArrayList<>(cierres.get(mejor));
+            nuevas.removeAll(calculadas);
+            calcula.set(mejor, List.copyOf(nuevas));
+            calculadas.addAll(cierres.get(mejor));
+            planificadas |= 1L << mejor;
+        }
+    }
+
+    private int costo(int i, Set<Entrada> cierre, Set<Entrada> calculadas) {
+        return reglas.get(i).costo() + costoEntradas(cierre, calculadas);
+    }
+
+    /** Lo que se ahorra si la regla i encuentra hallazgo: todas las que la requieren, directa o indirectamente. */
+    private double costoDependientes(int i, List<Set<Entrada>> cierres, EnumSet<Entrada> calculadas, Set<Entrada> deI) {
+        long dependientes = 1L << i;
+        for (int j = i + 1; j < reglas.size(); j++) {
+            if ((requisitos[j] & dependientes) != 0) dependientes |= 1L << j;
+        }
+        Set<Entrada> disponibles = EnumSet.copyOf(calculadas);
+        disponibles.addAll(deI);
+        double total = 0;
+        for (int j = i + 1; j < reglas.size(); j++) {
+            if ((dependientes & (1L << j)) != 0) total += costo(j, cierres.get(j), disponibles);
+        }
+        return total;
+    }
+
+    private static int costoEntradas(Set<Entrada> cierre, Set<Entrada> calculadas) {
+        int total = 0;
+        for (Entrada e : cierre) {
+            if (!calculadas.contains(e)) total += e.costo();
+        }
+        return total;
+    }
+
+    /* --------------------------- Ejecución --------------------------- */
+
+    void ejecutar(ContextoFila<S> ctx, Reporte errores) {
+        boolean medir = ctx.filas++ % MUESTREO == 0;
+        long evaluadas = 0;
+        long conHallazgo = 0;
+        RuntimeException fallo = null;
+        int limite = reglas.size();
+
+        for (int i : orden) {
+            if ((requisitos[i] & (evaluadas & ~conHallazgo)) != requisitos[i]) {
+                ctx.omitidas[i]++;
+                continue;
+            }
+            try {
+                if (evaluar(ctx, i, medir, errores)) conHallazgo |= 1L << i;
+            } catch (RuntimeException e) {
+                fallo = e;
+                limite = i;
+                break;
+            }
+            evaluadas |= 1L << i;
+        }
+
+        if (fallo != null) {
+            // Como si se hubiera ejecutado en orden: las declaradas antes de la que falló sí se evalúan
+            for (int i = 0; i < limite; i++) {
+                if ((evaluadas & (1L << i)) != 0 || (requisitos[i] & (evaluadas & ~conHallazgo)) != requisitos[i]) continue;
+                try {
+                    if (evaluar(ctx, i, medir, errores)) conHallazgo |= 1L << i;
+                } catch (RuntimeException e) {
+                    fallo = e;
+                    limite = i;
+                    break;
+                }
+                evaluadas |= 1L << i;
+            }
+        }
+
+        for (int i = 0; i < limite; i++) {
+            if ((conHallazgo & (1L << i)) != 0) {
+                ctx.regla = i;
+                reglas.get(i).reportar().accept(ctx, errores);
+            }
+        }
+        if (fallo != null) throw fallo;
+    }
+
+    private boolean evaluar(ContextoFila<S> ctx, int i, boolean medir, Reporte errores) {
+        Regla<S> regla = reglas.get(i);
+        ReglaEjecutadaEvent ev = ReglaEjecutadaEvent.iniciar(errores);
+        ctx.regla = i;
+        ctx.resultados[i] = null;
+        long inicio = medir ? System.nanoTime() : 0;
+        boolean hallazgo = regla.evaluar().test(ctx);
+        if (medir) {
+            ctx.nanos[i] += System.nanoTime() - inicio;
+            ctx.muestras[i]++;
+        }
+        ctx.evaluaciones[i]++;
+        if (hallazgo) ctx.hallazgos[i]++;
+        ev.terminar(modo, regla.nombre(), ctx.numFactura, ctx.consecutivoUsuario(), ctx.consecutivo(), hallazgo ? 1 : 0);
+        return hallazgo;
+    }
+
+    void acumular(ContextoFila<S> ctx) {
+        for (int i = 0; i < reglas.size(); i++) {
+            if (ctx.evaluaciones[i] != 0) evaluaciones[i].add(ctx.evaluaciones[i]);
+            if (ctx.hallazgos[i] != 0) hallazgos[i].add(ctx.hallazgos[i]);
+            if (ctx.omitidas[i] != 0) omitidas[i].add(ctx.omitidas[i]);
+            if (ctx.muestras[i] != 0) {
+                nanos[i].add(ctx.nanos[i]);
+                muestras[i].add(ctx.muestras[i]);
+            }
+        }
+    }
+
+    private static LongAdder[] contadores(int n) {
+        LongAdder[] c = new LongAdder[n];
+        for (int i = 0; i < n; i++) c[i] = new LongAdder();
+        return c;
+    }
+
+    /* --------------------------- Consulta del plan --------------------------- */
+
+    /** Orden elegido y costo observado de cada regla, para ajustar costos y selectividades. */
+    public ResumenPlan resumen() {
+        List<PasoPlan> pasos = new ArrayList<>(reglas.size());
+        for (int paso = 0; paso < orden.length; paso++) {
+            int i = orden[paso];
+            Regla<S> r = reglas.get(i);
+            long evals = evaluaciones[i].sum();
+            long m = muestras[i].sum();
+            pasos.add(new PasoPlan(paso + 1, r.nombre(), i + 1, r.costo(), costoEntradas[i], r.selectividad(),
+                    r.requiere(), calcula.get(i), evals, hallazgos[i].sum(), omitidas[i].sum(),
+                    evals == 0 ? 0 : (double) hallazgos[i].sum() / evals,
+                    m == 0 ? 0 : (double) nanos[i].sum() / m));
+        }
+        return new ResumenPlan(modo, nombre, pasos);
+    }
+
+    public record ResumenPlan(String modo, String servicio, List<PasoPlan> pasos) { }
+
+    /**
+     * @param posicionReporte  posición en que se declaró (orden de sus líneas en el reporte)
+     * @param costoEntradas    costo de las entradas que esta regla calcula primero en el plan
+     * @param calcula          esas entradas; las reglas siguientes las reutilizan
+     * @param omitidas         filas en que no se evaluó porque una regla requerida tuvo hallazgo
+     * @param selectividadReal hallazgos / evaluaciones observados
+     * @param nanosPromedio    tiempo medio de evaluación en las filas muestreadas
+     */
+    public record PasoPlan(int orden, String regla, int posicionReporte, int costo, int costoEntradas,
+                           double selectividad, List<String> requiere, List<Entrada> calcula,
+                           long evaluaciones, long hallazgos, long omitidas,
+                           double selectividadReal, double nanosPromedio) { }
+}
@@ -0,0 +1,30 @@
+package com.example.validadorjson.reglas;
+
+import com.example.validadorjson.reporte.Reporte;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Regla sobre un servicio (consulta, procedimiento...) registrada en un {@link PlanReglas}.
+ *
+ * {@code evaluar} solo decide si hay hallazgo, sin escribir en el reporte; {@code reportar}
+ * escribe las líneas (y registra la analítica) y se llama después, en el orden en que se
+ * declararon las reglas, así el texto no depende del orden que elija el planificador.
+ * evaluar no debe tener efectos visibles fuera de la fila salvo en reglas que se declaran primero
+ * (p. ej. el set de claves de duplicados).
+ *
+ * @param costo        costo relativo de evaluar la regla, sin contar sus entradas
+ * @param selectividad fracción esperada de filas con hallazgo (0..1); pesa cuando otras reglas la requieren
+ * @param requiere     reglas declaradas antes que deben evaluarse sin hallazgo para evaluar esta
+ */
+public record Regla<S>(String nombre,
+                       int costo,
+                       double selectividad,
+                       Set<Entrada> entradas,
+                       List<String> requiere,
+                       Predicate<ContextoFila<S>> evaluar,
+                       BiConsumer<ContextoFila<S>, Reporte> reportar) {
+}
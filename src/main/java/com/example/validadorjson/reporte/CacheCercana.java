@@ -0,0 +1,45 @@
+package com.example.validadorjson.reporte;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché local (near-cache) LRU con vencimiento, delante del almacén en red.
+ * El TTL acota cuánto puede tardar una instancia en ver un reporte reescrito por otra.
+ */
+final class CacheCercana {
+
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entrada> entradas;
+
+    CacheCercana(int maxEntradas, long ttlMs) {
+        this.ttlMs = ttlMs;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > maxEntradas;
+            }
+        };
+    }
+
+    synchronized byte[] obtener(String clave) {
+        Entrada e = entradas.get(clave);
+        if (e == null) return null;
+        if (e.vence < System.currentTimeMillis()) {
+            entradas.remove(clave);
+            return null;
+        }
+        return e.contenido;
+    }
+
+    synchronized void poner(String clave, byte[] contenido) {
+        if (ttlMs <= 0) return;
+        entradas.put(clave, new Entrada(contenido, System.currentTimeMillis() + ttlMs));
+    }
+
+    synchronized void quitar(String clave) {
+        entradas.remove(clave);
+    }
+
+    private record Entrada(byte[] contenido, long vence) { }
+}
@@ -0,0 +1,181 @@
+package com.example.validadorjson.reporte;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché de reportes direccionada por contenido: la clave es SHA-256(versión de reglas + cuerpo
+ * del request), que también se usa como ETag. Si un prestador reenvía exactamente el mismo JSON
+ * se devuelve el reporte guardado sin deserializar ni validar.
+ *
+ * Las entradas viven en el {@link ReportStore}, así que se comparten entre instancias.
+ * La versión de reglas va dentro del hash: al cambiar las reglas las entradas viejas
+ * dejan de encontrarse, y como PYP mete el día en su versión eso pasa cada día. Por eso cada
+ * entrada vence a las {@code validador.cache-resultados.vigencia-minutos}: en red con el EX del SET,
+ * en disco y memoria con una purga periódica de {@code cache/}.
+ *
+ * Un acierto no vuelve a contar hallazgos en la analítica: ya se contaron al validar.
+ */
+@Component
+public class CacheResultados {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheResultados.class);
+
+    private static final String PREFIJO = "cache/";
+
+    private final ReportStore reportStore;
+    private final boolean habilitada;
+    private final Duration vigencia;
+    private final ScheduledExecutorService purga;
+
+    public CacheResultados(ReportStore reportStore,
+                           @Value("${validador.cache-resultados.habilitada:true}") boolean habilitada,
+                           @Value("${validador.cache-resultados.vigencia-minutos:1440}") long vigenciaMinutos) {
+        if (vigenciaMinutos <= 0) {
+            throw new IllegalArgumentException("validador.cache-resultados.vigencia-minutos debe ser > 0");
+        }
+        this.reportStore = reportStore;
+        this.habilitada = habilitada;
+        this.vigencia = Duration.ofMinutes(vigenciaMinutos);
+        if (habilitada) {
+            // una pasada cada cuarto de vigencia: una entrada vive como mucho 1,25 vigencias
+            long cadaMinutos = Math.max(1, vigenciaMinutos / 4);
+            this.purga = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cache-resultados-purga");
+                t.setDaemon(true);
+                return t;
+            });
+            purga.scheduleWithFixedDelay(this::purgar, cadaMinutos, cadaMinutos, TimeUnit.MINUTES);
+        } else {
+            this.purga = null;
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (purga != null) purga.shutdownNow();
+    }
+
+    /** Borra las entradas vencidas (en red no hace nada: vencen en el servidor). */
+    int purgar() {
+        try {
+            int borradas = reportStore.purgar(PREFIJO, vigencia);
+            if (borradas > 0) log.info("Caché de resultados: {} entradas vencidas borradas", borradas);
+            return borradas;
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se pudo purgar la caché de resultados: {}", e.toString());
+            return 0;
+        }
+    }
+
+    /**
+     * Lee el cuerpo completo calculando el hash mientras se lee (una sola pasada).
+     */
+    public static CuerpoConHash leer(InputStream cuerpo, String versionReglas) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        md.update(versionReglas.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (DigestInputStream in = new DigestInputStream(cuerpo, md)) {
+            in.transferTo(bytes);
+        }
+        return new CuerpoConHash(bytes.toByteArray(), HexFormat.of().formatHex(md.digest()));
+    }
+
+    public Optional<ResultadoCacheado> obtener(String modo, String hash) {
+        if (!habilitada) return Optional.empty();
+        try {
+            return reportStore.obtener(clave(modo, hash)).map(CacheResultados::decodificar);
+        } catch (IOException | RuntimeException e) {
+            // RuntimeException: una entrada corrupta o a medio escribir cuenta como fallo
+            // la caché es una optimización: si falla, se valida normalmente
+            log.warn("No se pudo leer la caché de resultados {}: {}", hash, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void guardar(String modo, String hash, String numFactura, byte[] reporte) {
+        if (!habilitada) return;
+        byte[] cabecera = (campo(numFactura) + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] valor = Arrays.copyOf(cabecera, cabecera.length + reporte.length);
+        System.arraycopy(reporte, 0, valor, cabecera.length, reporte.length);
+        try {
+            reportStore.guardar(clave(modo, hash), valor, vigencia);
+        } catch (IOException e) {
+            log.warn("No se pudo guardar en la caché de resultados {}: {}", hash, e.getMessage());
+        }
+    }
+
+    // v3: el valor ya no lleva hallazgos de la analítica; las entradas v1 y v2 quedan huérfanas y las borra la purga
+    private static String clave(String modo, String hash) {
+        return PREFIJO + "v3/" + modo + "/" + hash;
+    }
+
+    // la cabecera es una línea: el valor no puede traer saltos
+    private static String campo(String valor) {
+        return valor == null ? "" : valor.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /** Formato guardado: numFactura '\n' y el reporte. */
+    private static ResultadoCacheado decodificar(byte[] valor) {
+        int[] pos = {0};
+        String numFactura = linea(valor, pos);
+        return new ResultadoCacheado(numFactura, Arrays.copyOfRange(valor, pos[0], valor.length));
+    }
+
+    private static String linea(byte[] valor, int[] pos) {
+        int inicio = pos[0];
+        int salto = inicio;
+        while (salto < valor.length && valor[salto] != '\n') salto++;
+        pos[0] = Math.min(salto + 1, valor.length);
+        return new String(valor, inicio, salto - inicio, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param hash SHA-256 en hex de versión de reglas + cuerpo; el ETag es este valor entre comillas
+     */
+    public record CuerpoConHash(byte[] bytes, String hash) {
+        public String etag() {
+            return "\"" + hash + "\"";
+        }
+
+        /**
+         * If-None-Match puede traer varios ETags separados por coma, también débiles (W/).
+         */
+        public boolean coincideCon(String ifNoneMatch) {
+            if (ifNoneMatch == null) return false;
+            for (String candidato : ifNoneMatch.split(",")) {
+                String e = candidato.trim();
+                if (e.startsWith("W/")) e = e.substring(2);
+                if (e.equals(etag())) return true;
+            }
+            return false;
+        }
+    }
+
+    public record ResultadoCacheado(String numFactura, byte[] reporte) { }
+}
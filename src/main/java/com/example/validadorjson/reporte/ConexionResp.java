@@ -0,0 +1,96 @@
+package com.example.validadorjson.reporte;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Conexión mínima por protocolo RESP (Redis y compatibles: Valkey, KeyDB, Dragonfly...).
+ * Permite pipelining: varios {@link #enviar} seguidos, un {@link #flush} y luego leer
+ * las respuestas en el mismo orden.
+ */
+final class ConexionResp implements Closeable {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final Socket socket;
+    private final BufferedOutputStream out;
+    private final BufferedInputStream in;
+
+    ConexionResp(String host, int puerto, int timeoutMs) throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(timeoutMs);
+        socket.connect(new InetSocketAddress(host, puerto), timeoutMs);
+        out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+    }
+
+    void enviar(byte[]... argumentos) throws IOException {
+        out.write('*');
+        out.write(ascii(argumentos.length));
+        out.write(CRLF);
+        for (byte[] arg : argumentos) {
+            out.write('$');
+            out.write(ascii(arg.length));
+            out.write(CRLF);
+            out.write(arg);
+            out.write(CRLF);
+        }
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Lee una respuesta: byte[] (bulk), String (simple), Long (entero) o null.
+     * Un error del servidor se lanza como IOException.
+     */
+    Object leerRespuesta() throws IOException {
+        int tipo = in.read();
+        if (tipo == -1) throw new EOFException("Conexión cerrada por el servidor");
+        String linea = leerLinea();
+        switch (tipo) {
+            case '+':
+                return linea;
+            case '-':
+                throw new IOException("Error del servidor: " + linea);
+            case ':':
+                return Long.parseLong(linea);
+            case '$': {
+                int largo = Integer.parseInt(linea);
+                if (largo < 0) return null;
+                byte[] datos = in.readNBytes(largo);
+                if (datos.length < largo) throw new EOFException("Respuesta incompleta");
+                leerLinea();
+                return datos;
+            }
+            default:
+                throw new IOException("Respuesta RESP no soportada: " + (char) tipo);
+        }
+    }
+
+    private String leerLinea() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\r') {
+                in.read(); // '\n'
+                return sb.toString();
+            }
+            sb.append((char) c);
+        }
+        throw new EOFException("Conexión cerrada por el servidor");
+    }
+
+    static byte[] ascii(long n) {
+        return Long.toString(n).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.validadorjson.reporte;
+
+import java.util.Locale;
+
+/**
+ * Forma del reporte de validación.
+ * - DETALLADO: una línea por hallazgo (el reporte de siempre).
+ * - AGRUPADO: una línea por regla, código y sección (juntando a todos los usuarios), con el número
+ *   de hallazgos, los usuarios y los consecutivos de los servicios donde aparecen (ver {@link Reporte}).
+ */
+public enum FormatoReporte {
+
+    DETALLADO(""),
+    AGRUPADO("agrupado/");
+
+    // Se antepone al nombre del reporte en el ReportStore, así los dos formatos conviven
+    private final String carpeta;
+
+    FormatoReporte(String carpeta) {
+        this.carpeta = carpeta;
+    }
+
+    public String carpeta() {
+        return carpeta;
+    }
+
+    /**
+     * Versión de reglas + formato, para la caché de resultados y el ETag: el mismo JSON
+     * da otro reporte según el formato. La del detallado no cambia.
+     */
+    public String version(String versionReglas) {
+        return this == DETALLADO ? versionReglas : versionReglas + "+" + name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * "detallado" / "agrupado" sin importar mayúsculas; vacío o null es DETALLADO.
+     */
+    public static FormatoReporte de(String valor) {
+        if (valor == null || valor.isBlank()) return DETALLADO;
+        for (FormatoReporte f : values()) {
+            if (f.name().equalsIgnoreCase(valor.trim())) return f;
+        }
+        throw new IllegalArgumentException("Formato de reporte desconocido: " + valor + ". Debe ser detallado o agrupado");
+    }
+}
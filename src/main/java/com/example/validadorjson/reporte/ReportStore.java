@@ -0,0 +1,41 @@
+package com.example.validadorjson.reporte;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Almacén de reportes de validación compartible entre instancias.
+ *
+ * La implementación se elige con {@code validador.reportes.almacen}:
+ * <ul>
+ *   <li>{@code disco} (por defecto): archivos en {@code validador.reportes.directorio}; sirve entre nodos si es un volumen compartido.</li>
+ *   <li>{@code memoria}: mapa local, solo para una instancia.</li>
+ *   <li>{@code red}: clave-valor por protocolo RESP (Redis o compatible), con escrituras en lote y caché cercana.</li>
+ * </ul>
+ * Las claves son rutas lógicas tipo {@code pyp/errores_validacion_fact_0102264}.
+ */
+public interface ReportStore {
+
+    void guardar(String clave, byte[] contenido) throws IOException;
+
+    Optional<byte[]> obtener(String clave) throws IOException;
+
+    /**
+     * Como {@link #guardar(String, byte[])}, para entradas que pueden desaparecer pasada su
+     * {@code vigencia} (la caché de resultados). En red vencen en el servidor; en disco y memoria
+     * las borra {@link #purgar}.
+     */
+    default void guardar(String clave, byte[] contenido, Duration vigencia) throws IOException {
+        guardar(clave, contenido);
+    }
+
+    /**
+     * Borra las entradas bajo {@code prefijo} (p. ej. {@code cache/}) guardadas hace más de {@code edadMaxima}.
+     *
+     * @return cuántas se borraron
+     */
+    default int purgar(String prefijo, Duration edadMaxima) throws IOException {
+        return 0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.validadorjson.reporte;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Reportes como archivos {@code <directorio>/<clave>.txt}. Con un volumen compartido (NFS, SMB...)
+ * cualquier instancia puede servir cualquier reporte.
+ *
+ * Se escribe en un temporal y se renombra, así un lector de otro nodo nunca ve un archivo a medias.
+ */
+@Component
+@ConditionalOnProperty(prefix = "validador.reportes", name = "almacen", havingValue = "disco", matchIfMissing = true)
+public class ReportStoreDisco implements ReportStore {
+
+    private final Path directorio;
+
+    public ReportStoreDisco(@Value("${validador.reportes.directorio:.}") String directorio) {
+        this.directorio = Paths.get(directorio).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void guardar(String clave, byte[] contenido) throws IOException {
+        Path destino = ruta(clave);
+        Files.createDirectories(destino.getParent());
+        Path temporal = Files.createTempFile(destino.getParent(), "." + destino.getFileName(), ".tmp");
+        try {
+            Files.write(temporal, contenido);
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> obtener(String clave) throws IOException {
+        try {
+            return Optional.of(Files.readAllBytes(ruta(clave)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * La edad es la fecha de modificación del archivo (la del rename al guardar). Varias instancias
+     * sobre el mismo volumen pueden purgar a la vez: un archivo ya borrado por otra no cuenta.
+     */
+    @Override
+    public int purgar(String prefijo, Duration edadMaxima) throws IOException {
+        Path carpeta = directorio;
+        for (String segmento : prefijo.split("/")) {
+            if (!segmento.isEmpty()) carpeta = carpeta.resolve(limpiar(segmento));
+        }
+        if (!Files.isDirectory(carpeta)) return 0;
+        FileTime limite = FileTime.fromMillis(System.currentTimeMillis() - edadMaxima.toMillis());
+        List<Path> vencidos;
+        try (Stream<Path> archivos = Files.walk(carpeta)) {
+            vencidos = archivos
+                    .filter(p -> p.getFileName().toString().endsWith(".txt"))
+                    .filter(p -> modificado(p).compareTo(limite) < 0)
+                    .toList();
+        }
+        int borrados = 0;
+        for (Path p : vencidos) {
+            if (Files.deleteIfExists(p)) borrados++;
+        }
+        return borrados;
+    }
+
+    private static FileTime modificado(Path p) {
+        try {
+            return Files.getLastModifiedTime(p);
+        } catch (IOException e) {
+            return FileTime.fromMillis(Long.MAX_VALUE); // ya no está: no se borra
+        }
+    }
+
+    /**
+     * La clave incluye el numFactura que manda el cliente: cada segmento se limpia para que
+     * no pueda salirse del directorio (../, rutas absolutas, caracteres raros).
+     */
+    private Path ruta(String clave) {
+        Path ruta = directorio;
+        for (String segmento : clave.split("/")) {
+            ruta = ruta.resolve(limpiar(segmento));
+        }
+        return ruta.resolveSibling(ruta.getFileName() + ".txt");
+    }
+
+    private static String limpiar(String segmento) {
+        String limpio = segmento.replaceAll("[^A-Za-z0-9._-]", "_");
+        return limpio.isEmpty() || limpio.equals(".") || limpio.equals("..") ? "_" : limpio;
+    }
+}
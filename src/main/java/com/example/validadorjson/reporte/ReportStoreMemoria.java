@@ -0,0 +1,47 @@
+package com.example.validadorjson.reporte;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reportes en memoria local. Solo sirve si todas las consultas llegan a la misma instancia.
+ */
+@Component
+@ConditionalOnProperty(prefix = "validador.reportes", name = "almacen", havingValue = "memoria")
+public class ReportStoreMemoria implements ReportStore {
+
+    private final ConcurrentHashMap<String, Entrada> reportes = new ConcurrentHashMap<>();
+
+    @Override
+    public void guardar(String clave, byte[] contenido) {
+        reportes.put(clave, new Entrada(contenido, System.currentTimeMillis()));
+    }
+
+    @Override
+    public Optional<byte[]> obtener(String clave) {
+        Entrada e = reportes.get(clave);
+        return e == null ? Optional.empty() : Optional.of(e.contenido());
+    }
+
+    @Override
+    public int purgar(String prefijo, Duration edadMaxima) {
+        long limite = System.currentTimeMillis() - edadMaxima.toMillis();
+        int borradas = 0;
+        for (Iterator<Map.Entry<String, Entrada>> it = reportes.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Entrada> e = it.next();
+            if (e.getKey().startsWith(prefijo) && e.getValue().guardadoMs() < limite) {
+                it.remove();
+                borradas++;
+            }
+        }
+        return borradas;
+    }
+
+    private record Entrada(byte[] contenido, long guardadoMs) { }
+}
@@ -0,0 +1,271 @@
+package com.example.validadorjson.reporte;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Reportes en un almacén clave-valor en red que hable RESP (Redis o compatible).
+ *
+ * Escrituras: cada {@link #guardar} se encola y un único hilo escritor las manda en lotes
+ * por pipelining (todos los SET del lote en un solo flush, luego todas las respuestas).
+ * El llamador espera a que su lote quede confirmado, así cualquier otra instancia puede
+ * leer el reporte apenas termina la validación. Con muchas validaciones concurrentes
+ * los lotes crecen solos (group commit) y el costo de ida y vuelta se reparte.
+ *
+ * Lecturas: primero la caché cercana, luego GET sobre un pool pequeño de conexiones.
+ * El pool es un tope: con todas ocupadas, la lectura espera a que se libere una (hasta el timeout)
+ * en vez de abrir otra.
+ *
+ * Cada conexión nueva manda AUTH (si hay password) y SELECT (si la base no es 0) antes de su
+ * primer comando; si el servidor los rechaza la conexión se cierra y la operación falla.
+ *
+ * {@link #detener} cierra todas las conexiones abiertas, así que quien esté esperando una
+ * respuesta del servidor sale con IOException en vez de quedarse hasta el timeout.
+ */
+@Component
+@ConditionalOnProperty(prefix = "validador.reportes", name = "almacen", havingValue = "red")
+public class ReportStoreRed implements ReportStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportStoreRed.class);
+
+    private final String host;
+    private final int puerto;
+    private final String password;
+    private final int baseDatos;
+    private final int timeoutMs;
+    private final String prefijo;
+    private final long ttlSegundos;
+    private final int loteMaximo;
+
+    private final CacheCercana cacheCercana;
+    private final BlockingQueue<Escritura> pendientes = new LinkedBlockingQueue<>();
+    private final BlockingQueue<ConexionResp> lectores;
+    private final Semaphore cuposLectura;
+    private final Set<ConexionResp> abiertas = ConcurrentHashMap.newKeySet();
+    private final Thread escritor;
+    private volatile boolean activo = true;
+
+    private ConexionResp conexionEscritura; // solo la usa el hilo escritor
+
+    public ReportStoreRed(@Value("${validador.reportes.red.host:localhost}") String host,
+                          @Value("${validador.reportes.red.puerto:6379}") int puerto,
+                          @Value("${validador.reportes.red.password:}") String password,
+                          @Value("${validador.reportes.red.database:0}") int baseDatos,
+                          @Value("${validador.reportes.red.timeout-ms:2000}") int timeoutMs,
+                          @Value("${validador.reportes.red.prefijo:validador:reporte:}") String prefijo,
+                          @Value("${validador.reportes.red.ttl-segundos:0}") long ttlSegundos,
+                          @Value("${validador.reportes.red.lote-maximo:128}") int loteMaximo,
+                          @Value("${validador.reportes.red.conexiones-lectura:4}") int conexionesLectura,
+                          @Value("${validador.reportes.red.cache-cercana.entradas:1024}") int entradasCache,
+                          @Value("${validador.reportes.red.cache-cercana.ttl-ms:5000}") long ttlCacheMs) {
+        this.host = host;
+        this.puerto = puerto;
+        this.password = password == null ? "" : password;
+        this.baseDatos = baseDatos;
+        this.timeoutMs = timeoutMs;
+        this.prefijo = prefijo;
+        this.ttlSegundos = ttlSegundos;
+        this.loteMaximo = Math.max(1, loteMaximo);
+        this.cacheCercana = new CacheCercana(entradasCache, ttlCacheMs);
+        this.lectores = new ArrayBlockingQueue<>(Math.max(1, conexionesLectura));
+        this.cuposLectura = new Semaphore(Math.max(1, conexionesLectura));
+
+        this.escritor = new Thread(this::escribirLotes, "report-store-red-escritor");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    @Override
+    public void guardar(String clave, byte[] contenido) throws IOException {
+        guardar(clave, contenido, ttlSegundos);
+    }
+
+    /** La vigencia va como EX del SET: vence en el servidor, no hace falta {@link #purgar}. */
+    @Override
+    public void guardar(String clave, byte[] contenido, Duration vigencia) throws IOException {
+        guardar(clave, contenido, Math.max(1, vigencia.toSeconds()));
+    }
+
+    private void guardar(String clave, byte[] contenido, long ttlSegundos) throws IOException {
+        verificarActivo();
+        Escritura escritura = new Escritura(clave, contenido, ttlSegundos, new CompletableFuture<>());
+        pendientes.add(escritura);
+        try {
+            escritura.confirmada.get(timeoutMs * 2L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido guardando reporte " + clave);
+        } catch (TimeoutException e) {
+            throw new IOException("Tiempo agotado guardando reporte " + clave);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        cacheCercana.poner(clave, contenido);
+    }
+
+    @Override
+    public Optional<byte[]> obtener(String clave) throws IOException {
+        byte[] cercano = cacheCercana.obtener(clave);
+        if (cercano != null) {
+            return Optional.of(cercano);
+        }
+
+        verificarActivo();
+        try {
+            if (!cuposLectura.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Sin conexiones de lectura libres leyendo reporte " + clave);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido leyendo reporte " + clave);
+        }
+        ConexionResp conexion = lectores.poll();
+        boolean devolver = false;
+        try {
+            if (conexion == null) {
+                conexion = abrir();
+            }
+            conexion.enviar(bytes("GET"), bytes(prefijo + clave));
+            conexion.flush();
+            Object respuesta = conexion.leerRespuesta();
+            devolver = true;
+            if (respuesta instanceof byte[] contenido) {
+                cacheCercana.poner(clave, contenido);
+                return Optional.of(contenido);
+            }
+            return Optional.empty();
+        } finally {
+            // con un cupo tomado siempre hay lugar en la cola de conexiones libres
+            if (conexion != null && !(devolver && activo && lectores.offer(conexion))) {
+                cerrar(conexion);
+            }
+            cuposLectura.release();
+        }
+    }
+
+    /* --------------------------- Hilo escritor --------------------------- */
+
+    private void escribirLotes() {
+        List<Escritura> lote = new ArrayList<>(loteMaximo);
+        while (activo) {
+            try {
+                lote.add(pendientes.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            pendientes.drainTo(lote, loteMaximo - 1);
+            try {
+                enviarLote(lote);
+                lote.forEach(e -> e.confirmada.complete(null));
+            } catch (IOException e) {
+                log.warn("Falló el envío de {} reportes al almacén en red {}:{}: {}", lote.size(), host, puerto, e.getMessage());
+                cerrar(conexionEscritura);
+                conexionEscritura = null;
+                lote.forEach(es -> es.confirmada.completeExceptionally(e));
+            }
+            lote.clear();
+        }
+        IOException cerrado = new IOException("Almacén de reportes detenido");
+        pendientes.forEach(e -> e.confirmada.completeExceptionally(cerrado));
+    }
+
+    private void enviarLote(List<Escritura> lote) throws IOException {
+        if (conexionEscritura == null) {
+            conexionEscritura = abrir();
+        }
+        for (Escritura e : lote) {
+            if (e.ttlSegundos > 0) {
+                conexionEscritura.enviar(bytes("SET"), bytes(prefijo + e.clave), e.contenido,
+                        bytes("EX"), ConexionResp.ascii(e.ttlSegundos));
+            } else {
+                conexionEscritura.enviar(bytes("SET"), bytes(prefijo + e.clave), e.contenido);
+            }
+        }
+        conexionEscritura.flush();
+        for (int i = 0; i < lote.size(); i++) {
+            conexionEscritura.leerRespuesta();
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        activo = false;
+        escritor.interrupt();
+        // incluye las que están en uso: el escritor o un lector bloqueado en una lectura salen con IOException
+        abiertas.forEach(ReportStoreRed::cerrarSocket);
+        lectores.clear();
+    }
+
+    private void verificarActivo() throws IOException {
+        if (!activo) {
+            throw new IOException("Almacén de reportes detenido");
+        }
+    }
+
+    private ConexionResp abrir() throws IOException {
+        ConexionResp conexion = new ConexionResp(host, puerto, timeoutMs);
+        abiertas.add(conexion);
+        if (!activo) {
+            // detener() pudo recorrer las abiertas antes de que esta entrara
+            cerrar(conexion);
+            verificarActivo();
+        }
+        try {
+            iniciarSesion(conexion);
+        } catch (IOException e) {
+            cerrar(conexion);
+            throw e;
+        }
+        return conexion;
+    }
+
+    /** AUTH y SELECT en una sola ida y vuelta; un rechazo llega como IOException. */
+    private void iniciarSesion(ConexionResp conexion) throws IOException {
+        int comandos = 0;
+        if (!password.isEmpty()) {
+            conexion.enviar(bytes("AUTH"), bytes(password));
+            comandos++;
+        }
+        if (baseDatos != 0) {
+            conexion.enviar(bytes("SELECT"), ConexionResp.ascii(baseDatos));
+            comandos++;
+        }
+        if (comandos == 0) return;
+        conexion.flush();
+        for (int i = 0; i < comandos; i++) {
+            conexion.leerRespuesta();
+        }
+    }
+
+    private void cerrar(ConexionResp conexion) {
+        if (conexion == null) return;
+        abiertas.remove(conexion);
+        cerrarSocket(conexion);
+    }
+
+    private static void cerrarSocket(ConexionResp conexion) {
+        try {
+            conexion.close();
+        } catch (IOException ignored) { }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Escritura(String clave, byte[] contenido, long ttlSegundos, CompletableFuture<Void> confirmada) { }
+}
@@ -0,0 +1,257 @@
+package com.example.validadorjson.reporte;
+
+import com.example.validadorjson.service.ReglaValidacion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Texto del reporte de una factura mientras se valida.
+ *
+ * En {@link FormatoReporte#DETALLADO} cada hallazgo es una línea "Usuario consecutivo N -> detalle",
+ * igual que siempre. En {@link FormatoReporte#AGRUPADO} cada hallazgo se suma a su grupo (regla,
+ * código, variante y sección: consultas, procedimientos... o null si es del usuario), sin importar
+ * el usuario, y al final sale una línea por grupo con la cantidad, los usuarios distintos con los
+ * consecutivos de sus servicios ("5 (2, 4-6); 7 (3)") y el primer detalle como ejemplo. La variante
+ * separa los casos de una misma regla y código con textos distintos (p. ej. qué relacionado hay que
+ * mover a principal), para que el ejemplo valga para todo el grupo. De cada hallazgo solo se guardan
+ * dos enteros, no el texto, así que no hay que recorrer el reporte detallado. Un grupo de un solo
+ * hallazgo sale igual que en el detallado.
+ *
+ * No es seguro entre hilos: una instancia por validación.
+ */
+public final class Reporte {
+
+    /** Para hallazgos de una sección que no corresponden a un servicio en particular. */
+    public static final int SIN_SERVICIO = Integer.MIN_VALUE;
+
+    private static final String SALTO = System.lineSeparator();
+
+    private final FormatoReporte formato;
+    private final StringBuilder texto = new StringBuilder();
+    private int hallazgos;
+
+    // Solo en AGRUPADO, en orden de primera aparición
+    private final Map<Clave, Grupo> grupos;
+
+    public Reporte(FormatoReporte formato) {
+        this.formato = formato;
+        this.grupos = formato == FormatoReporte.AGRUPADO ? new LinkedHashMap<>() : null;
+    }
+
+    public FormatoReporte formato() {
+        return formato;
+    }
+
+    /**
+     * Texto libre (cabecera, avisos); en el agrupado queda antes de los grupos.
+     */
+    public Reporte linea(String linea) {
+        texto.append(linea).append(SALTO);
+        return this;
+    }
+
+    /**
+     * Hallazgo de un usuario.
+     *
+     * @param codigo   código con que se agrupa (el mismo de la analítica); puede ser null
+     * @param seccion  "consultas", "procedimientos"..., o null si el hallazgo es del usuario
+     * @param servicio consecutivo del servicio, o {@link #SIN_SERVICIO}
+     * @param detalle  texto después de "Usuario consecutivo N -> "; en el agrupado solo se copia el del primero
+     */
+    public void hallazgo(ReglaValidacion regla, String codigo, int usuario, String seccion, int servicio, CharSequence detalle) {
+        hallazgo(regla, codigo, null, usuario, seccion, servicio, detalle);
+    }
+
+    /**
+     * Hallazgo de un usuario cuya regla tiene varios casos con distinto texto para el mismo código.
+     *
+     * @param variante el caso (p. ej. "relacionado1"), o null; en el agrupado no se mezclan variantes
+     */
+    public void hallazgo(ReglaValidacion regla, String codigo, String variante, int usuario, String seccion, int servicio,
+                         CharSequence detalle) {
+        hallazgos++;
+        if (grupos == null) {
+            texto.append("Usuario consecutivo ").append(usuario).append(" -> ").append(detalle).append(SALTO);
+            return;
+        }
+        Grupo g = grupo(regla, codigo, variante, seccion, usuario, detalle);
+        g.cantidad++;
+        g.agregar(usuario, servicio);
+    }
+
+    /**
+     * Un hallazgo que abarca varios servicios (p. ej. consecutivos faltantes); en el agrupado
+     * los servicios quedan en la lista del usuario.
+     */
+    public void hallazgo(ReglaValidacion regla, String codigo, int usuario, String seccion, int[] servicios, CharSequence detalle) {
+        if (grupos == null || servicios.length == 0) {
+            hallazgo(regla, codigo, usuario, seccion, SIN_SERVICIO, detalle);
+            return;
+        }
+        hallazgos++;
+        Grupo g = grupo(regla, codigo, null, seccion, usuario, detalle);
+        g.cantidad++;
+        for (int servicio : servicios) {
+            g.agregar(usuario, servicio);
+        }
+    }
+
+    /**
+     * Hallazgo de la factura completa ("Factura -> detalle"); no se agrupa.
+     */
+    public void hallazgoFactura(CharSequence detalle) {
+        hallazgos++;
+        texto.append("Factura -> ").append(detalle).append(SALTO);
+    }
+
+    /** Hallazgos registrados hasta ahora (en el agrupado, antes de agrupar). */
+    public int hallazgos() {
+        return hallazgos;
+    }
+
+    public String texto() {
+        cerrarGrupos();
+        return texto.toString();
+    }
+
+    public byte[] bytes() {
+        return texto().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return texto();
+    }
+
+    private Grupo grupo(ReglaValidacion regla, String codigo, String variante, String seccion, int usuario, CharSequence detalle) {
+        Clave clave = new Clave(regla, codigo, variante, seccion);
+        Grupo g = grupos.get(clave);
+        if (g == null) {
+            g = new Grupo(usuario, detalle.toString());
+            grupos.put(clave, g);
+        }
+        return g;
+    }
+
+    /** Escribe los grupos acumulados; los hallazgos que lleguen después forman grupos nuevos. */
+    private void cerrarGrupos() {
+        if (grupos == null || grupos.isEmpty()) return;
+        for (Map.Entry<Clave, Grupo> e : grupos.entrySet()) {
+            Clave k = e.getKey();
+            Grupo g = e.getValue();
+            if (g.cantidad > 1) {
+                texto.append(k.regla().descripcion());
+                if (k.codigo() != null && !k.codigo().isBlank()) texto.append(" [").append(k.codigo()).append(']');
+                if (k.seccion() != null) texto.append(" en ").append(k.seccion());
+                texto.append(": ").append(g.cantidad).append(" hallazgos");
+                g.ordenarPorUsuario();
+                int usuarios = g.usuarios();
+                texto.append(" en ").append(usuarios).append(usuarios == 1 ? " usuario -> " : " usuarios -> ");
+                g.escribirUsuarios(texto);
+                texto.append(". Ejemplo: ");
+            }
+            texto.append("Usuario consecutivo ").append(g.primerUsuario).append(" -> ").append(g.primero).append(SALTO);
+        }
+        grupos.clear();
+    }
+
+    private record Clave(ReglaValidacion regla, String codigo, String variante, String seccion) { }
+
+    /** Pares (usuario, servicio) en el orden en que llegaron. */
+    private static final class Grupo {
+        final int primerUsuario;
+        final String primero;
+        int cantidad;
+        int[] usuario = new int[8];
+        int[] servicio = new int[8];
+        int n;
+
+        Grupo(int primerUsuario, String primero) {
+            this.primerUsuario = primerUsuario;
+            this.primero = primero;
+        }
+
+        void agregar(int u, int s) {
+            if (n == usuario.length) {
+                usuario = Arrays.copyOf(usuario, n * 2);
+                servicio = Arrays.copyOf(servicio, n * 2);
+            }
+            usuario[n] = u;
+            servicio[n] = s;
+            n++;
+        }
+
+        /**
+         * Junta los pares de cada usuario (en el orden de usuario, estable en los servicios): un mismo
+         * usuario puede llegar en tandas separadas, p. ej. documentos repetidos que se revisan al final.
+         */
+        void ordenarPorUsuario() {
+            boolean ordenado = true;
+            for (int i = 1; i < n && ordenado; i++) ordenado = usuario[i - 1] <= usuario[i];
+            if (ordenado) return;
+            // usuario en los 32 bits altos (con signo) y la posición en los bajos: el sort queda estable
+            long[] pares = new long[n];
+            for (int i = 0; i < n; i++) pares[i] = ((long) usuario[i] << 32) | i;
+            Arrays.sort(pares);
+            int[] u = new int[usuario.length];
+            int[] s = new int[servicio.length];
+            for (int i = 0; i < n; i++) {
+                int origen = (int) pares[i];
+                u[i] = usuario[origen];
+                s[i] = servicio[origen];
+            }
+            usuario = u;
+            servicio = s;
+        }
+
+        /** Usuarios distintos; requiere {@link #ordenarPorUsuario()}. */
+        int usuarios() {
+            int distintos = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || usuario[i] != usuario[i - 1]) distintos++;
+            }
+            return distintos;
+        }
+
+        /** "5 (2, 4-6); 7 (3); 9" - servicios seguidos en rangos; "9 (x2)" si no hay servicio. */
+        void escribirUsuarios(StringBuilder sb) {
+            int i = 0;
+            while (i < n) {
+                int fin = i;
+                while (fin + 1 < n && usuario[fin + 1] == usuario[i]) fin++;
+                if (i > 0) sb.append("; ");
+                sb.append(usuario[i]);
+                escribirServicios(sb, i, fin);
+                i = fin + 1;
+            }
+        }
+
+        private void escribirServicios(StringBuilder sb, int desde, int hasta) {
+            int sinServicio = 0;
+            boolean abierto = false;
+            int i = desde;
+            while (i <= hasta) {
+                if (servicio[i] == SIN_SERVICIO) {
+                    sinServicio++;
+                    i++;
+                    continue;
+                }
+                int j = i;
+                while (j + 1 <= hasta && servicio[j + 1] != SIN_SERVICIO && servicio[j + 1] == servicio[j] + 1) j++;
+                sb.append(abierto ? ", " : " (");
+                abierto = true;
+                sb.append(servicio[i]);
+                if (j > i) sb.append('-').append(servicio[j]);
+                i = j + 1;
+            }
+            if (abierto) {
+                sb.append(')');
+            } else if (sinServicio > 1) {
+                sb.append(" (x").append(sinServicio).append(')');
+            }
+        }
+    }
+}
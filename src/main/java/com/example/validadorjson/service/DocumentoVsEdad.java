@@ -0,0 +1,78 @@
+package com.example.validadorjson.service;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tipo de documento frente a la edad (años cumplidos y días de vida), igual para PYP y Morb.
+ */
+final class DocumentoVsEdad {
+
+    /** Tipos de documento permitidos, en el orden en que los lista el reporte. */
+    static final Set<String> VALIDOS = Collections.unmodifiableSet(
+            new LinkedHashSet<>(List.of("MS", "RC", "CE", "TI", "CC", "AS", "PA")));
+
+    private DocumentoVsEdad() {
+    }
+
+    /**
+     * @return el hallazgo para el reporte si el tipo no está entre los permitidos, o null si lo está
+     */
+    static String invalido(String tipoDoc) {
+        return VALIDOS.contains(tipoDoc) ? null : "Tipo de documento inválido: " + tipoDoc + ". Debe ser uno de " + VALIDOS;
+    }
+
+    /**
+     * @return la sugerencia para el reporte si el tipo no corresponde a la edad, o null si corresponde
+     */
+    static String sugerencia(String tipoDoc, int edadAnios, long diasVida) {
+        boolean valido = true;
+        String sugerencia = "";
+
+        switch (tipoDoc) {
+            case "MS":
+                if (diasVida > 30) {
+                    valido = false;
+                    sugerencia = "MS solo es válido hasta 30 días de nacido.";
+                }
+                break;
+            case "RC":
+                if (edadAnios >= 7) {
+                    valido = false;
+                    sugerencia = "RC aplica para menores de 7 años; si tiene >=7 años use TI o CC según corresponda.";
+                }
+                break;
+            case "TI":
+                if (edadAnios < 7 || edadAnios > 17) {
+                    valido = false;
+                    sugerencia = "TI aplica entre 7 y 17 años cumplidos.";
+                }
+                break;
+            case "AS":
+                if (edadAnios <= 17) {
+                    valido = false;
+                    sugerencia = "AS aplica solo para mayores de 17 años (adulto sin identificación).";
+                }
+                break;
+            case "CC":
+                if (edadAnios < 18) {
+                    valido = false;
+                    sugerencia = "CC aplica preferiblemente para mayores de 17 años; revise el tipo de documento.";
+                }
+                break;
+            default:
+                // CE, PA: no reglas estrictas en edad (se aceptan)
+                break;
+        }
+
+        // regla adicional: si es mayor de 17 no puede ser RC/TI/MS
+        if (edadAnios >= 18 && ("RC".equals(tipoDoc) || "TI".equals(tipoDoc) || "MS".equals(tipoDoc))) {
+            valido = false;
+            sugerencia = "Para mayores de 17 años no se debe usar RC/TI/MS; use CC, CE o PA según corresponda.";
+        }
+
+        return valido ? null : sugerencia;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.validadorjson.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.TreeSet;
+
+/**
+ * Huella del catálogo de reglas activo: la versión configurada más el contenido de los sets
+ * de códigos de cada servicio. Si cambia cualquiera de los dos, cambia la huella y los
+ * resultados cacheados con la anterior dejan de usarse.
+ */
+final class HuellaReglas {
+
+    private HuellaReglas() {
+    }
+
+    static String de(String version, Collection<?>... catalogos) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(version.getBytes(StandardCharsets.UTF_8));
+            for (Collection<?> catalogo : catalogos) {
+                md.update((byte) '|');
+                // ordenados: Set.of no garantiza orden de iteración entre ejecuciones
+                for (Object codigo : new TreeSet<>(catalogo.stream().map(String::valueOf).toList())) {
+                    md.update(codigo.toString().getBytes(StandardCharsets.UTF_8));
+                    md.update((byte) ',');
+                }
+            }
+            return version + "-" + HexFormat.of().formatHex(md.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.validadorjson.service;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.columnar.FilasConsulta;
+import com.example.validadorjson.columnar.FilasProcedimiento;
+import com.example.validadorjson.dto.FilaConsulta;
+import com.example.validadorjson.dto.FilaProcedimiento;
+import com.example.validadorjson.dto.Servicios;
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.reporte.Reporte;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Revisiones sobre la factura completa (no por usuario), en una sola pasada:
+ * - el mismo numDocumentoIdentificacion en dos usuarios distintos
+ * - Usuario.consecutivo repetido o faltante (huecos entre 1 y el mayor consecutivo)
+ * - consecutivos de consultas y de procedimientos de cada usuario repetidos o faltantes
+ *
+ * Documentos: tabla hash abierta de índices de usuario (int[]) con el hash del documento al lado,
+ * así solo se comparan cadenas cuando el hash coincide. Consecutivos: BitSet, el de servicios se reutiliza.
+ */
+final class IntegridadFactura {
+
+    // Consecutivos mayores se reportan como fuera de rango en vez de crecer el BitSet sin límite
+    static final int MAX_CONSECUTIVO = 1_000_000;
+
+    // En el agrupado los faltantes de una sección van uno por uno a la lista del usuario; con más que
+    // esto (p. ej. un solo servicio con consecutivo 900000) el usuario queda sin lista y el detalle
+    // conserva los rangos
+    static final int MAX_FALTANTES_AGRUPADO = 1_000;
+
+    private IntegridadFactura() {
+    }
+
+    static void revisar(List<Usuario> usuarios, Reporte errores, AnaliticaErrores analiticaErrores) {
+        int n = usuarios.size();
+        // factor de carga <= 0,5
+        int capacidad = Integer.highestOneBit(Math.max(16, n * 2 - 1)) << 1;
+        int mascara = capacidad - 1;
+        int[] tabla = new int[capacidad];   // índice de usuario + 1; 0 = libre
+        int[] hashes = new int[capacidad];
+        BitSet consecutivosUsuario = new BitSet(n + 1);
+        BitSet consecutivosServicio = new BitSet();
+
+        for (int i = 0; i < n; i++) {
+            Usuario u = usuarios.get(i);
+            if (u == null) continue;
+            String prestador = primerPrestador(u.servicios());
+
+            // Documento repetido en otro usuario
+            String documento = documento(u);
+            if (documento != null) {
+                int h = documento.hashCode();
+                int slot = mezclar(h) & mascara;
+                while (tabla[slot] != 0) {
+                    Usuario otro = usuarios.get(tabla[slot] - 1);
+                    if (hashes[slot] == h && documento.equals(documento(otro))) {
+                        analiticaErrores.registrar(ReglaValidacion.DOCUMENTO_REPETIDO, prestador, u.tipoDocumentoIdentificacion());
+                        errores.hallazgo(ReglaValidacion.DOCUMENTO_REPETIDO, u.tipoDocumentoIdentificacion(), u.consecutivo(),
+                                null, Reporte.SIN_SERVICIO, "Documento " + documento +
+                                " (" + u.tipoDocumentoIdentificacion() + ") repetido: ya aparece en el usuario consecutivo " +
+                                otro.consecutivo() + " (" + otro.tipoDocumentoIdentificacion() + ").");
+                        break;
+                    }
+                    slot = (slot + 1) & mascara;
+                }
+                if (tabla[slot] == 0) {
+                    tabla[slot] = i + 1;
+                    hashes[slot] = h;
+                }
+            }
+
+            // Consecutivo del usuario
+            int c = u.consecutivo();
+            if (c < 1 || c > MAX_CONSECUTIVO) {
+                analiticaErrores.registrar(ReglaValidacion.CONSECUTIVO_USUARIO, prestador, null);
+                errores.hallazgo(ReglaValidacion.CONSECUTIVO_USUARIO, null, "fuera de rango", c, null, Reporte.SIN_SERVICIO,
+                        "Consecutivo de usuario fuera de rango.");
+            } else if (consecutivosUsuario.get(c)) {
+                analiticaErrores.registrar(ReglaValidacion.CONSECUTIVO_USUARIO, prestador, null);
+                errores.hallazgo(ReglaValidacion.CONSECUTIVO_USUARIO, null, "repetido", c, null, Reporte.SIN_SERVICIO,
+                        "Consecutivo de usuario repetido (posición " + (i + 1) + " en la factura).");
+            } else {
+                consecutivosUsuario.set(c);
+            }
+
+            // Consecutivos de sus servicios
+            if (u.servicios() != null) {
+                if (u.servicios().consultas() != null) {
+                    consecutivosServicio.clear();
+                    for (FilaConsulta s : FilasConsulta.recorrer(u.servicios().consultas())) {
+                        if (s == null) continue;
+                        revisarConsecutivo(s.consecutivo(), consecutivosServicio, "consulta",
+                                c, s.codPrestador(), s.codConsulta(), errores, analiticaErrores);
+                    }
+                    faltantes(consecutivosServicio, c, "consulta", prestador, errores, analiticaErrores);
+                }
+                if (u.servicios().procedimientos() != null) {
+                    consecutivosServicio.clear();
+                    for (FilaProcedimiento s : FilasProcedimiento.recorrer(u.servicios().procedimientos())) {
+                        if (s == null) continue;
+                        revisarConsecutivo(s.consecutivo(), consecutivosServicio, "procedimiento",
+                                c, s.codPrestador(), s.codProcedimiento(), errores, analiticaErrores);
+                    }
+                    faltantes(consecutivosServicio, c, "procedimiento", prestador, errores, analiticaErrores);
+                }
+            }
+        }
+
+        faltantes(consecutivosUsuario, 0, "usuario", null, errores, analiticaErrores);
+    }
+
+    private static void revisarConsecutivo(int k, BitSet vistos, String tipo, int consecutivoUsuario,
+                                           String codPrestador, String codigo, Reporte errores, AnaliticaErrores analiticaErrores) {
+        if (k < 1 || k > MAX_CONSECUTIVO) {
+            analiticaErrores.registrar(ReglaValidacion.CONSECUTIVO_SERVICIO, codPrestador, codigo);
+            errores.hallazgo(ReglaValidacion.CONSECUTIVO_SERVICIO, codigo, "fuera de rango", consecutivoUsuario, seccion(tipo), k,
+                    "Consecutivo de " + tipo + " " + k + " fuera de rango.");
+        } else if (vistos.get(k)) {
+            analiticaErrores.registrar(ReglaValidacion.CONSECUTIVO_SERVICIO, codPrestador, codigo);
+            errores.hallazgo(ReglaValidacion.CONSECUTIVO_SERVICIO, codigo, "repetido", consecutivoUsuario, seccion(tipo), k,
+                    "Consecutivo de " + tipo + " " + k + " repetido.");
+        } else {
+            vistos.set(k);
+        }
+    }
+
+    /**
+     * Una línea con los huecos entre 1 y el mayor consecutivo presente, p. ej. "2, 5-9".
+     * tipo "usuario" es el nivel de factura; los demás son servicios del usuario consecutivoUsuario.
+     */
+    private static void faltantes(BitSet presentes, int consecutivoUsuario, String tipo, String codPrestador,
+                                  Reporte errores, AnaliticaErrores analiticaErrores) {
+        int mayor = presentes.length() - 1;
+        int desde = presentes.nextClearBit(1);
+        if (desde > mayor) return;
+
+        boolean esFactura = "usuario".equals(tipo);
+        analiticaErrores.registrar(esFactura ? ReglaValidacion.CONSECUTIVO_USUARIO : ReglaValidacion.CONSECUTIVO_SERVICIO,
+                codPrestador, null);
+        StringBuilder detalle = new StringBuilder("Faltan consecutivos de ").append(tipo).append(": ");
+        // En el reporte agrupado los faltantes de servicios van en la lista del usuario (bit 0 nunca está)
+        int cuantos = mayor - presentes.cardinality();
+        int[] servicios = esFactura || errores.formato() != FormatoReporte.AGRUPADO || cuantos > MAX_FALTANTES_AGRUPADO
+                ? null : new int[cuantos];
+        int k = 0;
+        boolean primero = true;
+        while (desde < mayor) {
+            int hasta = presentes.nextSetBit(desde) - 1;
+            if (!primero) detalle.append(", ");
+            detalle.append(desde);
+            if (hasta > desde) detalle.append('-').append(hasta);
+            if (servicios != null) {
+                for (int s = desde; s <= hasta; s++) servicios[k++] = s;
+            }
+            desde = presentes.nextClearBit(hasta + 1);
+            primero = false;
+        }
+        detalle.append('.');
+        if (esFactura) {
+            errores.hallazgoFactura(detalle);
+        } else if (servicios == null) {
+            errores.hallazgo(ReglaValidacion.CONSECUTIVO_SERVICIO, null, consecutivoUsuario, seccion(tipo),
+                    Reporte.SIN_SERVICIO, detalle);
+        } else {
+            errores.hallazgo(ReglaValidacion.CONSECUTIVO_SERVICIO, null, consecutivoUsuario, seccion(tipo),
+                    servicios, detalle);
+        }
+    }
+
+    /** Prestador del primer servicio del usuario, para atribuir hallazgos a nivel de usuario. */
+    static String primerPrestador(Servicios servicios) {
+        if (servicios == null) return null;
+        if (servicios.consultas() != null) {
+            for (FilaConsulta c : FilasConsulta.recorrer(servicios.consultas())) {
+                if (c != null && c.codPrestador() != null && !c.codPrestador().isBlank()) return c.codPrestador();
+            }
+        }
+        if (servicios.procedimientos() != null) {
+            for (FilaProcedimiento p : FilasProcedimiento.recorrer(servicios.procedimientos())) {
+                if (p != null && p.codPrestador() != null && !p.codPrestador().isBlank()) return p.codPrestador();
+            }
+        }
+        return null;
+    }
+
+    // "consulta" -> "consultas", como el nombre del plan de reglas de esa sección
+    private static String seccion(String tipo) {
+        return "consulta".equals(tipo) ? "consultas" : "procedimientos";
+    }
+
+    private static String documento(Usuario u) {
+        String d = u.numDocumentoIdentificacion();
+        if (d == null) return null;
+        d = d.trim();
+        return d.isEmpty() ? null : d;
+    }
+
+    private static int mezclar(int h) {
+        h *= 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.validadorjson.service;
+
+/**
+ * Reglas que pueden generar hallazgos en los reportes de validación.
+ * La descripción es la misma que aparece en el texto del reporte.
+ */
+public enum ReglaValidacion {
+
+    DOCUMENTO_INVALIDO("Tipo de documento inválido"),
+    DOCUMENTO_VS_EDAD("Tipo de documento no coincide con la edad"),
+    ERROR_FECHAS("Error parseando fechas"),
+    CONSULTA_DUPLICADA("Consulta duplicada"),
+    PROCEDIMIENTO_DUPLICADO("Procedimiento duplicado"),
+    DIAGNOSTICO_VS_FINALIDAD("Diagnóstico vs finalidad"),
+    DIAGNOSTICO_PRINCIPAL("Diagnóstico principal vs relacionados"),
+    DOCUMENTO_REPETIDO("Documento repetido en otro usuario"),
+    CONSECUTIVO_USUARIO("Consecutivo de usuario repetido o faltante"),
+    CONSECUTIVO_SERVICIO("Consecutivo de consulta/procedimiento repetido o faltante"),
+    ERROR_LECTURA("Error de lectura");
+
+    private final String descripcion;
+
+    ReglaValidacion(String descripcion) {
+        this.descripcion = descripcion;
+    }
+
+    public String descripcion() {
+        return descripcion;
+    }
+}
@@ -1,170 +1,262 @@
 package com.example.validadorjson.service;
 
-import com.example.validadorjson.dto.Consulta;
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.columnar.FilaColumnar;
+import com.example.validadorjson.columnar.FilasConsulta;
+import com.example.validadorjson.columnar.FilasProcedimiento;
+import com.example.validadorjson.jfr.FacturaValidacionEvent;
+import com.example.validadorjson.jfr.ReglaEjecutadaEvent;
+import com.example.validadorjson.jfr.ReportePersistidoEvent;
+import com.example.validadorjson.jfr.UsuarioProcesadoEvent;
+import com.example.validadorjson.reglas.ContextoFila;
+import com.example.validadorjson.reglas.Entrada;
+import com.example.validadorjson.reglas.PlanReglas;
+import com.example.validadorjson.reglas.Regla;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.reporte.ReportStore;
+import com.example.validadorjson.reporte.Reporte;
 import com.example.validadorjson.dto.Factura;
-import com.example.validadorjson.dto.Procedimiento;
+import com.example.validadorjson.dto.FilaConsulta;
+import com.example.validadorjson.dto.FilaProcedimiento;
 import com.example.validadorjson.dto.Usuario;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.Period;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.time.temporal.ChronoUnit;
-import java.util.HashSet;
-import java.util.Locale;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ValidadorServiceMorb {
 
-    // Guarda errores por número de factura (para endpoints que quieran consultarlos)
-    private final ConcurrentHashMap<String, StringBuilder> erroresPorFactura = new ConcurrentHashMap<>();
+    // Claves de este servicio en el ReportStore: carpeta + formato + nombre + numFactura
+    private static final String CARPETA_REPORTE = "morb/";
+    private static final String NOMBRE_REPORTE = "errores_validacion_fact_";
+
+    // Modo con que se etiquetan los eventos JFR
+    private static final String MODO = "Morb";
+
+
+    // Contadores agregados de hallazgos (regla x prestador x código)
+    private final AnaliticaErrores analiticaErrores;
+
+
+    // Huella de validador.reglas.version + catálogos de códigos (ver versionReglas())
+    private final String huellaReglas;
+
+    // Dónde quedan los reportes (memoria, disco o almacén en red)
+    private final ReportStore reportStore;
+
+    // Reglas por servicio; el orden de evaluación lo decide el planificador (ver planes())
+    private final PlanReglas<FilaConsulta> planConsultas;
+    private final PlanReglas<FilaProcedimiento> planProcedimientos;
+
+    public ValidadorServiceMorb(AnaliticaErrores analiticaErrores,
+                                ReportStore reportStore,
+                                @Value("${validador.reglas.version:2}") String versionReglas) {
+        this.analiticaErrores = analiticaErrores;
+        this.reportStore = reportStore;
+        this.huellaReglas = HuellaReglas.de(versionReglas, DocumentoVsEdad.VALIDOS);
+        this.planConsultas = PlanReglas.de(MODO, "consultas", List.of(
+                new Regla<>("consultaDuplicada", 3, 0.02, EnumSet.of(Entrada.DIA_ATENCION), List.of(),
+                        ctx -> ctx.servicio() instanceof FilaColumnar<?> f ? f.repetida()
+                                : !ctx.claves().add(claveDuplicado(ctx, ctx.servicio().codConsulta(),
+                                ctx.servicio().finalidadTecnologiaSalud(), ctx.servicio().codDiagnosticoPrincipal())),
+                        (ctx, errores) -> {
+                            FilaConsulta c = ctx.servicio();
+                            analiticaErrores.registrar(ReglaValidacion.CONSULTA_DUPLICADA, c.codPrestador(), c.codConsulta());
+                            reportar(ctx, errores, ReglaValidacion.CONSULTA_DUPLICADA, c.codConsulta(), detalleError(
+                                    "Consulta duplicada",
+                                    ctx.fechaAtencion(),
+                                    c.codConsulta(),
+                                    "El paciente tiene otra consulta con el mismo código, finalidad y diagnóstico en la misma fecha."));
+                        }),
+                reglaFechas(),
+                reglaDocumentoValido(),
+                reglaDocumentoVsEdad()));
+        this.planProcedimientos = PlanReglas.de(MODO, "procedimientos", List.of(
+                new Regla<>("procedimientoDuplicado", 3, 0.02, EnumSet.of(Entrada.DIA_ATENCION), List.of(),
+                        ctx -> ctx.servicio() instanceof FilaColumnar<?> f ? f.repetida()
+                                : !ctx.claves().add(claveDuplicado(ctx, ctx.servicio().codProcedimiento(),
+                                ctx.servicio().finalidadTecnologiaSalud(), ctx.servicio().codDiagnosticoPrincipal())),
+                        (ctx, errores) -> {
+                            FilaProcedimiento p = ctx.servicio();
+                            analiticaErrores.registrar(ReglaValidacion.PROCEDIMIENTO_DUPLICADO, p.codPrestador(), p.codProcedimiento());
+                            reportar(ctx, errores, ReglaValidacion.PROCEDIMIENTO_DUPLICADO, p.codProcedimiento(), detalleError(
+                                    "Procedimiento duplicado",
+                                    ctx.fechaAtencion(),
+                                    p.codProcedimiento(),
+                                    "El paciente tiene otro procedimiento con el mismo código, finalidad y diagnóstico en la misma fecha. "
+                                            + "(Consecutivo procedimiento: " + p.consecutivo() + ")"));
+                        }),
+                reglaFechas(),
+                reglaDocumentoValido(),
+                reglaDocumentoVsEdad()));
+    }
+
+    /**
+     * Versión de las reglas con que se genera el reporte, para la caché de resultados.
+     * Aquí la edad se calcula contra la fecha de atención, así que no depende del día.
+     */
+    public String versionReglas() {
+        return huellaReglas;
+    }
 
-    private static final Set<String> DOCUMENTOS_VALIDOS = Set.of("CC", "CE", "PA", "RC", "TI", "AS", "MS");
-    private static final DateTimeFormatter FN_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter FA_FMT_MIN = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-    private static final DateTimeFormatter FA_FMT_SEC = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /** Orden de evaluación elegido y costo observado por regla. */
+    public List<PlanReglas.ResumenPlan> planes() {
+        return List.of(planConsultas.resumen(), planProcedimientos.resumen());
+    }
 
        /**
      * Valida la factura completa y devuelve un ByteArrayResource con el contenido TXT para descargar.
-     * También guarda el contenido en memoria (erroresPorFactura) y opcionalmente en disco.
+     * También guarda el contenido en el ReportStore para consultas posteriores desde cualquier instancia.
      */
     public ByteArrayResource validarFactura(Factura factura) {
+        return validarFactura(factura, FormatoReporte.DETALLADO);
+    }
+
+    /**
+     * Igual, con el reporte en el formato pedido (detallado, o agrupado por regla, código y sección).
+     */
+    public ByteArrayResource validarFactura(Factura factura, FormatoReporte formato) {
         String numFactura = Optional.ofNullable(factura.numFactura()).orElse("sin_numfact");
-        StringBuilder errores = new StringBuilder();
+        Reporte errores = new Reporte(formato);
 
         // Cabecera resumen (puedes enriquecer más adelante)
-        errores.append("Validación factura: ").append(numFactura).append(System.lineSeparator());
-        errores.append("==========================================================================").append(System.lineSeparator());
+        errores.linea("Validación factura: " + numFactura);
+        errores.linea("==========================================================================");
+        FacturaValidacionEvent evFactura = FacturaValidacionEvent.iniciar(errores);
 
         // Recorremos usuarios (cada usuario tiene sus servicios)
         if (factura.usuarios() != null) {
+            // Revisiones de toda la factura: documentos repetidos entre usuarios y secuencia de consecutivos
+            ReglaEjecutadaEvent evIntegridad = ReglaEjecutadaEvent.iniciar(errores);
+            IntegridadFactura.revisar(factura.usuarios(), errores, analiticaErrores);
+            evIntegridad.terminar(MODO, "revisarIntegridadFactura", numFactura, 0, 0, errores);
             for (Usuario usuario : factura.usuarios()) {
-                procesarUsuario(usuario, errores);
+                UsuarioProcesadoEvent evUsuario = UsuarioProcesadoEvent.iniciar(errores);
+                procesarUsuario(usuario, errores, numFactura);
+                evUsuario.terminar(MODO, numFactura, usuario, errores);
             }
         } else {
-            errores.append("⚠️ No se encontraron usuarios en la factura.").append(System.lineSeparator());
+            errores.linea("⚠️ No se encontraron usuarios en la factura.");
         }
 
-        // Guardamos en memoria para posibles consultas posteriores
-        erroresPorFactura.put(numFactura, errores);
-
-        // Opcional: también escribir al disco (si lo deseas)
-        String outputPath = "errores_validacion_fact_" + numFactura + ".txt";
+        // Guardamos para posibles consultas posteriores (cualquier instancia puede servirlo)
+        byte[] reporte = errores.bytes();
+        String clave = claveReporte(formato, numFactura);
+        ReportePersistidoEvent evReporte = ReportePersistidoEvent.iniciar();
         try {
-            Files.write(Paths.get(outputPath), errores.toString().getBytes(StandardCharsets.UTF_8));
+            reportStore.guardar(clave, reporte);
+            evReporte.terminar(MODO, numFactura, clave, reporte.length, true);
         } catch (Exception e) {
+            evReporte.terminar(MODO, numFactura, clave, reporte.length, false);
             // no interrumpe la respuesta, solo anotamos en el propio texto
-            errores.append("⚠️ No se pudo escribir archivo en disco: ").append(e.getMessage()).append(System.lineSeparator());
+            errores.linea("⚠️ No se pudo guardar el reporte: " + e.getMessage());
+            reporte = errores.bytes();
         }
 
+        evFactura.terminar(MODO, numFactura, factura, errores);
+
         // Devolver como recurso en memoria
-        return new ByteArrayResource(errores.toString().getBytes(StandardCharsets.UTF_8));
+        return new ByteArrayResource(reporte);
     }
 
     /**
      * Recupera errores por número de factura (útil si tienes endpoint GET /descargar/{numFactura}).
      */
     public StringBuilder obtenerErrores(String numFactura) {
-        return erroresPorFactura.getOrDefault(numFactura,
-                new StringBuilder("⚠️ No se encontraron errores para esta factura."));
+        return obtenerErrores(numFactura, FormatoReporte.DETALLADO);
+    }
+
+    public StringBuilder obtenerErrores(String numFactura, FormatoReporte formato) {
+        try {
+            Optional<byte[]> reporte = reportStore.obtener(claveReporte(formato, numFactura));
+            if (reporte.isPresent()) {
+                return new StringBuilder(new String(reporte.get(), StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            return new StringBuilder("⚠️ No se pudo leer el reporte: " + e.getMessage());
+        }
+        return new StringBuilder("⚠️ No se encontraron errores para esta factura.");
+    }
+
+    /**
+     * Vuelve a guardar un reporte ya generado (p. ej. servido desde la caché de resultados) como el
+     * último de esa factura, para que {@link #obtenerErrores} lo devuelva en cualquier instancia.
+     */
+    public void publicar(String numFactura, FormatoReporte formato, byte[] reporte) throws IOException {
+        reportStore.guardar(claveReporte(formato, numFactura), reporte);
+    }
+
+    private static String claveReporte(FormatoReporte formato, String numFactura) {
+        return CARPETA_REPORTE + formato.carpeta() + NOMBRE_REPORTE + numFactura;
     }
 
     /* --------------------------- Procesamiento por usuario --------------------------- */
 
-    private void procesarUsuario(Usuario usuario, StringBuilder errores) {
+    /**
+     * @param numFactura solo para etiquetar los eventos JFR de las reglas
+     */
+    private void procesarUsuario(Usuario usuario, Reporte errores, String numFactura) {
         if (usuario == null) return;
 
         int consecutivoUsuario = usuario.consecutivo();
-        String pacienteDocumento = Optional.ofNullable(usuario.numDocumentoIdentificacion())
-                .orElse("ND-" + consecutivoUsuario);
-
-        // Sets para detectar duplicados por paciente (por día)
-        Set<String> consultasUnicas = new HashSet<>();
-        Set<String> procedimientosUnicos = new HashSet<>();
 
         if (usuario.servicios() == null) {
-            errores.append("Usuario consecutivo ").append(consecutivoUsuario)
-                    .append(" -> No tiene sección 'servicios'.").append(System.lineSeparator());
+            errores.linea("Usuario consecutivo " + consecutivoUsuario + " -> No tiene sección 'servicios'.");
             return;
         }
 
         // Consultas
         if (usuario.servicios().consultas() != null) {
-            for (Consulta c : usuario.servicios().consultas()) {
+            ContextoFila<FilaConsulta> ctx = planConsultas.iniciar(numFactura, usuario);
+            for (FilaConsulta c : FilasConsulta.recorrer(usuario.servicios().consultas())) {
                 try {
                     String fechaAt = Optional.ofNullable(c.fechaInicioAtencion()).orElse("");
-                    String dateKey = fechaAt.length() >= 10 ? fechaAt.substring(0, 10) : fechaAt;
-
-                    String key = pacienteDocumento + "_" +
-                            safeString(c.codConsulta()) + "_" +
-                            safeString(c.finalidadTecnologiaSalud()) + "_" +
-                            safeString(c.codDiagnosticoPrincipal()) + "_" +
-                            dateKey;
-
-                    if (!consultasUnicas.add(key)) {
-                        registrarError(errores, consecutivoUsuario,
-                                "Consulta duplicada",
-                                fechaAt,
-                                c.codConsulta(),
-                                "El paciente tiene otra consulta con el mismo código, finalidad y diagnóstico en la misma fecha.");
-                    }
-
-                    int edad = calcularEdadEnAtencionSafe(usuario.fechaNacimiento(), fechaAt, errores, consecutivoUsuario);
-                    validarDocumentoSegunEdad(usuario, fechaAt, edad, errores);
-
-
+                    ctx.fila(c, c.consecutivo(), c.codPrestador(), fechaAt, FilaColumnar.atencion(c), c.codDiagnosticoPrincipal())
+                            .ejecutar(errores);
                 } catch (Exception ex) {
-                    registrarError(errores, consecutivoUsuario, "Error lectura consulta",
-                            c != null ? c.fechaInicioAtencion() : "N/A",
-                            c != null ? c.codConsulta() : "N/A",
-                            "Error procesando consulta: " + ex.getMessage());
+                    analiticaErrores.registrar(ReglaValidacion.ERROR_LECTURA,
+                            c != null ? c.codPrestador() : null,
+                            c != null ? c.codConsulta() : null);
+                    errores.hallazgo(ReglaValidacion.ERROR_LECTURA, c != null ? c.codConsulta() : null, ex.getMessage(), consecutivoUsuario,
+                            "consultas", c != null ? c.consecutivo() : Reporte.SIN_SERVICIO,
+                            detalleError("Error lectura consulta",
+                                    c != null ? c.fechaInicioAtencion() : "N/A",
+                                    c != null ? c.codConsulta() : "N/A",
+                                    "Error procesando consulta: " + ex.getMessage()));
                 }
             }
+            ctx.terminar();
         }
 
 
         // Procedimientos
         if (usuario.servicios().procedimientos() != null) {
-            for (Procedimiento p : usuario.servicios().procedimientos()) {
+            ContextoFila<FilaProcedimiento> ctx = planProcedimientos.iniciar(numFactura, usuario);
+            for (FilaProcedimiento p : FilasProcedimiento.recorrer(usuario.servicios().procedimientos())) {
                 try {
                     String fechaAt = Optional.ofNullable(p.fechaInicioAtencion()).orElse("");
-                    String dateKey = fechaAt.length() >= 10 ? fechaAt.substring(0, 10) : fechaAt;
-
-                    String key = pacienteDocumento + "_" +
-                            safeString(p.codProcedimiento()) + "_" +
-                            safeString(p.finalidadTecnologiaSalud()) + "_" +
-                            safeString(p.codDiagnosticoPrincipal()) + "_" +
-                            dateKey;
-
-                    if (!procedimientosUnicos.add(key)) {
-                        registrarError(errores, consecutivoUsuario,
-                                "Procedimiento duplicado",
-                                fechaAt,
-                                p.codProcedimiento(),
-                                "El paciente tiene otro procedimiento con el mismo código, finalidad y diagnóstico en la misma fecha. "
-                                        + "(Consecutivo procedimiento: " + p.consecutivo() + ")");
-                    }
-
-                    int edad = calcularEdadEnAtencionSafe(usuario.fechaNacimiento(), fechaAt, errores, consecutivoUsuario);
-                    validarDocumentoSegunEdad(usuario, fechaAt, edad, errores);
-
-
+                    ctx.fila(p, p.consecutivo(), p.codPrestador(), fechaAt, FilaColumnar.atencion(p), p.codDiagnosticoPrincipal())
+                            .ejecutar(errores);
                 } catch (Exception ex) {
-                    registrarError(errores, consecutivoUsuario, "Error lectura procedimiento",
-                            p != null ? p.fechaInicioAtencion() : "N/A",
-                            p != null ? p.codProcedimiento() : "N/A",
-                            "Error procesando procedimiento: " + ex.getMessage());
+                    analiticaErrores.registrar(ReglaValidacion.ERROR_LECTURA,
+                            p != null ? p.codPrestador() : null,
+                            p != null ? p.codProcedimiento() : null);
+                    errores.hallazgo(ReglaValidacion.ERROR_LECTURA, p != null ? p.codProcedimiento() : null, ex.getMessage(), consecutivoUsuario,
+                            "procedimientos", p != null ? p.consecutivo() : Reporte.SIN_SERVICIO,
+                            detalleError("Error lectura procedimiento",
+                                    p != null ? p.fechaInicioAtencion() : "N/A",
+                                    p != null ? p.codProcedimiento() : "N/A",
+                                    "Error procesando procedimiento: " + ex.getMessage()));
                 }
             }
+            ctx.terminar();
         }
     }
 
@@ -175,133 +267,88 @@ public class ValidadorServiceMorb {
      */
 
     /**
-     * Reglas para validar el tipo de documento frente a la edad (años/días).
+     * Fechas de nacimiento/atención que no se pueden leer; las demás reglas reutilizan el mismo parseo.
      */
-    private void validarDocumentoSegunEdad(Usuario usuario, String fechaAtencion, int edadAnios, StringBuilder errores) {
-        String tipoDoc = Optional.ofNullable(usuario.tipoDocumentoIdentificacion()).orElse("");
-        int consecutivoUsuario = usuario.consecutivo();
-
-        // validar que el tipo esté dentro de los permitidos
-        if (!DOCUMENTOS_VALIDOS.contains(tipoDoc)) {
-            String msg = "Usuario consecutivo " + consecutivoUsuario +
-                    " -> Tipo de documento inválido: " + tipoDoc +
-                    ". Debe ser uno de " + DOCUMENTOS_VALIDOS;
-            appendError(errores, msg);
-            return;
-        }
-
-        // calcular días de vida en la fecha de atención (para validar MS)
-        LocalDate fechaNacimiento;
-        LocalDate fechaAt;
-        try {
-            fechaNacimiento = LocalDate.parse(usuario.fechaNacimiento(), FN_FMT);
-            fechaAt = parseFechaAtencionToLocalDate(fechaAtencion);
-        } catch (DateTimeParseException ex) {
-            appendError(errores, "Usuario consecutivo " + consecutivoUsuario + " -> Error parseando fechas: " + ex.getMessage());
-            return;
-        }
-        long diasVida = ChronoUnit.DAYS.between(fechaNacimiento, fechaAt);
-
-        boolean valido = true;
-        String sugerencia = "";
-
-        switch (tipoDoc) {
-            case "MS":
-                if (diasVida > 30) {
-                    valido = false;
-                    sugerencia = "MS solo es válido hasta 30 días de nacido.";
-                }
-                break;
-            case "RC":
-                if (edadAnios >= 7) {
-                    valido = false;
-                    sugerencia = "RC aplica para menores de 7 años; si tiene >=7 años use TI o CC según corresponda.";
-                }
-                break;
-            case "TI":
-                if (edadAnios < 7 || edadAnios > 17) {
-                    valido = false;
-                    sugerencia = "TI aplica entre 7 y 17 años cumplidos.";
-                }
-                break;
-            case "AS":
-                if (edadAnios <= 17) {
-                    valido = false;
-                    sugerencia = "AS aplica solo para mayores de 17 años (adulto sin identificación).";
-                }
-                break;
-            case "CC":
-                if (edadAnios < 18) {
-                    valido = false;
-                    sugerencia = "CC aplica preferiblemente para mayores de 17 años; revise el tipo de documento.";
-                }
-                break;
-            default:
-                // CE, PA: no reglas estrictas en edad (se aceptan)
-                break;
-        }
-
-        // regla adicional: si es mayor de 17 no puede ser RC/TI/MS
-        if (edadAnios >= 18 && ("RC".equals(tipoDoc) || "TI".equals(tipoDoc) || "MS".equals(tipoDoc))) {
-            valido = false;
-            sugerencia = "Para mayores de 17 años no se debe usar RC/TI/MS; use CC, CE o PA según corresponda.";
-        }
-
-        if (!valido) {
-            String msg = "Usuario consecutivo " + consecutivoUsuario +
-                    " -> Tipo de documento no coincide con la edad (" + edadAnios + " años, " + diasVida + " días). " + sugerencia;
-            appendError(errores, msg);
-        }
+    private <S> Regla<S> reglaFechas() {
+        return new Regla<>("fechas", 1, 0.01, EnumSet.of(Entrada.FECHA_NACIMIENTO, Entrada.FECHA_ATENCION), List.of(),
+                ctx -> ctx.errorFechas() != null,
+                (ctx, errores) -> {
+                    analiticaErrores.registrar(ReglaValidacion.ERROR_FECHAS, ctx.codPrestador(), null);
+                    reportar(ctx, errores, ReglaValidacion.ERROR_FECHAS, null, ctx.errorFechas().getMessage(),
+                            "Error parseando fechaNacimiento/fechaAtencion: " + ctx.errorFechas().getMessage());
+                });
     }
 
-    /* --------------------------- Utilidades y helpers --------------------------- */
-
-    private int calcularEdadEnAtencionSafe(String fechaNacimiento, String fechaAtencion, StringBuilder errores, int consecutivoUsuario) {
-        try {
-            LocalDate fn = LocalDate.parse(fechaNacimiento, FN_FMT);
-            LocalDate fa = parseFechaAtencionToLocalDate(fechaAtencion);
-            return Period.between(fn, fa).getYears();
-        } catch (DateTimeParseException ex) {
-            appendError(errores, "Usuario consecutivo " + consecutivoUsuario + " -> Error parseando fechaNacimiento/fechaAtencion: " + ex.getMessage());
-            return -1;
-        }
+    /**
+     * El tipo de documento debe estar dentro de los permitidos; si no, no se compara con la edad.
+     */
+    private <S> Regla<S> reglaDocumentoValido() {
+        return new Regla<>("documentoValido", 1, 0.01, EnumSet.of(Entrada.TIPO_DOCUMENTO), List.of(),
+                ctx -> !DocumentoVsEdad.VALIDOS.contains(ctx.tipoDocumento()),
+                (ctx, errores) -> {
+                    String tipoDoc = ctx.tipoDocumento();
+                    analiticaErrores.registrar(ReglaValidacion.DOCUMENTO_INVALIDO, ctx.codPrestador(), tipoDoc);
+                    reportar(ctx, errores, ReglaValidacion.DOCUMENTO_INVALIDO, tipoDoc, DocumentoVsEdad.invalido(tipoDoc));
+                });
     }
 
-    private LocalDate parseFechaAtencionToLocalDate(String fechaAtencion) {
-        if (fechaAtencion == null || fechaAtencion.isBlank()) {
-            throw new DateTimeParseException("fechaInicioAtencion vacía", fechaAtencion, 0);
-        }
+    /**
+     * Tipo de documento frente a la edad (años/días) en la fecha de atención. La condición guarda la
+     * sugerencia en el contexto y el reporte la reutiliza.
+     */
+    private <S> Regla<S> reglaDocumentoVsEdad() {
+        return new Regla<>("documentoVsEdad", 2, 0.05,
+                EnumSet.of(Entrada.TIPO_DOCUMENTO, Entrada.EDAD, Entrada.DIAS_VIDA), List.of("documentoValido"),
+                ctx -> {
+                    if (ctx.errorFechas() != null) return true;
+                    String sugerencia = DocumentoVsEdad.sugerencia(ctx.tipoDocumento(), ctx.edad(), ctx.diasVida());
+                    ctx.guardarResultado(sugerencia);
+                    return sugerencia != null;
+                },
+                (ctx, errores) -> {
+                    String tipoDoc = ctx.tipoDocumento();
+                    DateTimeParseException ex = ctx.errorFechas();
+                    if (ex != null) {
+                        analiticaErrores.registrar(ReglaValidacion.ERROR_FECHAS, ctx.codPrestador(), tipoDoc);
+                        reportar(ctx, errores, ReglaValidacion.ERROR_FECHAS, tipoDoc, ex.getMessage(), "Error parseando fechas: " + ex.getMessage());
+                        return;
+                    }
+                    int edadAnios = ctx.edad();
+                    long diasVida = ctx.diasVida();
+                    analiticaErrores.registrar(ReglaValidacion.DOCUMENTO_VS_EDAD, ctx.codPrestador(), tipoDoc);
+                    String sugerencia = ctx.resultado();
+                    reportar(ctx, errores, ReglaValidacion.DOCUMENTO_VS_EDAD, tipoDoc, sugerencia,
+                            "Tipo de documento no coincide con la edad (" + edadAnios + " años, " + diasVida + " días). " + sugerencia);
+                });
+    }
 
-        // intentamos varios formatos comunes
-        try {
-            return LocalDateTime.parse(fechaAtencion, FA_FMT_MIN).toLocalDate();
-        } catch (DateTimeParseException ignored) { }
-        try {
-            return LocalDateTime.parse(fechaAtencion, FA_FMT_SEC).toLocalDate();
-        } catch (DateTimeParseException ignored) { }
-        try {
-            // caso ISO como 2025-04-22T13:57:00
-            return LocalDateTime.parse(fechaAtencion).toLocalDate();
-        } catch (DateTimeParseException ignored) { }
+    /* --------------------------- Utilidades y helpers --------------------------- */
 
-        // fallback: si vienen al menos yyyy-MM-dd
-        if (fechaAtencion.length() >= 10) {
-            return LocalDate.parse(fechaAtencion.substring(0, 10), FN_FMT);
-        }
-        throw new DateTimeParseException("Formato de fecha inválido para fechaInicioAtencion", fechaAtencion, 0);
+    // Mismo código, finalidad y diagnóstico principal en el mismo día
+    private String claveDuplicado(ContextoFila<?> ctx, String codigo, String finalidad, String diagnostico) {
+        return ctx.pacienteDocumento() + "_" +
+                safeString(codigo) + "_" +
+                safeString(finalidad) + "_" +
+                safeString(diagnostico) + "_" +
+                ctx.diaAtencion();
     }
 
-    private void registrarError(StringBuilder errores, int consecutivoUsuario, String tipoError, String fecha, String codigo, String detalle) {
-        String msg = "Usuario consecutivo " + consecutivoUsuario +
-                " -> " + tipoError +
+    private String detalleError(String tipoError, String fecha, String codigo, String detalle) {
+        return tipoError +
                 " en " + (fecha == null ? "N/A" : fecha) +
                 " con código " + safeString(codigo) +
                 ". " + detalle;
-        appendError(errores, msg);
     }
 
-    private void appendError(StringBuilder sb, String line) {
-        sb.append(line).append(System.lineSeparator());
+    // Hallazgo sobre el servicio de la fila actual del plan
+    private static void reportar(ContextoFila<?> ctx, Reporte errores, ReglaValidacion regla, String codigo, String detalle) {
+        reportar(ctx, errores, regla, codigo, null, detalle);
+    }
+
+    // variante: caso de la regla con otro texto para el mismo código (ver Reporte)
+    private static void reportar(ContextoFila<?> ctx, Reporte errores, ReglaValidacion regla, String codigo, String variante,
+                                 String detalle) {
+        errores.hallazgo(regla, codigo, variante, ctx.consecutivoUsuario(), ctx.seccion(), ctx.consecutivo(), detalle);
     }
 
     private String safeString(Object o) {
@@ -1,31 +1,44 @@
 package com.example.validadorjson.service;
 
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.columnar.FilaColumnar;
+import com.example.validadorjson.columnar.FilasConsulta;
+import com.example.validadorjson.columnar.FilasProcedimiento;
+import com.example.validadorjson.jfr.FacturaValidacionEvent;
+import com.example.validadorjson.jfr.ReglaEjecutadaEvent;
+import com.example.validadorjson.jfr.ReportePersistidoEvent;
+import com.example.validadorjson.jfr.UsuarioProcesadoEvent;
+import com.example.validadorjson.reglas.ContextoFila;
+import com.example.validadorjson.reglas.Entrada;
+import com.example.validadorjson.reglas.Fechas;
+import com.example.validadorjson.reglas.PlanReglas;
+import com.example.validadorjson.reglas.Regla;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.reporte.ReportStore;
+import com.example.validadorjson.reporte.Reporte;
 import com.example.validadorjson.dto.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.Period;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ValidadorServicePYP {
 
-    // Guarda errores por número de factura (para endpoints que quieran consultarlos)
-    private final ConcurrentHashMap<String, StringBuilder> erroresPorFactura = new ConcurrentHashMap<>();
+    // Claves de este servicio en el ReportStore: carpeta + formato + nombre + numFactura
+    private static final String CARPETA_REPORTE = "pyp/";
+    private static final String NOMBRE_REPORTE = "errores_validacion_fact_";
 
-    private static final Set<String> DOCUMENTOS_VALIDOS = Set.of("CC", "CE", "PA", "RC", "TI", "AS", "MS");
-    private static final DateTimeFormatter FN_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter FA_FMT_MIN = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-    private static final DateTimeFormatter FA_FMT_SEC = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Modo con que se etiquetan los eventos JFR
+    private static final String MODO = "PYP";
 
     // Lista de diagnósticos Z30x que requieren finalidad "19"
     private static final Set<String> DIAGNOSTICOS_PLANIFICACION = Set.of(
@@ -67,149 +80,269 @@ public class ValidadorServicePYP {
             "997002"
     );
 
+    // Contadores agregados de hallazgos (regla x prestador x código)
+    private final AnaliticaErrores analiticaErrores;
+
+    // Huella de validador.reglas.version + catálogos de códigos (ver versionReglas())
+    private final String huellaReglas;
+
+    // Dónde quedan los reportes (memoria, disco o almacén en red)
+    private final ReportStore reportStore;
+
+    // "Hoy" para documento vs edad; fijo en pruebas
+    private final Clock reloj;
+
+    // Reglas por servicio; el orden de evaluación lo decide el planificador (ver planes())
+    private final PlanReglas<FilaConsulta> planConsultas;
+    private final PlanReglas<FilaProcedimiento> planProcedimientos;
+
+    public ValidadorServicePYP(AnaliticaErrores analiticaErrores,
+                               ReportStore reportStore,
+                               @Value("${validador.reglas.version:2}") String versionReglas,
+                               Clock reloj) {
+        this.analiticaErrores = analiticaErrores;
+        this.reportStore = reportStore;
+        this.reloj = reloj;
+        this.huellaReglas = HuellaReglas.de(versionReglas, DocumentoVsEdad.VALIDOS, DIAGNOSTICOS_PLANIFICACION, DIAGNOSTICOS_PRENATAL,
+                DIAGNOSTICOS_VALIDOS, CUPS_QUE_PUEDEN_REPETIRSE, CUPS_QUE_NO_PUEDEN_REPETIRSE_EN_PROCEDIMIENTOS);
+        // Sin requiere: en PYP cada regla reporta aunque otra haya encontrado algo en la misma fila
+        // (una consulta duplicada también se revisa por finalidad y diagnóstico, y una fecha ilegible
+        // no impide las demás, que no usan fechas). Declarar una dependencia quitaría hallazgos.
+        this.planConsultas = PlanReglas.de(MODO, "consultas", List.of(
+                new Regla<>("consultaDuplicada", 3, 0.02, EnumSet.of(Entrada.DIA_ATENCION), List.of(),
+                        ctx -> ctx.servicio() instanceof FilaColumnar<?> f ? f.repetida()
+                                : !ctx.claves().add(claveDuplicado(ctx, ctx.servicio().codConsulta(),
+                                ctx.servicio().finalidadTecnologiaSalud(), ctx.servicio().codDiagnosticoPrincipal())),
+                        (ctx, errores) -> {
+                            FilaConsulta c = ctx.servicio();
+                            analiticaErrores.registrar(ReglaValidacion.CONSULTA_DUPLICADA, c.codPrestador(), c.codConsulta());
+                            reportar(ctx, errores, ReglaValidacion.CONSULTA_DUPLICADA, c.codConsulta(), detalleError(
+                                    "Consulta duplicada",
+                                    ctx.fechaAtencion(),
+                                    c.codConsulta(),
+                                    "El paciente tiene otra consulta con el mismo código, finalidad y diagnóstico en la misma fecha."));
+                        }),
+                reglaFechas(),
+                new Regla<>("diagnosticoVsFinalidad", 2, 0.05, EnumSet.of(Entrada.DIAGNOSTICO), List.of(),
+                        ctx -> finalidadNoCorresponde(ctx.diagnostico(), ctx.servicio().finalidadTecnologiaSalud()),
+                        (ctx, errores) -> validarDiagnosticoVsFinalidadEnConsulta(ctx, errores)),
+                new Regla<>("diagnosticoPrincipalVsRelacionados", 1, 0.3, EnumSet.noneOf(Entrada.class), List.of(),
+                        ctx -> !DIAGNOSTICOS_VALIDOS.contains(safeString(ctx.servicio().codDiagnosticoPrincipal())),
+                        (ctx, errores) -> {
+                            FilaConsulta c = ctx.servicio();
+                            validarDiagnosticoPrincipalVsRelacionados(
+                                    c.codDiagnosticoPrincipal(),
+                                    c.codDiagnosticoRelacionado1(),
+                                    c.codDiagnosticoRelacionado2(),
+                                    ctx,
+                                    errores,
+                                    "Consulta",
+                                    ctx.fechaAtencion(),
+                                    c.codConsulta(),
+                                    c.codPrestador()
+                            );
+                        })));
+        this.planProcedimientos = PlanReglas.de(MODO, "procedimientos", List.of(
+                new Regla<>("procedimientoDuplicado", 3, 0.02, EnumSet.of(Entrada.DIA_ATENCION), List.of(),
+                        ctx -> ctx.servicio() instanceof FilaColumnar<?> f ? f.repetida()
+                                : !ctx.claves().add(claveDuplicado(ctx, ctx.servicio().codProcedimiento(),
+                                ctx.servicio().finalidadTecnologiaSalud(), ctx.servicio().codDiagnosticoPrincipal())),
+                        (ctx, errores) -> {
+                            FilaProcedimiento p = ctx.servicio();
+                            analiticaErrores.registrar(ReglaValidacion.PROCEDIMIENTO_DUPLICADO, p.codPrestador(), p.codProcedimiento());
+                            reportar(ctx, errores, ReglaValidacion.PROCEDIMIENTO_DUPLICADO, p.codProcedimiento(), detalleError(
+                                    "Procedimiento duplicado",
+                                    ctx.fechaAtencion(),
+                                    p.codProcedimiento(),
+                                    "El paciente tiene otro procedimiento con el mismo código, finalidad y diagnóstico en la misma fecha. "
+                                            + "(Consecutivo procedimiento: " + p.consecutivo() + ")"));
+                        }),
+                reglaFechas()));
+    }
+
+    /**
+     * Versión de las reglas con que se genera el reporte, para la caché de resultados.
+     * Incluye la fecha de hoy porque documento vs edad se calcula contra la fecha actual:
+     * el mismo JSON puede dar otro reporte al día siguiente.
+     */
+    public String versionReglas() {
+        return huellaReglas + "@" + LocalDate.now(reloj);
+    }
 
+    /** Orden de evaluación elegido y costo observado por regla. */
+    public List<PlanReglas.ResumenPlan> planes() {
+        return List.of(planConsultas.resumen(), planProcedimientos.resumen());
+    }
 
     /**
      * Valida la factura completa y devuelve un ByteArrayResource con el contenido TXT para descargar.
-     * También guarda el contenido en memoria (erroresPorFactura) y opcionalmente en disco.
+     * También guarda el contenido en el ReportStore para consultas posteriores desde cualquier instancia.
      */
     public ByteArrayResource validarFactura(Factura factura) {
+        return validarFactura(factura, FormatoReporte.DETALLADO);
+    }
+
+    /**
+     * Igual, con el reporte en el formato pedido (detallado, o agrupado por regla, código y sección).
+     */
+    public ByteArrayResource validarFactura(Factura factura, FormatoReporte formato) {
         String numFactura = Optional.ofNullable(factura.numFactura()).orElse("sin_numfact");
-        StringBuilder errores = new StringBuilder();
+        Reporte errores = new Reporte(formato);
 
         // Cabecera resumen (puedes enriquecer más adelante)
-        errores.append("Validación factura: ").append(numFactura).append(System.lineSeparator());
-        errores.append("==========================================================================").append(System.lineSeparator());
+        errores.linea("Validación factura: " + numFactura);
+        errores.linea("==========================================================================");
+        FacturaValidacionEvent evFactura = FacturaValidacionEvent.iniciar(errores);
 
         // Recorremos usuarios (cada usuario tiene sus servicios)
         if (factura.usuarios() != null) {
+            // Revisiones de toda la factura: documentos repetidos entre usuarios y secuencia de consecutivos
+            ReglaEjecutadaEvent evIntegridad = ReglaEjecutadaEvent.iniciar(errores);
+            IntegridadFactura.revisar(factura.usuarios(), errores, analiticaErrores);
+            evIntegridad.terminar(MODO, "revisarIntegridadFactura", numFactura, 0, 0, errores);
             for (Usuario usuario : factura.usuarios()) {
-                procesarUsuario(usuario, errores);
+                UsuarioProcesadoEvent evUsuario = UsuarioProcesadoEvent.iniciar(errores);
+                procesarUsuario(usuario, errores, numFactura);
+                evUsuario.terminar(MODO, numFactura, usuario, errores);
             }
         } else {
-            errores.append("⚠️ No se encontraron usuarios en la factura.").append(System.lineSeparator());
+            errores.linea("⚠️ No se encontraron usuarios en la factura.");
         }
 
-        // Guardamos en memoria para posibles consultas posteriores
-        erroresPorFactura.put(numFactura, errores);
-
-        // Opcional: también escribir al disco (si lo deseas)
-        String outputPath = "errores_validacion_fact_" + numFactura + ".txt";
+        // Guardamos para posibles consultas posteriores (cualquier instancia puede servirlo)
+        byte[] reporte = errores.bytes();
+        String clave = claveReporte(formato, numFactura);
+        ReportePersistidoEvent evReporte = ReportePersistidoEvent.iniciar();
         try {
-            Files.write(Paths.get(outputPath), errores.toString().getBytes(StandardCharsets.UTF_8));
+            reportStore.guardar(clave, reporte);
+            evReporte.terminar(MODO, numFactura, clave, reporte.length, true);
         } catch (Exception e) {
+            evReporte.terminar(MODO, numFactura, clave, reporte.length, false);
             // no interrumpe la respuesta, solo anotamos en el propio texto
-            errores.append("⚠️ No se pudo escribir archivo en disco: ").append(e.getMessage()).append(System.lineSeparator());
+            errores.linea("⚠️ No se pudo guardar el reporte: " + e.getMessage());
+            reporte = errores.bytes();
         }
 
+        evFactura.terminar(MODO, numFactura, factura, errores);
+
         // Devolver como recurso en memoria
-        return new ByteArrayResource(errores.toString().getBytes(StandardCharsets.UTF_8));
+        return new ByteArrayResource(reporte);
     }
 
     /**
      * Recupera errores por número de factura (útil si tienes endpoint GET /descargar/{numFactura}).
      */
     public StringBuilder obtenerErrores(String numFactura) {
-        return erroresPorFactura.getOrDefault(numFactura,
-                new StringBuilder("⚠️ No se encontraron errores para esta factura."));
+        return obtenerErrores(numFactura, FormatoReporte.DETALLADO);
+    }
+
+    public StringBuilder obtenerErrores(String numFactura, FormatoReporte formato) {
+        try {
+            Optional<byte[]> reporte = reportStore.obtener(claveReporte(formato, numFactura));
+            if (reporte.isPresent()) {
+                return new StringBuilder(new String(reporte.get(), StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            return new StringBuilder("⚠️ No se pudo leer el reporte: " + e.getMessage());
+        }
+        return new StringBuilder("⚠️ No se encontraron errores para esta factura.");
+    }
+
+    /**
+     * Vuelve a guardar un reporte ya generado (p. ej. servido desde la caché de resultados) como el
+     * último de esa factura, para que {@link #obtenerErrores} lo devuelva en cualquier instancia.
+     */
+    public void publicar(String numFactura, FormatoReporte formato, byte[] reporte) throws IOException {
+        reportStore.guardar(claveReporte(formato, numFactura), reporte);
+    }
+
+    private static String claveReporte(FormatoReporte formato, String numFactura) {
+        return CARPETA_REPORTE + formato.carpeta() + NOMBRE_REPORTE + numFactura;
     }
 
     /* --------------------------- Procesamiento por usuario --------------------------- */
 
-    private void procesarUsuario(Usuario usuario, StringBuilder errores) {
+    /**
+     * @param numFactura solo para etiquetar los eventos JFR de las reglas
+     */
+    private void procesarUsuario(Usuario usuario, Reporte errores, String numFactura) {
         if (usuario == null) return;
 
         int consecutivoUsuario = usuario.consecutivo();
-        String pacienteDocumento = Optional.ofNullable(usuario.numDocumentoIdentificacion())
-                .orElse("ND-" + consecutivoUsuario);
-
-        // Sets para detectar duplicados por paciente (por día)
-        Set<String> consultasUnicas = new HashSet<>();
-        Set<String> procedimientosUnicos = new HashSet<>();
 
         if (usuario.servicios() == null) {
-            errores.append("Usuario consecutivo ").append(consecutivoUsuario)
-                    .append(" -> No tiene sección 'servicios'.").append(System.lineSeparator());
+            errores.linea("Usuario consecutivo " + consecutivoUsuario + " -> No tiene sección 'servicios'.");
             return;
         }
 
+        // Los hallazgos a nivel de usuario se atribuyen al prestador de su primer servicio
+        String prestadorUsuario = IntegridadFactura.primerPrestador(usuario.servicios());
+
         // ✅ Validar documento vs edad UNA SOLA VEZ por usuario
+        String hoy = LocalDate.now(reloj).toString();
         try {
             int edad = calcularEdadEnAtencionSafe(
                     usuario.fechaNacimiento(),
-                    LocalDate.now().toString(), // o la fecha de la primera atención si quieres ser más preciso
+                    hoy, // o la fecha de la primera atención si quieres ser más preciso
                     errores,
-                    consecutivoUsuario
+                    consecutivoUsuario,
+                    prestadorUsuario
             );
-            validarDocumentoSegunEdad(usuario, LocalDate.now().toString(), edad, errores);
+            ReglaEjecutadaEvent evRegla = ReglaEjecutadaEvent.iniciar(errores);
+            validarDocumentoSegunEdad(usuario, hoy, edad, errores, prestadorUsuario);
+            evRegla.terminar(MODO, "validarDocumentoSegunEdad", numFactura, consecutivoUsuario, 0, errores);
         } catch (Exception ex) {
-            appendError(errores, "Usuario consecutivo " + consecutivoUsuario + " -> Error validando documento/edad: " + ex.getMessage());
+            analiticaErrores.registrar(ReglaValidacion.ERROR_LECTURA, prestadorUsuario, usuario.tipoDocumentoIdentificacion());
+            errores.hallazgo(ReglaValidacion.ERROR_LECTURA, usuario.tipoDocumentoIdentificacion(), ex.getMessage(),
+                    consecutivoUsuario, null, Reporte.SIN_SERVICIO, "Error validando documento/edad: " + ex.getMessage());
         }
 
         // Consultas
         if (usuario.servicios().consultas() != null) {
-            for (Consulta c : usuario.servicios().consultas()) {
+            ContextoFila<FilaConsulta> ctx = planConsultas.iniciar(numFactura, usuario);
+            for (FilaConsulta c : FilasConsulta.recorrer(usuario.servicios().consultas())) {
                 try {
                     String fechaAt = Optional.ofNullable(c.fechaInicioAtencion()).orElse("");
-                    String dateKey = fechaAt.length() >= 10 ? fechaAt.substring(0, 10) : fechaAt;
-
-                    String key = pacienteDocumento + "_" +
-                            safeString(c.codConsulta()) + "_" +
-                            safeString(c.finalidadTecnologiaSalud()) + "_" +
-                            safeString(c.codDiagnosticoPrincipal()) + "_" +
-                            dateKey;
-
-                    if (!consultasUnicas.add(key)) {
-                        registrarError(errores, consecutivoUsuario,
-                                "Consulta duplicada",
-                                fechaAt,
-                                c.codConsulta(),
-                                "El paciente tiene otra consulta con el mismo código, finalidad y diagnóstico en la misma fecha.");
-                    }
-
-                    int edad = calcularEdadEnAtencionSafe(usuario.fechaNacimiento(), fechaAt, errores, consecutivoUsuario);
-
-
-                    // ✅ Validación Diagnóstico vs Finalidad
-                    validarDiagnosticoVsFinalidadEnConsulta(c, usuario, errores);
-
-                    // ✅ Validación Diagnóstico Principal vs Relacionados
-                    validarDiagnosticoPrincipalVsRelacionados(
-                            c.codDiagnosticoPrincipal(),
-                            c.codDiagnosticoRelacionado1(),
-                            c.codDiagnosticoRelacionado2(),
-                            consecutivoUsuario,
-                            errores,
-                            "Consulta",
-                            fechaAt,
-                            c.codConsulta()
-                    );
-
-
+                    ctx.fila(c, c.consecutivo(), c.codPrestador(), fechaAt, FilaColumnar.atencion(c), c.codDiagnosticoPrincipal())
+                            .ejecutar(errores);
                 } catch (Exception ex) {
-                    registrarError(errores, consecutivoUsuario, "Error lectura consulta",
-                            c != null ? c.fechaInicioAtencion() : "N/A",
-                            c != null ? c.codConsulta() : "N/A",
-                            "Error procesando consulta: " + ex.getMessage());
+                    analiticaErrores.registrar(ReglaValidacion.ERROR_LECTURA,
+                            c != null ? c.codPrestador() : prestadorUsuario,
+                            c != null ? c.codConsulta() : null);
+                    errores.hallazgo(ReglaValidacion.ERROR_LECTURA, c != null ? c.codConsulta() : null, ex.getMessage(), consecutivoUsuario,
+                            "consultas", c != null ? c.consecutivo() : Reporte.SIN_SERVICIO,
+                            detalleError("Error lectura consulta",
+                                    c != null ? c.fechaInicioAtencion() : "N/A",
+                                    c != null ? c.codConsulta() : "N/A",
+                                    "Error procesando consulta: " + ex.getMessage()));
                 }
             }
+            ctx.terminar();
         }
 
 
         // Procedimientos
         if (usuario.servicios().procedimientos() != null) {
-            for (Procedimiento p : usuario.servicios().procedimientos()) {
+            ContextoFila<FilaProcedimiento> ctx = planProcedimientos.iniciar(numFactura, usuario);
+            for (FilaProcedimiento p : FilasProcedimiento.recorrer(usuario.servicios().procedimientos())) {
                 try {
-                    int edad = calcularEdadEnAtencionSafe(usuario.fechaNacimiento(), p.fechaInicioAtencion(), errores, consecutivoUsuario);
+                    // sin normalizar: una fecha null termina en "Error lectura procedimiento", como siempre
+                    String fechaAt = p.fechaInicioAtencion();
+                    ctx.fila(p, p.consecutivo(), p.codPrestador(), fechaAt, FilaColumnar.atencion(p), p.codDiagnosticoPrincipal())
+                            .ejecutar(errores);
                 } catch (Exception ex) {
-                    registrarError(errores, consecutivoUsuario, "Error lectura procedimiento",
-                            p != null ? p.fechaInicioAtencion() : "N/A",
-                            p != null ? p.codProcedimiento() : "N/A",
-                            "Error procesando procedimiento: " + ex.getMessage());
+                    analiticaErrores.registrar(ReglaValidacion.ERROR_LECTURA,
+                            p != null ? p.codPrestador() : prestadorUsuario,
+                            p != null ? p.codProcedimiento() : null);
+                    errores.hallazgo(ReglaValidacion.ERROR_LECTURA, p != null ? p.codProcedimiento() : null, ex.getMessage(), consecutivoUsuario,
+                            "procedimientos", p != null ? p.consecutivo() : Reporte.SIN_SERVICIO,
+                            detalleError("Error lectura procedimiento",
+                                    p != null ? p.fechaInicioAtencion() : "N/A",
+                                    p != null ? p.codProcedimiento() : "N/A",
+                                    "Error procesando procedimiento: " + ex.getMessage()));
                 }
             }
-            // ✅ solo una validación centralizada
-            validarDuplicadosProcedimientos(usuario, errores);
+            ctx.terminar();
         }
 
     }
@@ -223,16 +356,15 @@ public class ValidadorServicePYP {
     /**
      * Reglas para validar el tipo de documento frente a la edad (años/días).
      */
-    private void validarDocumentoSegunEdad(Usuario usuario, String fechaAtencion, int edadAnios, StringBuilder errores) {
+    private void validarDocumentoSegunEdad(Usuario usuario, String fechaAtencion, int edadAnios, Reporte errores, String codPrestador) {
         String tipoDoc = Optional.ofNullable(usuario.tipoDocumentoIdentificacion()).orElse("");
         int consecutivoUsuario = usuario.consecutivo();
 
         // validar que el tipo esté dentro de los permitidos
-        if (!DOCUMENTOS_VALIDOS.contains(tipoDoc)) {
-            String msg = "Usuario consecutivo " + consecutivoUsuario +
-                    " -> Tipo de documento inválido: " + tipoDoc +
-                    ". Debe ser uno de " + DOCUMENTOS_VALIDOS;
-            appendError(errores, msg);
+        String invalido = DocumentoVsEdad.invalido(tipoDoc);
+        if (invalido != null) {
+            analiticaErrores.registrar(ReglaValidacion.DOCUMENTO_INVALIDO, codPrestador, tipoDoc);
+            errores.hallazgo(ReglaValidacion.DOCUMENTO_INVALIDO, tipoDoc, consecutivoUsuario, null, Reporte.SIN_SERVICIO, invalido);
             return;
         }
 
@@ -240,114 +372,77 @@ public class ValidadorServicePYP {
         LocalDate fechaNacimiento;
         LocalDate fechaAt;
         try {
-            fechaNacimiento = LocalDate.parse(usuario.fechaNacimiento(), FN_FMT);
-            fechaAt = parseFechaAtencionToLocalDate(fechaAtencion);
+            fechaNacimiento = Fechas.nacimiento(usuario.fechaNacimiento());
+            fechaAt = Fechas.atencion(fechaAtencion);
         } catch (DateTimeParseException ex) {
-            appendError(errores, "Usuario consecutivo " + consecutivoUsuario + " -> Error parseando fechas: " + ex.getMessage());
+            analiticaErrores.registrar(ReglaValidacion.ERROR_FECHAS, codPrestador, tipoDoc);
+            errores.hallazgo(ReglaValidacion.ERROR_FECHAS, tipoDoc, ex.getMessage(), consecutivoUsuario, null, Reporte.SIN_SERVICIO,
+                    "Error parseando fechas: " + ex.getMessage());
             return;
         }
         long diasVida = ChronoUnit.DAYS.between(fechaNacimiento, fechaAt);
 
-        boolean valido = true;
-        String sugerencia = "";
-
-        switch (tipoDoc) {
-            case "MS":
-                if (diasVida > 30) {
-                    valido = false;
-                    sugerencia = "MS solo es válido hasta 30 días de nacido.";
-                }
-                break;
-            case "RC":
-                if (edadAnios >= 7) {
-                    valido = false;
-                    sugerencia = "RC aplica para menores de 7 años; si tiene >=7 años use TI o CC según corresponda.";
-                }
-                break;
-            case "TI":
-                if (edadAnios < 7 || edadAnios > 17) {
-                    valido = false;
-                    sugerencia = "TI aplica entre 7 y 17 años cumplidos.";
-                }
-                break;
-            case "AS":
-                if (edadAnios <= 17) {
-                    valido = false;
-                    sugerencia = "AS aplica solo para mayores de 17 años (adulto sin identificación).";
-                }
-                break;
-            case "CC":
-                if (edadAnios < 18) {
-                    valido = false;
-                    sugerencia = "CC aplica preferiblemente para mayores de 17 años; revise el tipo de documento.";
-                }
-                break;
-            default:
-                // CE, PA: no reglas estrictas en edad (se aceptan)
-                break;
-        }
-
-        // regla adicional: si es mayor de 17 no puede ser RC/TI/MS
-        if (edadAnios >= 18 && ("RC".equals(tipoDoc) || "TI".equals(tipoDoc) || "MS".equals(tipoDoc))) {
-            valido = false;
-            sugerencia = "Para mayores de 17 años no se debe usar RC/TI/MS; use CC, CE o PA según corresponda.";
-        }
-
-        if (!valido) {
-            String msg = "Usuario consecutivo " + consecutivoUsuario +
-                    " -> Tipo de documento no coincide con la edad (" + edadAnios + " años, " + diasVida + " días). " + sugerencia;
-            appendError(errores, msg);
+        String sugerencia = DocumentoVsEdad.sugerencia(tipoDoc, edadAnios, diasVida);
+        if (sugerencia != null) {
+            analiticaErrores.registrar(ReglaValidacion.DOCUMENTO_VS_EDAD, codPrestador, tipoDoc);
+            errores.hallazgo(ReglaValidacion.DOCUMENTO_VS_EDAD, tipoDoc, sugerencia, consecutivoUsuario, null, Reporte.SIN_SERVICIO,
+                    "Tipo de documento no coincide con la edad (" + edadAnios + " años, " + diasVida + " días). " + sugerencia);
         }
     }
 
     /* --------------------------- Utilidades y helpers --------------------------- */
 
-    private int calcularEdadEnAtencionSafe(String fechaNacimiento, String fechaAtencion, StringBuilder errores, int consecutivoUsuario) {
+    private int calcularEdadEnAtencionSafe(String fechaNacimiento, String fechaAtencion, Reporte errores, int consecutivoUsuario, String codPrestador) {
         try {
-            LocalDate fn = LocalDate.parse(fechaNacimiento, FN_FMT);
-            LocalDate fa = parseFechaAtencionToLocalDate(fechaAtencion);
+            LocalDate fn = Fechas.nacimiento(fechaNacimiento);
+            LocalDate fa = Fechas.atencion(fechaAtencion);
             return Period.between(fn, fa).getYears();
         } catch (DateTimeParseException ex) {
-            appendError(errores, "Usuario consecutivo " + consecutivoUsuario + " -> Error parseando fechaNacimiento/fechaAtencion: " + ex.getMessage());
+            analiticaErrores.registrar(ReglaValidacion.ERROR_FECHAS, codPrestador, null);
+            errores.hallazgo(ReglaValidacion.ERROR_FECHAS, null, ex.getMessage(), consecutivoUsuario, null, Reporte.SIN_SERVICIO,
+                    "Error parseando fechaNacimiento/fechaAtencion: " + ex.getMessage());
             return -1;
         }
     }
 
-    private LocalDate parseFechaAtencionToLocalDate(String fechaAtencion) {
-        if (fechaAtencion == null || fechaAtencion.isBlank()) {
-            throw new DateTimeParseException("fechaInicioAtencion vacía", fechaAtencion, 0);
-        }
-
-        // intentamos varios formatos comunes
-        try {
-            return LocalDateTime.parse(fechaAtencion, FA_FMT_MIN).toLocalDate();
-        } catch (DateTimeParseException ignored) { }
-        try {
-            return LocalDateTime.parse(fechaAtencion, FA_FMT_SEC).toLocalDate();
-        } catch (DateTimeParseException ignored) { }
-        try {
-            // caso ISO como 2025-04-22T13:57:00
-            return LocalDateTime.parse(fechaAtencion).toLocalDate();
-        } catch (DateTimeParseException ignored) { }
+    /**
+     * Fechas de nacimiento/atención que no se pueden leer (se revisa en cada servicio).
+     */
+    private <S> Regla<S> reglaFechas() {
+        return new Regla<>("fechas", 1, 0.01, EnumSet.of(Entrada.FECHA_NACIMIENTO, Entrada.FECHA_ATENCION), List.of(),
+                ctx -> ctx.errorFechas() != null,
+                (ctx, errores) -> {
+                    analiticaErrores.registrar(ReglaValidacion.ERROR_FECHAS, ctx.codPrestador(), null);
+                    reportar(ctx, errores, ReglaValidacion.ERROR_FECHAS, null, ctx.errorFechas().getMessage(),
+                            "Error parseando fechaNacimiento/fechaAtencion: " + ctx.errorFechas().getMessage());
+                });
+    }
 
-        // fallback: si vienen al menos yyyy-MM-dd
-        if (fechaAtencion.length() >= 10) {
-            return LocalDate.parse(fechaAtencion.substring(0, 10), FN_FMT);
-        }
-        throw new DateTimeParseException("Formato de fecha inválido para fechaInicioAtencion", fechaAtencion, 0);
+    // Mismo código, finalidad y diagnóstico principal en el mismo día
+    private String claveDuplicado(ContextoFila<?> ctx, String codigo, String finalidad, String diagnostico) {
+        return ctx.pacienteDocumento() + "_" +
+                safeString(codigo) + "_" +
+                safeString(finalidad) + "_" +
+                safeString(diagnostico) + "_" +
+                ctx.diaAtencion();
     }
 
-    private void registrarError(StringBuilder errores, int consecutivoUsuario, String tipoError, String fecha, String codigo, String detalle) {
-        String msg = "Usuario consecutivo " + consecutivoUsuario +
-                " -> " + tipoError +
+    private String detalleError(String tipoError, String fecha, String codigo, String detalle) {
+        return tipoError +
                 " en " + (fecha == null ? "N/A" : fecha) +
                 " con código " + safeString(codigo) +
                 ". " + detalle;
-        appendError(errores, msg);
     }
 
-    private void appendError(StringBuilder sb, String line) {
-        sb.append(line).append(System.lineSeparator());
+    // Hallazgo sobre el servicio de la fila actual del plan
+    private static void reportar(ContextoFila<?> ctx, Reporte errores, ReglaValidacion regla, String codigo, String detalle) {
+        reportar(ctx, errores, regla, codigo, null, detalle);
+    }
+
+    // variante: caso de la regla con otro texto para el mismo código (ver Reporte)
+    private static void reportar(ContextoFila<?> ctx, Reporte errores, ReglaValidacion regla, String codigo, String variante,
+                                 String detalle) {
+        errores.hallazgo(regla, codigo, variante, ctx.consecutivoUsuario(), ctx.seccion(), ctx.consecutivo(), detalle);
     }
 
     private String safeString(Object o) {
@@ -373,38 +468,39 @@ public class ValidadorServicePYP {
     }
 
     /**
-     * Valida que si el diagnóstico es de la serie Z30x (planificación familiar),
-     * la finalidad de la tecnología de salud sea "19".
-     * Versión para Consulta.
+     * Diagnóstico de planificación familiar o prenatal con otra finalidad que la que exige
+     * (ver {@link #finalidadExigida}). Versión para Consulta.
      */
-    private void validarDiagnosticoVsFinalidadEnConsulta(Consulta c, Usuario usuario, StringBuilder errores) {
-        if (c == null || usuario == null) return;
+    private void validarDiagnosticoVsFinalidadEnConsulta(ContextoFila<FilaConsulta> ctx, Reporte errores) {
+        FilaConsulta c = ctx.servicio();
+        if (c == null || ctx.usuario() == null) return;
 
-        int consecutivoUsuario = usuario.consecutivo();
-        String diag = Optional.ofNullable(c.codDiagnosticoPrincipal()).orElse("").trim().toUpperCase(Locale.ROOT);
+        String diag = ctx.diagnostico();
         String finalidad = Optional.ofNullable(c.finalidadTecnologiaSalud()).orElse("").trim();
+        if (!finalidadNoCorresponde(diag, finalidad)) return;
+
+        // el texto de prenatal dice '19' aunque exige '23': se deja igual para no cambiar los reportes
+        String grupo = DIAGNOSTICOS_PLANIFICACION.contains(diag) ? "planificación familiar" : "prental";
+        analiticaErrores.registrar(ReglaValidacion.DIAGNOSTICO_VS_FINALIDAD, c.codPrestador(), diag);
+        reportar(ctx, errores, ReglaValidacion.DIAGNOSTICO_VS_FINALIDAD, diag, "Diagnóstico " + diag +
+                " corresponde a " + grupo + ", por lo que la finalidad debe ser '19'. " +
+                "Actualmente: '" + finalidad + "'. Fecha atención: " +
+                Optional.ofNullable(c.fechaInicioAtencion()).orElse("N/A"));
+    }
 
-        if (DIAGNOSTICOS_PLANIFICACION.contains(diag)) {
-            if (!"19".equals(finalidad)) {
-                String msg = "Usuario consecutivo " + consecutivoUsuario +
-                        " -> Diagnóstico " + diag +
-                        " corresponde a planificación familiar, por lo que la finalidad debe ser '19'. " +
-                        "Actualmente: '" + finalidad + "'. Fecha atención: " +
-                        Optional.ofNullable(c.fechaInicioAtencion()).orElse("N/A");
-                appendError(errores, msg);
-            }
-        }
+    /**
+     * Finalidad que exige el diagnóstico principal: '19' para planificación familiar, '23' para prenatal,
+     * o null si no exige ninguna.
+     */
+    private static String finalidadExigida(String diagnostico) {
+        if (DIAGNOSTICOS_PLANIFICACION.contains(diagnostico)) return "19";
+        if (DIAGNOSTICOS_PRENATAL.contains(diagnostico)) return "23";
+        return null;
+    }
 
-        if (DIAGNOSTICOS_PRENATAL.contains(diag)) {
-            if (!"23".equals(finalidad)) {
-                String msg = "Usuario consecutivo " + consecutivoUsuario +
-                        " -> Diagnóstico " + diag +
-                        " corresponde a prental, por lo que la finalidad debe ser '19'. " +
-                        "Actualmente: '" + finalidad + "'. Fecha atención: " +
-                        Optional.ofNullable(c.fechaInicioAtencion()).orElse("N/A");
-                appendError(errores, msg);
-            }
-        }
+    private static boolean finalidadNoCorresponde(String diagnostico, String finalidadTecnologiaSalud) {
+        String exigida = finalidadExigida(diagnostico);
+        return exigida != null && !exigida.equals(Optional.ofNullable(finalidadTecnologiaSalud).orElse("").trim());
     }
 
     /**
@@ -415,11 +511,12 @@ public class ValidadorServicePYP {
             String codPrincipal,
             String codRelacionado1,
             String codRelacionado2,
-            int consecutivoUsuario,
-            StringBuilder errores,
+            ContextoFila<?> ctx,
+            Reporte errores,
             String tipoRegistro, // "Consulta" o "Procedimiento"
             String fechaAt,
-            String codigo
+            String codigo,
+            String codPrestador
     ) {
         String principal = safeString(codPrincipal);
         String rel1 = safeString(codRelacionado1);
@@ -430,87 +527,38 @@ public class ValidadorServicePYP {
             return;
         }
 
+        // Casos 2 a 4 generan hallazgo sobre el diagnóstico principal
+        analiticaErrores.registrar(ReglaValidacion.DIAGNOSTICO_PRINCIPAL, codPrestador, principal);
+
         // Caso 2: Principal no es válido, pero Relacionado1 sí lo es
         if (DIAGNOSTICOS_VALIDOS.contains(rel1)) {
-            registrarError(errores, consecutivoUsuario,
+            reportar(ctx, errores, ReglaValidacion.DIAGNOSTICO_PRINCIPAL, principal, "relacionado1", detalleError(
                     tipoRegistro + " Diagnóstico",
                     fechaAt,
                     codigo,
                     "El diagnóstico principal '" + principal +
-                            "' no corresponde. Se debe mover el relacionado1 ('" + rel1 + "') a principal.");
+                            "' no corresponde. Se debe mover el relacionado1 ('" + rel1 + "') a principal."));
             return;
         }
 
         // Caso 3: Principal no es válido, pero Relacionado2 sí lo es
         if (DIAGNOSTICOS_VALIDOS.contains(rel2)) {
-            registrarError(errores, consecutivoUsuario,
+            reportar(ctx, errores, ReglaValidacion.DIAGNOSTICO_PRINCIPAL, principal, "relacionado2", detalleError(
                     tipoRegistro + " Diagnóstico",
                     fechaAt,
                     codigo,
                     "El diagnóstico principal '" + principal +
-                            "' no corresponde. Se debe mover el relacionado2 ('" + rel2 + "') a principal.");
+                            "' no corresponde. Se debe mover el relacionado2 ('" + rel2 + "') a principal."));
             return;
         }
 
         // Caso 4: Ninguno corresponde -> advertencia
-        registrarError(errores, consecutivoUsuario,
+        reportar(ctx, errores, ReglaValidacion.DIAGNOSTICO_PRINCIPAL, principal, "ninguno", detalleError(
                 tipoRegistro + " Diagnóstico",
                 fechaAt,
                 codigo,
                 "Ninguno de los diagnósticos (principal: '" + principal +
                         "', rel1: '" + rel1 + "', rel2: '" + rel2 +
-                        "') corresponde a la lista válida.");
-    }
-
-    /**
-     * Valida procedimientos duplicados en un usuario.
-     * Se considera duplicado si en la misma fecha tiene el mismo código,
-     * la misma finalidad y el mismo diagnóstico principal.
-     */
-    private void validarDuplicadosProcedimientos(Usuario usuario, StringBuilder errores) {
-        if (usuario == null || usuario.servicios() == null || usuario.servicios().procedimientos() == null) {
-            return;
-        }
-
-        int consecutivoUsuario = usuario.consecutivo();
-        String pacienteDocumento = Optional.ofNullable(usuario.numDocumentoIdentificacion())
-                .orElse("ND-" + consecutivoUsuario);
-
-        Map<String, Procedimiento> vistos = new HashMap<>();
-
-        for (Procedimiento p : usuario.servicios().procedimientos()) {
-            try {
-                String fechaAt = Optional.ofNullable(p.fechaInicioAtencion()).orElse("");
-                String dateKey = fechaAt.length() >= 10 ? fechaAt.substring(0, 10) : fechaAt;
-
-                String key = pacienteDocumento + "_" +
-                        safeString(p.codProcedimiento()) + "_" +
-                        safeString(p.finalidadTecnologiaSalud()) + "_" +
-                        safeString(p.codDiagnosticoPrincipal()) + "_" +
-                        dateKey;
-
-                if (vistos.containsKey(key)) {
-                    Procedimiento previo = vistos.get(key);
-                    String msg = "Usuario consecutivo " + consecutivoUsuario +
-                            " -> Procedimiento duplicado en " + fechaAt +
-                            " con código " + safeString(p.codProcedimiento()) +
-                            ". El paciente tiene otro procedimiento con el mismo código, finalidad y diagnóstico en la misma fecha. " +
-                            "(Consecutivo procedimiento: " + p.consecutivo() + ")";
-                    appendError(errores, msg);
-                } else {
-                    vistos.put(key, p);
-                }
-            } catch (Exception ex) {
-                registrarError(errores, consecutivoUsuario,
-                        "Error validando duplicado de procedimiento",
-                        p != null ? p.fechaInicioAtencion() : "N/A",
-                        p != null ? p.codProcedimiento() : "N/A",
-                        "Error: " + ex.getMessage());
-            }
-        }
+                        "') corresponde a la lista válida."));
     }
-
-
-
-
 }
@@ -0,0 +1,133 @@
+package com.example.validadorjson.analitica;
+
+import com.example.validadorjson.analitica.AnaliticaErrores.ConteoHallazgo;
+import com.example.validadorjson.analitica.AnaliticaErrores.ResumenAnalitica;
+import com.example.validadorjson.service.ReglaValidacion;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnaliticaErroresTest {
+
+    private final RelojManual reloj = new RelojManual(Instant.parse("2025-06-30T12:00:00Z"));
+    // 3 ventanas de 60 s
+    private final AnaliticaErrores analitica = new AnaliticaErrores(60, 3, reloj);
+
+    @Test
+    void lasVentanasViejasSalenDelAnillo() {
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+        reloj.avanzar(Duration.ofSeconds(60));
+        analitica.registrar(ReglaValidacion.PROCEDIMIENTO_DUPLICADO, "P1", "903841");
+        assertEquals(2, analitica.consultar(0, 0, null, null).totalHallazgos());
+
+        // dos ventanas después, la primera ya no está entre las 3 que guarda el anillo
+        reloj.avanzar(Duration.ofSeconds(120));
+        ResumenAnalitica resumen = analitica.consultar(0, 0, null, null);
+        assertEquals(Map.of(ReglaValidacion.PROCEDIMIENTO_DUPLICADO.descripcion(), 1L), resumen.porRegla());
+
+        // esta ventana ocupa la posición de la primera y empieza en cero
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+        resumen = analitica.consultar(0, 0, null, null);
+        assertEquals(2, resumen.totalHallazgos());
+        assertEquals(180, resumen.ventanaSegundos());
+    }
+
+    @Test
+    void losMinutosLimitanLasVentanasConsultadas() {
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+        reloj.avanzar(Duration.ofSeconds(60));
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+
+        assertEquals(2, analitica.consultar(1, 0, null, null).totalHallazgos());
+        assertEquals(3, analitica.consultar(2, 0, null, null).totalHallazgos());
+        // más minutos de los que guarda el anillo: se limita al anillo
+        assertEquals(180, analitica.consultar(60, 0, null, null).ventanaSegundos());
+    }
+
+    @Test
+    void filtraPorReglaYPrestador() {
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P2", "890201");
+        analitica.registrar(ReglaValidacion.DOCUMENTO_INVALIDO, "P1", "XX");
+        analitica.registrar(ReglaValidacion.DOCUMENTO_INVALIDO, " ", null);
+
+        assertEquals(2, analitica.consultar(0, 0, ReglaValidacion.CONSULTA_DUPLICADA, null).totalHallazgos());
+        assertEquals(2, analitica.consultar(0, 0, null, "P1").totalHallazgos());
+        assertEquals(1, analitica.consultar(0, 0, ReglaValidacion.DOCUMENTO_INVALIDO, "P1").totalHallazgos());
+        // prestador y código vacíos se cuentan como N/A
+        assertEquals(List.of(new ConteoHallazgo(ReglaValidacion.DOCUMENTO_INVALIDO.descripcion(), "N/A", "N/A", 1)),
+                analitica.consultar(0, 0, null, "N/A").top());
+        assertEquals(Map.of("N/A", 1L, "P1", 2L, "P2", 1L), analitica.consultar(0, 0, null, null).porPrestador());
+    }
+
+    @Test
+    void elTopVaDeMayorAMenorYSeCorta() {
+        for (int i = 0; i < 3; i++) analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+        reloj.avanzar(Duration.ofSeconds(60));
+        // la misma combinación en otra ventana se suma
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+        for (int i = 0; i < 2; i++) analitica.registrar(ReglaValidacion.DOCUMENTO_VS_EDAD, "P1", "TI");
+        analitica.registrar(ReglaValidacion.ERROR_FECHAS, "P2", "N/A");
+
+        List<ConteoHallazgo> top = analitica.consultar(0, 2, null, null).top();
+        assertEquals(List.of(
+                new ConteoHallazgo(ReglaValidacion.CONSULTA_DUPLICADA.descripcion(), "P1", "890201", 4),
+                new ConteoHallazgo(ReglaValidacion.DOCUMENTO_VS_EDAD.descripcion(), "P1", "TI", 2)), top);
+        assertEquals(3, analitica.consultar(0, 0, null, null).top().size());
+    }
+
+    @Test
+    void losReportesDesdeCacheSeCuentanSinSumarHallazgos() {
+        analitica.registrar(ReglaValidacion.CONSULTA_DUPLICADA, "P1", "890201");
+        analitica.registrarDesdeCache();
+        reloj.avanzar(Duration.ofSeconds(60));
+        analitica.registrarDesdeCache();
+
+        ResumenAnalitica resumen = analitica.consultar(0, 0, null, null);
+        assertEquals(1, resumen.totalHallazgos());
+        assertEquals(2, resumen.reportesDesdeCache());
+        // van por ventana, como los hallazgos; los filtros de regla y prestador no los tocan
+        assertEquals(1, analitica.consultar(1, 0, null, null).reportesDesdeCache());
+        assertEquals(2, analitica.consultar(0, 0, ReglaValidacion.ERROR_FECHAS, "P9").reportesDesdeCache());
+
+        reloj.avanzar(Duration.ofSeconds(180));
+        assertEquals(0, analitica.consultar(0, 0, null, null).reportesDesdeCache());
+    }
+
+    /** Reloj que solo avanza cuando la prueba lo pide. */
+    private static final class RelojManual extends Clock {
+        private Instant ahora;
+
+        RelojManual(Instant inicio) {
+            this.ahora = inicio;
+        }
+
+        void avanzar(Duration d) {
+            ahora = ahora.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.validadorjson.calentamiento;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Con el calentamiento habilitado, /actuator/health/readiness responde OUT_OF_SERVICE mientras
+ * corre y UP (ACCEPTING_TRAFFIC) cuando termina. El servidor web ya escucha durante los
+ * ApplicationRunner, así que la sonda se consulta por HTTP desde que el calentamiento empieza.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "validador.reportes.almacen=memoria",
+        "validador.calentamiento.habilitado=true",
+        "validador.calentamiento.tiempo-maximo-ms=2000",
+        "validador.calentamiento.usuarios-por-factura=12"})
+class CalentamientoArranqueTest {
+
+    @LocalServerPort
+    private int puerto;
+    @Autowired
+    private ApplicationAvailability disponibilidad;
+    @Autowired
+    private Sonda sonda;
+
+    @Test
+    void laReadinessEsperaAlCalentamiento() throws Exception {
+        // estados de readiness en el orden en que se publicaron
+        assertEquals(List.of(ReadinessState.REFUSING_TRAFFIC, ReadinessState.ACCEPTING_TRAFFIC), sonda.estados);
+        assertInstanceOf(CalentamientoJit.class, sonda.fuenteRechazo);
+
+        // consultas hechas mientras corría el calentamiento, hasta justo antes de ACCEPTING_TRAFFIC
+        assertFalse(sonda.respuestasDuranteCalentamiento.isEmpty());
+        for (String respuesta : sonda.respuestasDuranteCalentamiento) {
+            assertEquals("503 OUT_OF_SERVICE", respuesta);
+        }
+
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, disponibilidad.getReadinessState());
+        assertEquals("200 UP", Sonda.readiness(puerto));
+    }
+
+    @TestConfiguration
+    static class Configuracion {
+        @Bean
+        Sonda sonda() {
+            return new Sonda();
+        }
+    }
+
+    /** Consulta la sonda de readiness en un hilo aparte desde que el calentamiento rechaza tráfico. */
+    static class Sonda {
+        final List<ReadinessState> estados = new CopyOnWriteArrayList<>();
+        final List<String> respuestasDuranteCalentamiento = new CopyOnWriteArrayList<>();
+        volatile Object fuenteRechazo;
+        private volatile int puerto;
+        private volatile Thread consultor;
+
+        @EventListener
+        void servidorListo(WebServerInitializedEvent evento) {
+            puerto = evento.getWebServer().getPort();
+        }
+
+        // antes que ApplicationAvailabilityBean: al detener el consultor la sonda sigue en OUT_OF_SERVICE
+        @EventListener
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        void readiness(AvailabilityChangeEvent<ReadinessState> evento) throws InterruptedException {
+            estados.add(evento.getState());
+            if (evento.getState() == ReadinessState.REFUSING_TRAFFIC) {
+                fuenteRechazo = evento.getSource();
+                consultor = new Thread(this::consultar, "sonda-readiness");
+                consultor.start();
+            } else if (consultor != null) {
+                // el estado ya cambió: lo que quede por consultar no es del calentamiento
+                consultor.interrupt();
+                consultor.join();
+            }
+        }
+
+        private void consultar() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    String respuesta = readiness(puerto);
+                    if (!Thread.currentThread().isInterrupted()) respuestasDuranteCalentamiento.add(respuesta);
+                    Thread.sleep(20);
+                } catch (InterruptedException | IOException e) {
+                    return;
+                }
+            }
+        }
+
+        static String readiness(int puerto) throws IOException, InterruptedException {
+            HttpResponse<String> r = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/actuator/health/readiness")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            String estado = r.body().replaceAll(".*\"status\"\\s*:\\s*\"([A-Z_]+)\".*", "$1");
+            return r.statusCode() + " " + estado;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.validadorjson.calentamiento;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.reporte.ReportStoreMemoria;
+import com.example.validadorjson.service.ReglaValidacion;
+import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalentamientoJitTest {
+
+    @Test
+    void lasFacturasSinteticasPasanPorTodasLasReglas() throws Exception {
+        Factura factura = LectorFactura.leer(FixturesGolden.mapperPlano(),
+                FacturasSinteticas.factura("F", FacturasSinteticas.casos(), LocalDate.now(FixturesGolden.RELOJ)));
+
+        AnaliticaErrores analiticaPyp = new AnaliticaErrores(60, 1, FixturesGolden.RELOJ);
+        new ValidadorServicePYP(analiticaPyp, new ReportStoreMemoria(), "2", FixturesGolden.RELOJ)
+                .validarFactura(factura);
+        AnaliticaErrores analiticaMorb = new AnaliticaErrores(60, 1, FixturesGolden.RELOJ);
+        new ValidadorServiceMorb(analiticaMorb, new ReportStoreMemoria(), "2")
+                .validarFactura(factura);
+
+        assertEquals(descripciones(EnumSet.allOf(ReglaValidacion.class)), reglas(analiticaPyp));
+        // Morb no revisa diagnósticos, y su error de lectura es solo por excepción (un servicio null)
+        assertEquals(descripciones(EnumSet.complementOf(EnumSet.of(ReglaValidacion.DIAGNOSTICO_VS_FINALIDAD,
+                        ReglaValidacion.DIAGNOSTICO_PRINCIPAL, ReglaValidacion.ERROR_LECTURA))),
+                reglas(analiticaMorb));
+    }
+
+    @Test
+    void terminaDentroDelTiempoMaximo() throws Exception {
+        CalentamientoJit calentamiento = new CalentamientoJit(FixturesGolden.mapperPlano(), evento -> { },
+                FixturesGolden.RELOJ, "2", 2000, 3, FacturasSinteticas.casos());
+        long inicio = System.nanoTime();
+
+        CalentamientoJit.Resultado r = calentamiento.calentar();
+
+        assertTrue(r.rondas() > 0);
+        assertTrue((System.nanoTime() - inicio) / 1_000_000 < 10_000);
+    }
+
+    private static Set<String> reglas(AnaliticaErrores analitica) {
+        return analitica.consultar(0, 0, null, null).porRegla().keySet();
+    }
+
+    private static Set<String> descripciones(Set<ReglaValidacion> reglas) {
+        return Arrays.stream(ReglaValidacion.values()).filter(reglas::contains)
+                .map(ReglaValidacion::descripcion).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.validadorjson.columnar;
+
+import com.example.validadorjson.dto.Consulta;
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.dto.FilaConsulta;
+import com.example.validadorjson.dto.FilaProcedimiento;
+import com.example.validadorjson.dto.Procedimiento;
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.reglas.Fechas;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LecturaColumnarTest {
+
+    private final ObjectMapper mapper = FixturesGolden.mapperPlano();
+
+    @Test
+    void columnasYRecordsDanLoMismoEnTodasLasFacturasGolden() throws Exception {
+        for (Map.Entry<String, byte[]> f : FixturesGolden.facturas().entrySet()) {
+            Factura columnar = LectorFactura.leer(mapper, f.getValue());
+            Factura registros = mapper.readValue(f.getValue(), Factura.class);
+            if (registros.usuarios() == null) continue;
+
+            for (int i = 0; i < registros.usuarios().size(); i++) {
+                Usuario c = columnar.usuarios().get(i);
+                Usuario r = registros.usuarios().get(i);
+                if (r == null || r.servicios() == null) continue;
+                List<Consulta> consultas = c.servicios().consultas();
+                List<Procedimiento> procedimientos = c.servicios().procedimientos();
+                if (consultas != null) assertInstanceOf(FilasConsulta.class, consultas, f.getKey());
+                assertEquals(r.servicios().consultas(), consultas, f.getKey());
+                assertEquals(r.servicios().procedimientos(), procedimientos, f.getKey());
+                if (consultas != null) {
+                    Set<String> claves = new HashSet<>();
+                    for (FilaConsulta fila : FilasConsulta.recorrer(consultas)) {
+                        if (fila != null) assertRepetida(claves, fila, clave(fila.codConsulta(), fila.finalidadTecnologiaSalud(),
+                                fila.codDiagnosticoPrincipal(), fila.fechaInicioAtencion()), f.getKey());
+                    }
+                }
+                if (procedimientos != null) {
+                    Set<String> claves = new HashSet<>();
+                    for (FilaProcedimiento fila : FilasProcedimiento.recorrer(procedimientos)) {
+                        if (fila != null) assertRepetida(claves, fila, clave(fila.codProcedimiento(), fila.finalidadTecnologiaSalud(),
+                                fila.codDiagnosticoPrincipal(), fila.fechaInicioAtencion()), f.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void nulosConversionesYFechas() throws Exception {
+        Factura factura = LectorFactura.leer(mapper, json("""
+                {"numFactura":"F1","usuarios":[{"consecutivo":1,"servicios":{"consultas":[
+                  {"codConsulta":890201,"consecutivo":"3","vrServicio":"1500.5","finalidadTecnologiaSalud":null,
+                   "fechaInicioAtencion":"2025-02-29 08:00"},
+                  null,
+                  {"codConsulta":"890201","consecutivo":null,"fechaInicioAtencion":"2025-03-01 10:00",
+                   "finalidadTecnologiaSalud":""},
+                  {"codConsulta":"890201","fechaInicioAtencion":"2025-03-01 17:30"}
+                ]}}]}"""));
+        List<Consulta> consultas = factura.usuarios().get(0).servicios().consultas();
+
+        assertEquals(4, consultas.size());
+        assertNull(consultas.get(1));
+        Consulta primera = consultas.get(0);
+        assertEquals("890201", primera.codConsulta());
+        assertEquals(3, primera.consecutivo());
+        assertEquals(1500.5, primera.vrServicio());
+        assertNull(primera.finalidadTecnologiaSalud());
+        assertEquals(0, consultas.get(2).consecutivo());
+        assertEquals("", consultas.get(2).finalidadTecnologiaSalud());
+
+        List<Boolean> repetidas = new ArrayList<>();
+        List<LocalDate> atenciones = new ArrayList<>();
+        for (FilaConsulta c : FilasConsulta.recorrer(consultas)) {
+            repetidas.add(c == null ? null : ((FilaColumnar<?>) c).repetida());
+            atenciones.add(FilaColumnar.atencion(c));
+        }
+        // null y "" de finalidad son lo mismo para la regla de duplicados
+        assertEquals(Arrays.asList(false, null, false, true), repetidas);
+        // la fecha de atención es la misma que lee Fechas (que ajusta el 29 de febrero de 2025)
+        assertEquals(Fechas.atencion("2025-02-29 08:00"), atenciones.get(0));
+        assertEquals(LocalDate.of(2025, 3, 1), atenciones.get(2));
+    }
+
+    @Test
+    void unCampoDesconocidoFallaComoEnElRecord() {
+        byte[] json = json("""
+                {"numFactura":"F1","usuarios":[{"consecutivo":1,"servicios":{"procedimientos":[
+                  {"codProcedimiento":"903841","noExiste":1}]}}]}""");
+        ObjectMapper estricto = FixturesGolden.mapperPlano()
+                .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        assertThrows(UnrecognizedPropertyException.class, () -> estricto.readValue(json, Factura.class));
+        assertThrows(UnrecognizedPropertyException.class, () -> LectorFactura.leer(estricto, json));
+    }
+
+    @Test
+    void elDiccionarioGuardaCadaTextoUnaVez() throws Exception {
+        Factura factura = LectorFactura.leer(mapper, FixturesGolden.factura("fact_0102264"));
+        FilasConsulta consultas = (FilasConsulta) factura.usuarios().get(0).servicios().consultas();
+        Diccionario diccionario = consultas.columnas.diccionario();
+
+        Set<String> textos = new HashSet<>();
+        for (int id = 0; id < diccionario.tamano(); id++) {
+            assertTrue(textos.add(diccionario.texto(id)), "repetido: " + diccionario.texto(id));
+        }
+        assertNull(diccionario.texto(Diccionario.NULO));
+        assertEquals("", diccionario.texto(Diccionario.VACIO));
+    }
+
+    /** La regla de duplicados sobre columnas marca las mismas filas que la clave de texto de los servicios. */
+    private static void assertRepetida(Set<String> claves, Object fila, String clave, String factura) {
+        assertEquals(!claves.add(clave), ((FilaColumnar<?>) fila).repetida(), factura + " " + clave);
+    }
+
+    private static String clave(String codigo, String finalidad, String diagnostico, String fecha) {
+        String f = fecha == null ? "" : fecha;
+        return safe(codigo) + "_" + safe(finalidad) + "_" + safe(diagnostico) + "_" + (f.length() >= 10 ? f.substring(0, 10) : f);
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static byte[] json(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.validadorjson.controller;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.example.validadorjson.reporte.CacheResultados;
+import com.example.validadorjson.reporte.ReportStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * ETag, If-None-Match, caché de resultados y errores de entrada de /api/factura/validar_*.
+ * Cada prueba agrega espacios al final del JSON para tener su propio hash (la caché es compartida).
+ */
+@SpringBootTest(properties = "validador.reportes.almacen=memoria")
+@AutoConfigureMockMvc
+class ValidadorControllerTest {
+
+    private static final String MORB = "/api/factura/validar_morb";
+    private static final String FACTURA = "fact_0102258";
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private CacheResultados cacheResultados;
+    @Autowired
+    private AnaliticaErrores analiticaErrores;
+    @Autowired
+    private ReportStore reportStore;
+
+    @Test
+    void respondeElReporteConElHashComoEtag() throws Exception {
+        MvcResult r = mvc.perform(post(MORB).contentType(MediaType.APPLICATION_JSON).content(factura(1)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=errores_validacion_fact_"
+                        + numFactura() + ".txt"))
+                .andReturn();
+
+        assertTrue(r.getResponse().getHeader(HttpHeaders.ETAG).matches("\"[0-9a-f]{64}\""));
+        assertFalse(r.getResponse().getContentAsString(StandardCharsets.UTF_8).isEmpty());
+    }
+
+    @Test
+    void ifNoneMatchIgualAlEtagDa412() throws Exception {
+        String etag = mvc.perform(post(MORB).contentType(MediaType.APPLICATION_JSON).content(factura(2)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(post(MORB).contentType(MediaType.APPLICATION_JSON).content(factura(2))
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"otro\", W/" + etag))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        // otro formato es otro reporte: otro ETag, así que no coincide
+        mvc.perform(post(MORB + "?formato=agrupado").contentType(MediaType.APPLICATION_JSON).content(factura(2))
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void unAciertoDeCacheDevuelveLoGuardadoSinRecontarHallazgos() throws Exception {
+        long antes = totalHallazgos();
+        long desdeCacheAntes = reportesDesdeCache();
+        MvcResult primero = mvc.perform(post(MORB).contentType(MediaType.APPLICATION_JSON).content(factura(3)))
+                .andExpect(status().isOk()).andReturn();
+        long porValidacion = totalHallazgos() - antes;
+        assertTrue(porValidacion > 0);
+
+        // otra validación con el mismo numFactura reemplazó el último reporte de la factura
+        reportStore.guardar("morb/errores_validacion_fact_" + numFactura(), "otro".getBytes(StandardCharsets.UTF_8));
+
+        MvcResult segundo = mvc.perform(post(MORB).contentType(MediaType.APPLICATION_JSON).content(factura(3)))
+                .andExpect(status().isOk()).andReturn();
+        assertArrayEquals(primero.getResponse().getContentAsByteArray(), segundo.getResponse().getContentAsByteArray());
+        assertEquals(primero.getResponse().getHeader(HttpHeaders.ETAG), segundo.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(porValidacion, totalHallazgos() - antes);
+        assertEquals(desdeCacheAntes + 1, reportesDesdeCache());
+        // el acierto vuelve a dejar su reporte como el último de la factura
+        assertArrayEquals(primero.getResponse().getContentAsByteArray(),
+                reportStore.obtener("morb/errores_validacion_fact_" + numFactura()).orElseThrow());
+
+        // lo que se sirve es la entrada de la caché, no una nueva validación
+        String hash = primero.getResponse().getHeader(HttpHeaders.ETAG).replace("\"", "");
+        cacheResultados.guardar("morb", hash, "CACHEADA", "desde la caché".getBytes(StandardCharsets.UTF_8));
+        mvc.perform(post(MORB).contentType(MediaType.APPLICATION_JSON).content(factura(3)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=errores_validacion_fact_CACHEADA.txt"))
+                .andExpect(content().bytes("desde la caché".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(porValidacion, totalHallazgos() - antes);
+    }
+
+    @Test
+    void jsonInvalidoDa400() throws Exception {
+        mvc.perform(post(MORB).contentType(MediaType.APPLICATION_JSON).content("{\"numFactura\": \"F1\", \"usuarios\": [}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(org.hamcrest.Matchers.startsWith("⚠️ JSON de factura inválido: ")));
+
+        mvc.perform(post("/api/factura/validar_pyp").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numFactura\": \"F1\", \"usuarios\": {\"consecutivo\": 1}}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void unaSeccionDiferidaConTiposInvalidosNoSeRevisa() throws Exception {
+        // ninguna regla lee medicamentos: se salta sin convertir (ver LectorFactura)
+        mvc.perform(post(MORB).contentType(MediaType.APPLICATION_JSON).content("{\"numFactura\":\"F1\",\"usuarios\":"
+                        + "[{\"consecutivo\":1,\"servicios\":{\"medicamentos\":[{\"consecutivo\":\"abc\"}]}}]}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void formatoDesconocidoDa400() throws Exception {
+        mvc.perform(post(MORB + "?formato=resumido").contentType(MediaType.APPLICATION_JSON).content(factura(5)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long totalHallazgos() {
+        return analiticaErrores.consultar(0, 0, null, null).totalHallazgos();
+    }
+
+    private long reportesDesdeCache() {
+        return analiticaErrores.consultar(0, 0, null, null).reportesDesdeCache();
+    }
+
+    private static String numFactura() {
+        return FACTURA.substring("fact_".length());
+    }
+
+    private static byte[] factura(int espacios) {
+        String json = new String(FixturesGolden.factura(FACTURA), StandardCharsets.UTF_8);
+        return (json + " ".repeat(espacios)).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.validadorjson.golden;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.json.JacksonConfig;
+import com.example.validadorjson.reporte.ReportStoreMemoria;
+import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Facturas anonimizadas de golden/facturas y sus reportes esperados en golden/esperado.
+ *
+ * Las facturas se derivaron de los reportes errores_validacion_fact_*.txt de la raíz del repo:
+ * mismos consecutivos de usuario, códigos, fechas, tipos de documento y edades (días de vida),
+ * con documentos y prestador sintéticos. Los esperados son la salida actual de los servicios, no una
+ * salida verificada: si una regla cambia a propósito, se regeneran con -Dgolden.regenerar=true
+ * (ver ReportesGoldenTest, que también dice qué parte se contrasta con los reportes de la raíz).
+ */
+public final class FixturesGolden {
+
+    /** "Hoy" fijo para PYP (documento vs edad se calcula contra la fecha actual). */
+    public static final Clock RELOJ = Clock.fixed(Instant.parse("2025-06-30T12:00:00Z"), ZoneOffset.UTC);
+
+    public static final String PYP = "pyp";
+    public static final String MORB = "morb";
+
+    private FixturesGolden() {
+    }
+
+    /** nombre (fact_0102258, ...) -> JSON, en orden de nombre. */
+    public static Map<String, byte[]> facturas() {
+        Map<String, byte[]> facturas = new TreeMap<>();
+        try {
+            for (Resource r : new PathMatchingResourcePatternResolver().getResources("classpath:golden/facturas/*.json")) {
+                String nombre = r.getFilename().substring(0, r.getFilename().length() - ".json".length());
+                try (InputStream in = r.getInputStream()) {
+                    facturas.put(nombre, in.readAllBytes());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return facturas;
+    }
+
+    public static byte[] factura(String nombre) {
+        return facturas().get(nombre);
+    }
+
+    /** Reporte esperado con saltos de línea '\n', o null si aún no existe. */
+    public static String esperado(String nombre, String modo) {
+        try (InputStream in = FixturesGolden.class.getResourceAsStream("/golden/esperado/" + nombre + "." + modo + ".txt")) {
+            return in == null ? null : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Los servicios escriben System.lineSeparator(); los esperados se guardan con '\n'. */
+    public static String normalizar(byte[] reporte) {
+        return new String(reporte, StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n");
+    }
+
+    public static ValidadorServicePYP pyp() {
+        return new ValidadorServicePYP(new AnaliticaErrores(60, 60, RELOJ), new ReportStoreMemoria(), "1", RELOJ);
+    }
+
+    public static ValidadorServiceMorb morb() {
+        return new ValidadorServiceMorb(new AnaliticaErrores(60, 60, RELOJ), new ReportStoreMemoria(), "1");
+    }
+
+    /** ObjectMapper como el de Spring Boot pero sin el módulo de cadenas canónicas. */
+    public static ObjectMapper mapperPlano() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /** ObjectMapper como el de la aplicación con validador.json.canonicalizar.habilitado=true. */
+    public static ObjectMapper mapperCanonico() {
+        return Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(new JacksonConfig().cadenasCanonicasModule(8192, 32))
+                .build();
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.validadorjson.golden;
+
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.ingesta.IngestaCarpetaService;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.example.validadorjson.golden.FixturesGolden.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Diferencial contra los reportes esperados: cada modo de ejecución debe producir exactamente
+ * el mismo reporte (byte a byte, salvo el separador de línea de la plataforma) para cada factura.
+ *
+ * Los esperados son una foto de la salida actual; {@link #hallazgosDeReferenciaSiguenApareciendo} los
+ * contrasta con los reportes errores_validacion_fact_*.txt de la raíz, categoría por categoría
+ * ({@link Categoria}). Esos reportes se generaron con textos anteriores: los duplicados y documentos
+ * inválidos se comparan por consecutivo, fecha y código (o tipo), el resto línea a línea. Documento vs
+ * edad de las referencias tiene la edad a la fecha de cada atención (un mismo usuario aparece con días
+ * de vida distintos), como Morb; PYP la calcula contra "hoy" y ahí no se compara. Toda línea de una
+ * referencia debe caer en una categoría o en {@link #SIN_REGLA}; los hallazgos nuevos (consecutivos
+ * faltantes...) no tienen referencia.
+ * errores_validacion.txt no dice de qué factura es y solo trae "Diagnóstico inválido ... Sugerencia",
+ * una regla que ya no estaba en el código: no se contrasta.
+ *
+ * Regenerar los esperados (solo si el cambio de reglas es intencional):
+ *   mvn test -Dtest=ReportesGoldenTest#secuencialIgualAlEsperado -Dgolden.regenerar=true
+ */
+class ReportesGoldenTest {
+
+    enum Modo {
+        /** Un hilo, ObjectMapper sin canonicalizar; LectorFactura, así que consultas y procedimientos en columnas. */
+        SECUENCIAL,
+        /**
+         * Las mismas instancias de servicio desde varios hilos, cada factura varias veces; readValue
+         * directo, así que records y claves de texto para duplicados.
+         */
+        PARALELO,
+        /** Ingesta por carpeta: archivos presentes antes de arrancar (escaneo inicial). */
+        INGESTA,
+        /** Ingesta con archivos que llegan mientras corre + cadenas canónicas + varios hilos. */
+        COMBINADO
+    }
+
+    private static final int HILOS = 8;
+    private static final int REPETICIONES = 4;
+
+    /** Línea de un hallazgo de una referencia, con la clave que se busca en nuestro reporte. */
+    enum Categoria {
+        // Antes decía "repetida/repetido", ahora "duplicada/duplicado"; se compara consecutivo, fecha y código
+        DUPLICADO("^Usuario consecutivo (\\d+) -> (Consulta|Procedimiento) (?:repetid[ao]|duplicad[ao]) en (\\S+ \\S+) con código (\\w+)", true, true),
+        // La lista de tipos válidos cambió de orden
+        DOCUMENTO_INVALIDO("^Usuario consecutivo (\\d+) -> Tipo de documento inválido: (\\w*)\\.", true, true),
+        DOCUMENTO_VS_EDAD("^Usuario consecutivo (\\d+) -> Tipo de documento no coincide con la edad \\(\\d+ años, (\\d+) días\\)\\. .*$", false, true),
+        FINALIDAD_DIAGNOSTICO("^Usuario consecutivo \\d+ -> Diagnóstico \\w+ corresponde a .*$", true, false),
+        DIAGNOSTICO_CONSULTA("^Usuario consecutivo \\d+ -> Consulta Diagnóstico en .*$", true, false),
+        SIN_USUARIOS("^⚠️ No se encontraron usuarios en la factura\\.$", true, true);
+
+        final Pattern patron;
+        /** Servicios cuyo reporte debe tener los hallazgos de la referencia. */
+        final List<String> modos;
+
+        Categoria(String patron, boolean pyp, boolean morb) {
+            this.patron = Pattern.compile(patron, Pattern.MULTILINE);
+            this.modos = pyp && morb ? List.of(PYP, MORB) : List.of(pyp ? PYP : MORB);
+        }
+
+        Set<String> claves(String reporte) {
+            Set<String> claves = new TreeSet<>();
+            Matcher m = patron.matcher(reporte);
+            while (m.find()) {
+                claves.add(switch (this) {
+                    case DUPLICADO -> m.group(1) + " " + m.group(2) + " " + m.group(3) + " " + m.group(4);
+                    case DOCUMENTO_INVALIDO -> m.group(1) + " documento " + m.group(2);
+                    default -> m.group();
+                });
+            }
+            return claves;
+        }
+    }
+
+    /**
+     * Finalidad de procedimientos ("Diagnóstico X en Procedimiento corresponde a ..."): regla que ya no
+     * estaba en el código cuando se tomaron los reportes de la raíz.
+     */
+    private static final Pattern SIN_REGLA = Pattern.compile("^Usuario consecutivo \\d+ -> Diagnóstico \\w+ en Procedimiento corresponde a ");
+    private static final Pattern ENCABEZADO = Pattern.compile("^(Validación factura: .*|=+|)$");
+
+    private static Map<String, byte[]> facturas;
+
+    @TempDir
+    Path tmp;
+
+    @BeforeAll
+    static void cargar() {
+        facturas = facturas();
+        assertFalse(facturas.isEmpty(), "No se encontraron facturas en golden/facturas");
+    }
+
+    @Test
+    void secuencialIgualAlEsperado() throws Exception {
+        Map<String, byte[]> reportes = ejecutar(Modo.SECUENCIAL);
+        if (Boolean.getBoolean("golden.regenerar")) {
+            Path destino = Paths.get("src/test/resources/golden/esperado");
+            Files.createDirectories(destino);
+            for (Map.Entry<String, byte[]> e : reportes.entrySet()) {
+                Files.writeString(destino.resolve(e.getKey() + ".txt"), normalizar(e.getValue()));
+            }
+            return; // los del classpath son los anteriores hasta el próximo build
+        }
+        comparar(Modo.SECUENCIAL, reportes);
+    }
+
+    @Test
+    void hallazgosDeReferenciaSiguenApareciendo() throws Exception {
+        Map<Categoria, Integer> revisados = new EnumMap<>(Categoria.class);
+        try (var referencias = Files.newDirectoryStream(Paths.get("."), "errores_validacion_fact_*.txt")) {
+            for (Path archivo : referencias) {
+                String nombre = archivo.getFileName().toString()
+                        .replace("errores_validacion_", "").replace(".txt", "");
+                if (!facturas.containsKey(nombre)) continue;
+                String referencia = Files.readString(archivo);
+                sinCategoria(nombre, referencia);
+
+                for (Categoria c : Categoria.values()) {
+                    Set<String> esperados = c.claves(referencia);
+                    if (esperados.isEmpty()) continue;
+                    for (String modo : c.modos) {
+                        Set<String> faltan = new TreeSet<>(esperados);
+                        faltan.removeAll(c.claves(esperado(nombre, modo)));
+                        assertTrue(faltan.isEmpty(), nombre + "." + modo + " perdió hallazgos " + c + " de la referencia: " + faltan);
+                    }
+                    revisados.merge(c, esperados.size(), Integer::sum);
+                }
+            }
+        }
+        assertEquals(EnumSet.allOf(Categoria.class), revisados.keySet(),
+                "Categorías sin ninguna línea en los reportes de referencia: " + revisados);
+    }
+
+    /** Toda línea de la referencia es encabezado, de una {@link Categoria} o de una regla que ya no existe. */
+    private static void sinCategoria(String nombre, String referencia) {
+        for (String linea : referencia.split("\\R")) {
+            boolean conocida = ENCABEZADO.matcher(linea).matches() || SIN_REGLA.matcher(linea).find()
+                    || Arrays.stream(Categoria.values()).anyMatch(c -> c.patron.matcher(linea).find());
+            assertTrue(conocida, nombre + ": línea de la referencia sin categoría: " + linea);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Modo.class, mode = EnumSource.Mode.EXCLUDE, names = "SECUENCIAL")
+    void cadaModoIgualAlEsperado(Modo modo) throws Exception {
+        comparar(modo, ejecutar(modo));
+    }
+
+    private static void comparar(Modo modo, Map<String, byte[]> reportes) {
+        assertEquals(facturas.size() * 2, reportes.size(), modo + ": faltan reportes");
+        for (Map.Entry<String, byte[]> e : reportes.entrySet()) {
+            String[] partes = e.getKey().split("\\.");
+            String esperado = esperado(partes[0], partes[1]);
+            assertNotNull(esperado, "Falta golden/esperado/" + e.getKey() + ".txt");
+            assertEquals(esperado, normalizar(e.getValue()), modo + ": " + e.getKey());
+        }
+    }
+
+    /** nombre.pyp / nombre.morb -> reporte. */
+    private Map<String, byte[]> ejecutar(Modo modo) throws Exception {
+        return switch (modo) {
+            case SECUENCIAL -> directo(mapperPlano());
+            case PARALELO -> paralelo(mapperCanonico());
+            case INGESTA -> ingesta(mapperPlano(), 2, true);
+            case COMBINADO -> ingesta(mapperCanonico(), HILOS, false);
+        };
+    }
+
+    /** Lee con secciones diferidas; {@link #paralelo} usa readValue y las parsea al momento. */
+    private static Map<String, byte[]> directo(ObjectMapper mapper) throws Exception {
+        ValidadorServicePYP pyp = pyp();
+        ValidadorServiceMorb morb = morb();
+        Map<String, byte[]> reportes = new TreeMap<>();
+        for (Map.Entry<String, byte[]> e : facturas.entrySet()) {
+            Factura f = LectorFactura.leer(mapper, e.getValue());
+            reportes.put(e.getKey() + "." + PYP, pyp.validarFactura(f).getByteArray());
+            reportes.put(e.getKey() + "." + MORB, morb.validarFactura(f).getByteArray());
+        }
+        return reportes;
+    }
+
+    /** Todas las repeticiones de una factura deben coincidir entre sí, no solo con el esperado. */
+    private static Map<String, byte[]> paralelo(ObjectMapper mapper) throws Exception {
+        ValidadorServicePYP pyp = pyp();
+        ValidadorServiceMorb morb = morb();
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        try {
+            Map<String, List<Future<byte[]>>> pendientes = new TreeMap<>();
+            for (int r = 0; r < REPETICIONES; r++) {
+                for (Map.Entry<String, byte[]> e : facturas.entrySet()) {
+                    byte[] json = e.getValue();
+                    pendientes.computeIfAbsent(e.getKey() + "." + PYP, k -> new ArrayList<>())
+                            .add(pool.submit(() -> pyp.validarFactura(mapper.readValue(json, Factura.class)).getByteArray()));
+                    pendientes.computeIfAbsent(e.getKey() + "." + MORB, k -> new ArrayList<>())
+                            .add(pool.submit(() -> morb.validarFactura(mapper.readValue(json, Factura.class)).getByteArray()));
+                }
+            }
+            Map<String, byte[]> reportes = new TreeMap<>();
+            for (Map.Entry<String, List<Future<byte[]>>> e : pendientes.entrySet()) {
+                byte[] primero = e.getValue().get(0).get(1, TimeUnit.MINUTES);
+                for (Future<byte[]> otro : e.getValue()) {
+                    assertArrayEquals(primero, otro.get(1, TimeUnit.MINUTES), "Repeticiones distintas de " + e.getKey());
+                }
+                reportes.put(e.getKey(), primero);
+            }
+            return reportes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @param antesDeArrancar true: los archivos ya están en la carpeta (escaneo inicial);
+     *                        false: llegan por rename mientras la ingesta vigila la carpeta
+     */
+    private Map<String, byte[]> ingesta(ObjectMapper mapper, int hilos, boolean antesDeArrancar) throws Exception {
+        Path entrada = tmp.resolve("entrada");
+        Path resultados = tmp.resolve("resultados");
+        Files.createDirectories(entrada);
+        IngestaCarpetaService ingesta = new IngestaCarpetaService(pyp(), morb(), mapper,
+                entrada.toString(), resultados.toString(), "ambos", "detallado", hilos, 16);
+
+        if (antesDeArrancar) depositar(entrada);
+        ingesta.iniciar();
+        try {
+            if (!antesDeArrancar) depositar(entrada);
+
+            long limite = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+            while (contarJson(entrada.resolve("procesados")) < facturas.size()) {
+                assertEquals(0, contarJson(entrada.resolve("fallidos")), "Hay facturas en fallidos/");
+                assertTrue(System.nanoTime() < limite, "La ingesta no terminó a tiempo");
+                Thread.sleep(20);
+            }
+        } finally {
+            ingesta.detener();
+        }
+
+        Map<String, byte[]> reportes = new TreeMap<>();
+        for (String nombre : facturas.keySet()) {
+            reportes.put(nombre + "." + PYP, Files.readAllBytes(resultados.resolve(nombre + ".json.pyp.txt")));
+            reportes.put(nombre + "." + MORB, Files.readAllBytes(resultados.resolve(nombre + ".json.morb.txt")));
+        }
+        return reportes;
+    }
+
+    /** Como un productor bien portado: escribe con nombre temporal y renombra a .json. */
+    private void depositar(Path entrada) throws Exception {
+        for (Map.Entry<String, byte[]> e : facturas.entrySet()) {
+            Path temporal = entrada.resolve(e.getKey() + ".json.part");
+            Files.write(temporal, e.getValue());
+            Files.move(temporal, entrada.resolve(e.getKey() + ".json"), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static long contarJson(Path carpeta) throws Exception {
+        if (!Files.isDirectory(carpeta)) return 0;
+        try (var s = Files.list(carpeta)) {
+            return s.filter(p -> p.getFileName().toString().endsWith(".json")).count();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.validadorjson.ingesta;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.reporte.ReportStoreMemoria;
+import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestaCarpetaServiceTest {
+
+    private static final byte[] FACTURA = FixturesGolden.factura("fact_0102258");
+
+    @TempDir
+    Path entrada;
+
+    // hilo de cada validación PYP, en orden
+    private final List<String> validaciones = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch bloqueo = new CountDownLatch(0);
+    private volatile boolean morbFalla;
+    private IngestaCarpetaService ingesta;
+
+    @AfterEach
+    void detener() throws Exception {
+        bloqueo.countDown();
+        if (ingesta != null) ingesta.detener();
+    }
+
+    @Test
+    void alReiniciarSoloSeRevalidanLosQueNoTienenTodosSusReportes() throws Exception {
+        Files.createDirectories(entrada.resolve("procesando"));
+        Files.createDirectories(entrada.resolve("procesados"));
+        FileTime archivo = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        // a: reportes posteriores al archivo, solo faltó moverlo
+        pendiente("a.json", archivo);
+        reporte("a.json.pyp.txt", archivo.toMillis() + 10_000);
+        reporte("a.json.morb.txt", archivo.toMillis() + 10_000);
+        // b: reportes de un b.json anterior
+        pendiente("b.json", archivo);
+        reporte("b.json.pyp.txt", archivo.toMillis() - 10_000);
+        reporte("b.json.morb.txt", archivo.toMillis() - 10_000);
+        // c: se cayó entre un reporte y otro
+        pendiente("c.json", archivo);
+        reporte("c.json.pyp.txt", archivo.toMillis() + 10_000);
+
+        iniciar(2, 4);
+
+        esperar(() -> json("procesados").size() == 3);
+        assertEquals(List.of(), json("procesando"));
+        assertEquals(2, validaciones.size());
+        assertEquals("viejo", leer("procesados/a.json.pyp.txt"));
+        assertNotEquals("viejo", leer("procesados/b.json.pyp.txt"));
+        assertNotEquals("viejo", leer("procesados/c.json.pyp.txt"));
+        assertTrue(Files.exists(entrada.resolve("procesados/c.json.morb.txt")));
+    }
+
+    @Test
+    void unArchivoIlegibleVaAFallidosConSuError() throws Exception {
+        iniciar(1, 4);
+
+        soltar("malo.json", "{ no es json".getBytes(StandardCharsets.UTF_8));
+
+        esperar(() -> Files.exists(entrada.resolve("fallidos/malo.json.error.txt")));
+        esperar(() -> Files.exists(entrada.resolve("fallidos/malo.json")));
+        assertTrue(leer("fallidos/malo.json.error.txt").startsWith("⚠️ No se pudo validar el archivo: "));
+        assertEquals(List.of(), json("procesados"));
+    }
+
+    @Test
+    void siFallaMorbNoQuedaElReportePyp() throws Exception {
+        morbFalla = true;
+        iniciar(1, 4);
+
+        soltar("f.json", FACTURA);
+
+        esperar(() -> Files.exists(entrada.resolve("fallidos/f.json")));
+        assertEquals(1, validaciones.size());
+        assertTrue(leer("fallidos/f.json.error.txt").contains("Morb falló"));
+        try (Stream<Path> s = Files.list(entrada.resolve("procesados"))) {
+            assertEquals(List.of(), s.toList());
+        }
+    }
+
+    @Test
+    void unArchivoConElMismoNombreEsperaAlQueEstaEnCurso() throws Exception {
+        bloqueo = new CountDownLatch(1);
+        iniciar(2, 4);
+
+        soltar("x.json", FACTURA);
+        esperar(() -> validaciones.size() == 1);
+        byte[] segundo = (new String(FACTURA, StandardCharsets.UTF_8) + "  ").getBytes(StandardCharsets.UTF_8);
+        soltar("x.json", segundo);
+        Thread.sleep(300);
+
+        // no reemplazó al que está en curso
+        assertArrayEquals(FACTURA, Files.readAllBytes(entrada.resolve("procesando/x.json")));
+        assertTrue(Files.exists(entrada.resolve("x.json")));
+
+        bloqueo.countDown();
+        esperar(() -> validaciones.size() == 2 && !Files.exists(entrada.resolve("x.json"))
+                && !Files.exists(entrada.resolve("procesando/x.json")));
+        esperar(() -> Files.exists(entrada.resolve("procesados/x.json")));
+        assertArrayEquals(segundo, Files.readAllBytes(entrada.resolve("procesados/x.json")));
+    }
+
+    @Test
+    void conLaColaLlenaElVigilanteEsperaYNoValida() throws Exception {
+        bloqueo = new CountDownLatch(1);
+        // un trabajador y una tarea en cola: dos cupos
+        iniciar(1, 1);
+
+        for (int i = 0; i < 6; i++) {
+            soltar("f" + i + ".json", FACTURA);
+        }
+        esperar(() -> validaciones.size() == 1);
+        Thread.sleep(300);
+
+        // uno validándose; la tarea en cola aún no reclama; el vigilante espera cupo sin tocar los demás
+        assertEquals(1, json("procesando").size());
+        assertEquals(5, json("").size());
+        assertEquals(1, validaciones.size());
+
+        bloqueo.countDown();
+        esperar(() -> json("procesados").size() == 6);
+        assertEquals(6, validaciones.size());
+        assertTrue(validaciones.stream().allMatch(hilo -> hilo.matches("ingesta-\\d+")), validaciones.toString());
+    }
+
+    /* --------------------------- Apoyo --------------------------- */
+
+    private void iniciar(int hilos, int capacidadCola) throws IOException {
+        AnaliticaErrores analitica = new AnaliticaErrores(60, 1, FixturesGolden.RELOJ);
+        ValidadorServicePYP pyp = new ValidadorServicePYP(analitica, new ReportStoreMemoria(), "2", FixturesGolden.RELOJ) {
+            @Override
+            public ByteArrayResource validarFactura(Factura factura, FormatoReporte formato) {
+                validaciones.add(Thread.currentThread().getName());
+                try {
+                    bloqueo.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.validarFactura(factura, formato);
+            }
+        };
+        ValidadorServiceMorb morb = new ValidadorServiceMorb(analitica, new ReportStoreMemoria(), "2") {
+            @Override
+            public ByteArrayResource validarFactura(Factura factura, FormatoReporte formato) {
+                if (morbFalla) throw new IllegalStateException("Morb falló");
+                return super.validarFactura(factura, formato);
+            }
+        };
+        ingesta = new IngestaCarpetaService(pyp, morb, FixturesGolden.mapperPlano(), entrada.toString(), "",
+                "ambos", "detallado", hilos, capacidadCola);
+        ingesta.iniciar();
+    }
+
+    /** Como un productor: escribe con nombre oculto y renombra. */
+    private void soltar(String nombre, byte[] contenido) throws IOException {
+        Path temporal = entrada.resolve("." + nombre + ".part");
+        Files.write(temporal, contenido);
+        Files.move(temporal, entrada.resolve(nombre), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void pendiente(String nombre, FileTime modificado) throws IOException {
+        Path p = Files.write(entrada.resolve("procesando").resolve(nombre), FACTURA);
+        Files.setLastModifiedTime(p, modificado);
+    }
+
+    private void reporte(String nombre, long modificadoMs) throws IOException {
+        Path p = Files.writeString(entrada.resolve("procesados").resolve(nombre), "viejo");
+        Files.setLastModifiedTime(p, FileTime.fromMillis(modificadoMs));
+    }
+
+    private String leer(String relativo) throws IOException {
+        return Files.readString(entrada.resolve(relativo));
+    }
+
+    private List<String> json(String carpeta) {
+        try (Stream<Path> s = Files.list(entrada.resolve(carpeta))) {
+            return s.map(p -> p.getFileName().toString()).filter(n -> n.endsWith(".json")).sorted().toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (!condicion.getAsBoolean()) {
+            if (System.nanoTime() > limite) fail("No se cumplió la condición a tiempo");
+            Thread.sleep(20);
+        }
+    }
+}
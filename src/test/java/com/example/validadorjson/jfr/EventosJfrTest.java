@@ -0,0 +1,149 @@
+package com.example.validadorjson.jfr;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.reporte.ReportStoreMemoria;
+import com.example.validadorjson.reporte.Reporte;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los eventos del validador con una grabación que los habilita, y sin ella. Cada prueba valida
+ * la misma factura con su propio servicio; la grabación se vuelca y se lee con RecordingFile.
+ */
+class EventosJfrTest {
+
+    private static final List<String> EVENTOS = List.of("validador.FacturaValidacion", "validador.UsuarioProcesado",
+            "validador.ReglaEjecutada", "validador.ReportePersistido");
+
+    private final Factura factura = leer("fact_0102258");
+    private final String numFactura = factura.numFactura();
+    private final AnaliticaErrores analitica = new AnaliticaErrores(60, 60, FixturesGolden.RELOJ);
+    private final ValidadorServicePYP pyp = new ValidadorServicePYP(analitica, new ReportStoreMemoria(), "1", FixturesGolden.RELOJ);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void conGrabacionCadaEventoLlevaSusDatos() throws Exception {
+        List<RecordedEvent> eventos;
+        byte[] reporte;
+        try (Recording grabacion = new Recording()) {
+            EVENTOS.forEach(e -> grabacion.enable(e).withoutThreshold());
+            grabacion.start();
+            assertNotSame(ReportePersistidoEvent.iniciar(), ReportePersistidoEvent.iniciar());
+            reporte = pyp.validarFactura(factura).getByteArray();
+            grabacion.stop();
+            eventos = leer(grabacion);
+        }
+        Map<String, List<RecordedEvent>> porTipo = eventos.stream()
+                .collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+
+        RecordedEvent validacion = unico(porTipo.get("validador.FacturaValidacion"));
+        assertEquals("PYP", validacion.getString("modo"));
+        assertEquals(numFactura, validacion.getString("numFactura"));
+        assertEquals(factura.usuarios().size(), validacion.getInt("usuarios"));
+        int servicios = factura.usuarios().stream()
+                .mapToInt(u -> tamano(u.servicios().consultas()) + tamano(u.servicios().procedimientos())).sum();
+        assertEquals(servicios, validacion.getInt("servicios"));
+        long hallazgos = analitica.consultar(0, 0, null, null).totalHallazgos();
+        assertTrue(hallazgos > 0);
+        assertEquals(hallazgos, validacion.getInt("hallazgos"));
+
+        // un evento por usuario, con sus servicios; la suma de hallazgos por usuario no pasa la de la factura
+        Map<Integer, RecordedEvent> usuarios = porTipo.get("validador.UsuarioProcesado").stream()
+                .collect(Collectors.toMap(e -> e.getInt("usuarioConsecutivo"), Function.identity()));
+        assertEquals(factura.usuarios().size(), usuarios.size());
+        int hallazgosUsuarios = 0;
+        for (Usuario u : factura.usuarios()) {
+            RecordedEvent e = usuarios.get(u.consecutivo());
+            assertNotNull(e, "usuario " + u.consecutivo());
+            assertEquals(numFactura, e.getString("numFactura"));
+            assertEquals(tamano(u.servicios().consultas()), e.getInt("consultas"));
+            assertEquals(tamano(u.servicios().procedimientos()), e.getInt("procedimientos"));
+            hallazgosUsuarios += e.getInt("hallazgos");
+        }
+        assertTrue(hallazgosUsuarios <= hallazgos);
+
+        // reglas por factura, por usuario (servicio 0) y por servicio del plan, todas de esta factura
+        List<RecordedEvent> reglas = porTipo.get("validador.ReglaEjecutada");
+        assertTrue(reglas.stream().allMatch(e -> numFactura.equals(e.getString("numFactura"))));
+        assertTrue(reglas.stream().anyMatch(e -> "revisarIntegridadFactura".equals(e.getString("regla"))));
+        assertTrue(reglas.stream().anyMatch(e -> "validarDocumentoSegunEdad".equals(e.getString("regla"))
+                && usuarios.containsKey(e.getInt("usuarioConsecutivo")) && e.getInt("servicioConsecutivo") == 0));
+        assertTrue(reglas.stream().anyMatch(e -> e.getInt("servicioConsecutivo") > 0
+                && usuarios.containsKey(e.getInt("usuarioConsecutivo"))));
+        assertTrue(reglas.stream().anyMatch(e -> e.getInt("hallazgos") > 0));
+
+        RecordedEvent persistido = unico(porTipo.get("validador.ReportePersistido"));
+        assertEquals(numFactura, persistido.getString("numFactura"));
+        assertEquals("pyp/errores_validacion_fact_" + numFactura, persistido.getString("clave"));
+        assertEquals(reporte.length, persistido.getLong("bytes"));
+        assertTrue(persistido.getBoolean("exito"));
+    }
+
+    @Test
+    void sinGrabacionNoSeEmiteNadaYSeUsaElEventoInactivo() throws Exception {
+        Reporte reporte = new Reporte(FormatoReporte.DETALLADO);
+        List<RecordedEvent> eventos;
+        try (Recording grabacion = new Recording()) {
+            // otra grabación en curso, con los eventos del validador deshabilitados
+            EVENTOS.forEach(grabacion::disable);
+            grabacion.enable("jdk.ThreadStart");
+            grabacion.start();
+
+            // sin asignar: siempre la misma instancia compartida
+            assertSame(FacturaValidacionEvent.iniciar(reporte), FacturaValidacionEvent.iniciar(reporte));
+            assertSame(UsuarioProcesadoEvent.iniciar(reporte), UsuarioProcesadoEvent.iniciar(reporte));
+            assertSame(ReglaEjecutadaEvent.iniciar(reporte), ReglaEjecutadaEvent.iniciar(reporte));
+            assertSame(ReportePersistidoEvent.iniciar(), ReportePersistidoEvent.iniciar());
+
+            pyp.validarFactura(factura);
+            grabacion.stop();
+            eventos = leer(grabacion);
+        }
+
+        assertEquals(List.of(), eventos.stream().map(e -> e.getEventType().getName()).filter(EVENTOS::contains).toList());
+    }
+
+    private List<RecordedEvent> leer(Recording grabacion) throws Exception {
+        Path archivo = dir.resolve(Objects.requireNonNull(grabacion.getName()) + ".jfr");
+        grabacion.dump(archivo);
+        return RecordingFile.readAllEvents(archivo);
+    }
+
+    private static RecordedEvent unico(List<RecordedEvent> eventos) {
+        assertNotNull(eventos);
+        assertEquals(1, eventos.size(), eventos.toString());
+        return eventos.get(0);
+    }
+
+    private static int tamano(List<?> servicios) {
+        return servicios == null ? 0 : servicios.size();
+    }
+
+    private static Factura leer(String nombre) {
+        try {
+            return LectorFactura.leer(FixturesGolden.mapperPlano(), FixturesGolden.factura(nombre));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.validadorjson.json;
+
+import com.example.validadorjson.dto.Consulta;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternadorCadenasTest {
+
+    @Test
+    void unAciertoDevuelveLaInstanciaCanonica() {
+        InternadorCadenas internador = new InternadorCadenas(16, 32);
+        String primera = internador.canonica("xx050010000001yy".toCharArray(), 2, 12);
+
+        assertEquals("050010000001", primera);
+        assertSame(primera, internador.canonica("050010000001".toCharArray(), 0, 12));
+        assertSame(primera, internador.canonica(new String("050010000001")));
+    }
+
+    @Test
+    void losValoresLargosNoSeGuardan() {
+        InternadorCadenas internador = new InternadorCadenas(16, 4);
+        String primera = internador.canonica("12345".toCharArray(), 0, 5);
+
+        assertNotSame(primera, internador.canonica("12345".toCharArray(), 0, 5));
+        assertNull(internador.canonica(null));
+    }
+
+    @Test
+    void conLosSondeosOcupadosSeReemplazaElPrimero() {
+        InternadorCadenas internador = new InternadorCadenas(16, 32);
+        // cinco valores que caen en el mismo slot inicial; la tabla tiene 4 sondeos por clave
+        List<String> colisiones = colisiones(32, 5);
+        List<String> canonicas = new ArrayList<>();
+        for (String valor : colisiones) {
+            canonicas.add(internador.canonica(valor.toCharArray(), 0, valor.length()));
+        }
+
+        // el quinto ocupó el slot inicial, el primero salió de la tabla y los demás siguen
+        assertSame(canonicas.get(4), internador.canonica(new String(colisiones.get(4))));
+        assertSame(canonicas.get(1), internador.canonica(new String(colisiones.get(1))));
+        assertSame(canonicas.get(3), internador.canonica(new String(colisiones.get(3))));
+        assertNotSame(canonicas.get(0), internador.canonica(new String(colisiones.get(0))));
+    }
+
+    @Test
+    void soloSeCanonicalizanLosCamposListadosDeLosDto() throws Exception {
+        ObjectMapper mapper = FixturesGolden.mapperCanonico();
+        List<Consulta> consultas = mapper.readValue("""
+                [{"codPrestador":"050010000001","numDocumentoIdentificacion":"43000000","causaMotivoAtencion":38},
+                 {"codPrestador":"050010000001","numDocumentoIdentificacion":"43000000","causaMotivoAtencion":38}]
+                """, new TypeReference<>() { });
+
+        assertSame(consultas.get(0).codPrestador(), consultas.get(1).codPrestador());
+        // un número en un campo String se convierte como en Jackson y también se canonicaliza
+        assertEquals("38", consultas.get(0).causaMotivoAtencion());
+        assertSame(consultas.get(0).causaMotivoAtencion(), consultas.get(1).causaMotivoAtencion());
+        // campo fuera de la lista: alta cardinalidad, cada fila con su String
+        assertNotSame(consultas.get(0).numDocumentoIdentificacion(), consultas.get(1).numDocumentoIdentificacion());
+
+        List<Map<String, String>> otros = mapper.readValue("[{\"codPrestador\":\"050010000001\"},{\"codPrestador\":\"050010000001\"}]",
+                new TypeReference<>() { });
+        assertNotSame(otros.get(0).get("codPrestador"), otros.get(1).get("codPrestador"));
+    }
+
+    /** Valores distintos cuyo slot inicial es el mismo en una tabla de {@code tamano} slots. */
+    private static List<String> colisiones(int tamano, int cuantos) {
+        List<String> valores = new ArrayList<>();
+        int objetivo = -1;
+        for (int i = 0; valores.size() < cuantos; i++) {
+            String valor = "Z" + i;
+            int h = valor.hashCode();
+            int slot = (h ^ (h >>> 16)) & (tamano - 1);
+            if (objetivo < 0) objetivo = slot;
+            if (slot == objetivo) valores.add(valor);
+        }
+        return valores;
+    }
+}
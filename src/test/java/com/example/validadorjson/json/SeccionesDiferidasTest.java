@@ -0,0 +1,88 @@
+package com.example.validadorjson.json;
+
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.dto.Medicamento;
+import com.example.validadorjson.dto.Servicios;
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeccionesDiferidasTest {
+
+    private static final byte[] JSON = FixturesGolden.factura("fact_secciones");
+
+    @Test
+    void lasSeccionesNoSeMaterializanAlLeer() throws Exception {
+        Factura factura = LectorFactura.leer(FixturesGolden.mapperCanonico(), JSON);
+        Servicios s = factura.usuarios().get(0).servicios();
+
+        assertEquals(1, s.consultas().size());
+        assertFalse(s.urgencias().materializada());
+        assertFalse(s.hospitalizacion().materializada());
+        assertFalse(s.recienNacidos().materializada());
+        assertFalse(s.medicamentos().materializada());
+        assertFalse(s.otrosServicios().materializada());
+        assertTrue(s.medicamentos().bytesJson() > 0);
+    }
+
+    @Test
+    void diferidaYAnsiosaDanLoMismo() throws Exception {
+        ObjectMapper mapper = FixturesGolden.mapperCanonico();
+        List<Usuario> diferidos = LectorFactura.leer(mapper, JSON).usuarios();
+        List<Usuario> ansiosos = mapper.readValue(JSON, Factura.class).usuarios();
+
+        for (int i = 0; i < diferidos.size(); i++) {
+            Servicios d = diferidos.get(i).servicios();
+            Servicios a = ansiosos.get(i).servicios();
+            assertTrue(a.medicamentos().materializada());
+            assertEquals(a.urgencias().obtener(), d.urgencias().obtener());
+            assertEquals(a.hospitalizacion().obtener(), d.hospitalizacion().obtener());
+            assertEquals(a.recienNacidos().obtener(), d.recienNacidos().obtener());
+            assertEquals(a.medicamentos().obtener(), d.medicamentos().obtener());
+            assertEquals(a.otrosServicios().obtener(), d.otrosServicios().obtener());
+        }
+
+        List<Medicamento> medicamentos = diferidos.get(0).servicios().medicamentos().obtener();
+        assertEquals(5, medicamentos.size());
+        assertEquals("1995001-01", medicamentos.get(0).codTecnologiaSalud());
+        assertEquals("SUTURA \"ABSORBIBLE\" 3/0 \\ Ñ",
+                diferidos.get(0).servicios().otrosServicios().obtener().get(0).nomTecnologiaSalud());
+        // ausentes, null y [] quedan como lista vacía
+        assertTrue(diferidos.get(1).servicios().urgencias().obtener().isEmpty());
+        assertTrue(diferidos.get(2).servicios().urgencias().obtener().isEmpty());
+        assertTrue(diferidos.get(2).servicios().medicamentos().obtener().isEmpty());
+    }
+
+    @Test
+    void losTiposDeUnaSeccionDiferidaSeRevisanAlMaterializarla() throws Exception {
+        byte[] json = ("{\"numFactura\":\"F1\",\"usuarios\":[{\"consecutivo\":1,\"servicios\":{\"consultas\":[],"
+                + "\"medicamentos\":[{\"codTecnologiaSalud\":\"X\",\"consecutivo\":\"abc\"}]}}]}")
+                .getBytes(StandardCharsets.UTF_8);
+        ObjectMapper mapper = FixturesGolden.mapperPlano();
+
+        assertThrows(JsonProcessingException.class, () -> mapper.readValue(json, Factura.class));
+
+        // diferida: la lectura pasa y el error aparece al pedir la sección
+        Servicios s = LectorFactura.leer(mapper, json).usuarios().get(0).servicios();
+        UncheckedIOException ex = assertThrows(UncheckedIOException.class, () -> s.medicamentos().obtener());
+        assertInstanceOf(JsonProcessingException.class, ex.getCause());
+        assertFalse(s.medicamentos().materializada());
+    }
+
+    @Test
+    void seSerializaComoArreglo() throws Exception {
+        ObjectMapper mapper = FixturesGolden.mapperPlano();
+        Servicios s = LectorFactura.leer(mapper, JSON).usuarios().get(1).servicios();
+        String json = mapper.writeValueAsString(s);
+        assertTrue(json.contains("\"medicamentos\":[{\"codPrestador\":\"760010000001\""), json);
+        assertTrue(json.contains("\"urgencias\":[]"), json);
+    }
+}
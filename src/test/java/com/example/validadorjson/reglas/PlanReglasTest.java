@@ -0,0 +1,122 @@
+package com.example.validadorjson.reglas;
+
+import com.example.validadorjson.dto.Usuario;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.reporte.Reporte;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanReglasTest {
+
+    private static final Usuario USUARIO = new Usuario("CC", "1", "01", "1980-01-01", "F",
+            "170", "76001", "01", "NO", 1, "170", null);
+
+    private final List<String> evaluadas = new ArrayList<>();
+
+    private Regla<String> regla(String nombre, int costo, double selectividad, EnumSet<Entrada> entradas,
+                                List<String> requiere, Predicate<ContextoFila<String>> hallazgo) {
+        return new Regla<>(nombre, costo, selectividad, entradas, requiere,
+                ctx -> {
+                    evaluadas.add(nombre);
+                    return hallazgo.test(ctx);
+                },
+                (ctx, errores) -> errores.linea(nombre));
+    }
+
+    private PlanReglas<String> plan() {
+        return PlanReglas.de("TEST", "servicios", List.of(
+                regla("fechas", 1, 0.01, EnumSet.of(Entrada.FECHA_ATENCION), List.of(),
+                        ctx -> ctx.errorFechas() != null),
+                regla("tipo", 1, 0.5, EnumSet.of(Entrada.TIPO_DOCUMENTO), List.of(),
+                        ctx -> ctx.servicio().startsWith("tipo")),
+                regla("edad", 2, 0.1, EnumSet.of(Entrada.EDAD), List.of("tipo"),
+                        ctx -> ctx.edad() < 18)));
+    }
+
+    @Test
+    void laReglaBarataQueDescartaVaPrimeroYLasEntradasSeCobranUnaVez() {
+        List<PlanReglas.PasoPlan> pasos = plan().resumen().pasos();
+
+        assertEquals(List.of("tipo", "fechas", "edad"), pasos.stream().map(PlanReglas.PasoPlan::regla).toList());
+        // edad reutiliza la fecha de atención que ya calculó "fechas"
+        assertEquals(List.of(Entrada.FECHA_NACIMIENTO, Entrada.EDAD), pasos.get(2).calcula());
+        assertEquals(3, pasos.get(2).posicionReporte());
+    }
+
+    @Test
+    void reportaEnOrdenDeclaradoYOmiteDependientes() {
+        PlanReglas<String> plan = plan();
+        ContextoFila<String> ctx = plan.iniciar("F1", USUARIO);
+        Reporte errores = new Reporte(FormatoReporte.DETALLADO);
+
+        ctx.fila("tipo malo", 1, "P", "sin fecha", null).ejecutar(errores);
+        assertEquals(lineas("fechas", "tipo"), errores.texto());
+        assertEquals(List.of("tipo", "fechas"), evaluadas);
+
+        errores = new Reporte(FormatoReporte.DETALLADO);
+        ctx.fila("ok", 2, "P", "2025-01-01 08:00", null).ejecutar(errores);
+        assertEquals("", errores.texto());
+        ctx.terminar();
+
+        PlanReglas.PasoPlan edad = plan.resumen().pasos().get(2);
+        assertEquals(1, edad.evaluaciones());
+        assertEquals(1, edad.omitidas());
+    }
+
+    @Test
+    void unaExcepcionReportaSoloLoDeclaradoAntes() {
+        Usuario sinNacimiento = new Usuario("CC", "1", "01", null, "F", "170", "76001", "01", "NO", 1, "170", null);
+        PlanReglas<String> plan = PlanReglas.de("TEST", "servicios", List.of(
+                regla("primera", 50, 0, EnumSet.noneOf(Entrada.class), List.of(), ctx -> true),
+                regla("fechas", 1, 0, EnumSet.of(Entrada.FECHA_NACIMIENTO), List.of(), ctx -> ctx.errorFechas() != null),
+                regla("tercera", 1, 0, EnumSet.noneOf(Entrada.class), List.of(), ctx -> true)));
+        Reporte errores = new Reporte(FormatoReporte.DETALLADO);
+
+        ContextoFila<String> ctx = plan.iniciar("F1", sinNacimiento).fila("x", 1, "P", "2025-01-01", null);
+        // fechaNacimiento null no es error de formato: sale como excepción, igual que LocalDate.parse(null)
+        assertThrows(NullPointerException.class, () -> ctx.ejecutar(errores));
+        assertEquals(lineas("primera"), errores.texto());
+    }
+
+    @Test
+    void cadaReporteVeLoQueGuardoSuCondicionEnEsaFila() {
+        PlanReglas<String> plan = PlanReglas.de("TEST", "servicios", List.of(
+                new Regla<>("a", 5, 0.5, EnumSet.noneOf(Entrada.class), List.of(),
+                        ctx -> {
+                            ctx.guardarResultado("a:" + ctx.servicio());
+                            return true;
+                        },
+                        (ctx, errores) -> errores.linea(ctx.resultado())),
+                new Regla<>("b", 1, 0.5, EnumSet.noneOf(Entrada.class), List.of(),
+                        ctx -> {
+                            if (!ctx.servicio().equals("y")) ctx.guardarResultado("b:" + ctx.servicio());
+                            return true;
+                        },
+                        (ctx, errores) -> errores.linea(String.valueOf((Object) ctx.resultado())))));
+        ContextoFila<String> ctx = plan.iniciar("F1", USUARIO);
+        Reporte errores = new Reporte(FormatoReporte.DETALLADO);
+
+        ctx.fila("x", 1, "P", "", null).ejecutar(errores);
+        // en la fila siguiente b no guarda nada: no ve lo de la fila anterior
+        ctx.fila("y", 2, "P", "", null).ejecutar(errores);
+
+        assertEquals(lineas("a:x", "b:x", "a:y", "null"), errores.texto());
+    }
+
+    @Test
+    void requisitoDebeDeclararseAntes() {
+        assertThrows(IllegalArgumentException.class, () -> PlanReglas.de("TEST", "servicios", List.of(
+                regla("a", 1, 0, EnumSet.noneOf(Entrada.class), List.of("b"), ctx -> false),
+                regla("b", 1, 0, EnumSet.noneOf(Entrada.class), List.of(), ctx -> false))));
+    }
+
+    private static String lineas(String... lineas) {
+        return String.join(System.lineSeparator(), lineas) + System.lineSeparator();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.validadorjson.rendimiento;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Umbral de rendimiento: corre {@link ValidacionBenchmark} y falla si alguna ruta cae por debajo
+ * del throughput de referencia o asigna más bytes por operación que la referencia, más allá de
+ * la tolerancia. Referencias en rendimiento/umbrales.properties.
+ *
+ * Solo con el perfil: mvn -Prendimiento test
+ * La asignación por operación casi no depende de la máquina; el throughput sí, por eso su
+ * tolerancia es mayor y se puede ajustar con -Drendimiento.tolerancia.throughput=0.5 en máquinas lentas.
+ */
+@Tag("rendimiento")
+class UmbralRendimientoTest {
+
+    @Test
+    void sinRegresiones() throws Exception {
+        Properties umbrales = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("/rendimiento/umbrales.properties")) {
+            umbrales.load(in);
+        }
+        double tolThroughput = tolerancia(umbrales, "throughput");
+        double tolAsignacion = tolerancia(umbrales, "asignacion");
+
+        Options opciones = new OptionsBuilder()
+                .include(ValidacionBenchmark.class.getName() + "\\.")
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> resultados = new Runner(opciones).run();
+
+        List<String> regresiones = new ArrayList<>();
+        for (RunResult r : resultados) {
+            String benchmark = r.getParams().getBenchmark();
+            String nombre = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+            double ops = r.getPrimaryResult().getScore();
+            double bytes = asignacionPorOperacion(r);
+            System.out.printf(Locale.ROOT, "%s.ops-min=%.0f%n%s.bytes-max=%.0f%n", nombre, ops, nombre, bytes);
+
+            double opsMin = Double.parseDouble(umbrales.getProperty(nombre + ".ops-min"));
+            double bytesMax = Double.parseDouble(umbrales.getProperty(nombre + ".bytes-max"));
+            if (ops < opsMin * (1 - tolThroughput)) {
+                regresiones.add(String.format(Locale.ROOT, "%s: %.0f ops/s < %.0f (-%.0f%%)", nombre, ops, opsMin, tolThroughput * 100));
+            }
+            if (bytes > bytesMax * (1 + tolAsignacion)) {
+                regresiones.add(String.format(Locale.ROOT, "%s: %.0f B/op > %.0f (+%.0f%%)", nombre, bytes, bytesMax, tolAsignacion * 100));
+            }
+        }
+        assertTrue(regresiones.isEmpty(), "Regresiones de rendimiento: " + regresiones);
+    }
+
+    private static double tolerancia(Properties umbrales, String tipo) {
+        String clave = "tolerancia." + tipo;
+        return Double.parseDouble(System.getProperty("rendimiento." + clave, umbrales.getProperty(clave)));
+    }
+
+    private static double asignacionPorOperacion(RunResult r) {
+        // JMH < 1.36 nombraba las métricas secundarias con un "·" inicial
+        Result<?> norm = r.getSecondaryResults().get("gc.alloc.rate.norm");
+        if (norm == null) norm = r.getSecondaryResults().get("·gc.alloc.rate.norm");
+        return norm.getScore();
+    }
+}
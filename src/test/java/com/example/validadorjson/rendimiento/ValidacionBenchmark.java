@@ -0,0 +1,54 @@
+package com.example.validadorjson.rendimiento;
+
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.example.validadorjson.service.ValidadorServiceMorb;
+import com.example.validadorjson.service.ValidadorServicePYP;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rutas calientes sobre la factura golden más grande (fact_0102264).
+ * Lo corre {@link UmbralRendimientoTest}; también se puede correr suelto con el Runner de JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ValidacionBenchmark {
+
+    static final String FACTURA = "fact_0102264";
+
+    private byte[] json;
+    private Factura factura;
+    private ObjectMapper mapper;
+    private ValidadorServicePYP pyp;
+    private ValidadorServiceMorb morb;
+
+    @Setup
+    public void preparar() throws IOException {
+        json = FixturesGolden.factura(FACTURA);
+        mapper = FixturesGolden.mapperCanonico();
+        factura = LectorFactura.leer(mapper, json);
+        pyp = FixturesGolden.pyp();
+        morb = FixturesGolden.morb();
+    }
+
+    @Benchmark
+    public Factura deserializar() throws IOException {
+        return LectorFactura.leer(mapper, json);
+    }
+
+    @Benchmark
+    public byte[] validarPyp() {
+        return pyp.validarFactura(factura).getByteArray();
+    }
+
+    @Benchmark
+    public byte[] validarMorb() {
+        return morb.validarFactura(factura).getByteArray();
+    }
+}
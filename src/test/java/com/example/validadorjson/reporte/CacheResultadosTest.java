@@ -0,0 +1,58 @@
+package com.example.validadorjson.reporte;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheResultadosTest {
+
+    @Test
+    void guardaYRecuperaElReporte() {
+        CacheResultados cache = new CacheResultados(new ReportStoreMemoria(), true, 60);
+
+        cache.guardar("pyp", "abc", "F\n1", "reporte\nlínea 2".getBytes(StandardCharsets.UTF_8));
+        CacheResultados.ResultadoCacheado r = cache.obtener("pyp", "abc").orElseThrow();
+
+        assertEquals("F 1", r.numFactura());
+        assertEquals("reporte\nlínea 2", new String(r.reporte(), StandardCharsets.UTF_8));
+        assertTrue(cache.obtener("morb", "abc").isEmpty());
+        cache.detener();
+    }
+
+    @Test
+    void laPurgaBorraSoloEntradasVencidasDeLaCacheEnMemoria() throws Exception {
+        ReportStoreMemoria store = new ReportStoreMemoria();
+        store.guardar("pyp/F1", new byte[]{1});
+        CacheResultados cache = new CacheResultados(store, true, 1);
+        cache.guardar("pyp", "viejo", "F1", new byte[]{2});
+        Thread.sleep(5);
+
+        assertEquals(0, cache.purgar()); // aún no pasa un minuto
+        assertEquals(1, store.purgar("cache/", Duration.ZERO));
+        assertTrue(cache.obtener("pyp", "viejo").isEmpty());
+        assertTrue(store.obtener("pyp/F1").isPresent());
+        cache.detener();
+    }
+
+    @Test
+    void laPurgaEnDiscoBorraArchivosViejosDeCache(@TempDir Path dir) throws Exception {
+        ReportStoreDisco store = new ReportStoreDisco(dir.toString());
+        store.guardar("cache/v3/pyp/viejo", new byte[]{1});
+        store.guardar("cache/v3/pyp/nuevo", new byte[]{2});
+        store.guardar("pyp/F1", new byte[]{3});
+        Path viejo = dir.resolve("cache/v3/pyp/viejo.txt");
+        Files.setLastModifiedTime(viejo, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis()));
+
+        assertEquals(1, store.purgar("cache/", Duration.ofHours(1)));
+        assertFalse(Files.exists(viejo));
+        assertTrue(store.obtener("cache/v3/pyp/nuevo").isPresent());
+        assertTrue(store.obtener("pyp/F1").isPresent());
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.validadorjson.reporte;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportStoreRedTest {
+
+    private ServidorRespLocal servidor;
+    private ReportStoreRed nodoA;
+    private ReportStoreRed nodoB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        servidor = new ServidorRespLocal();
+        nodoA = nuevoNodo();
+        nodoB = nuevoNodo();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nodoA.detener();
+        nodoB.detener();
+        servidor.close();
+    }
+
+    private ReportStoreRed nuevoNodo() {
+        return nodo(servidor, "", 0);
+    }
+
+    private static ReportStoreRed nodo(ServidorRespLocal servidor, String password, int base) {
+        return new ReportStoreRed("localhost", servidor.puerto(), password, base, 2000, "test:", 0, 64, 2, 100, 60_000);
+    }
+
+    @Test
+    void reporteGuardadoEnUnNodoSeLeeDesdeOtro() throws Exception {
+        byte[] reporte = "Validación factura: 0102264\n".getBytes(StandardCharsets.UTF_8);
+        nodoA.guardar("pyp/errores_validacion_fact_0102264", reporte);
+
+        assertArrayEquals(reporte, nodoB.obtener("pyp/errores_validacion_fact_0102264").orElseThrow());
+        assertTrue(nodoB.obtener("pyp/errores_validacion_fact_no_existe").isEmpty());
+    }
+
+    @Test
+    void escriturasConcurrentesQuedanTodasConfirmadas() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                int n = i;
+                futuros.add(pool.submit(() -> {
+                    nodoA.guardar("morb/f" + n, ("reporte " + n).getBytes(StandardCharsets.UTF_8));
+                    return null;
+                }));
+            }
+            for (Future<?> f : futuros) f.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(500, servidor.comandosSet.get());
+        for (int i = 0; i < 500; i++) {
+            assertEquals("reporte " + i, new String(nodoB.obtener("morb/f" + i).orElseThrow(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void escriturasConcurrentesSeMandanEnPocasRondas() throws Exception {
+        servidor.demoraMs = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < 160; i++) {
+                int n = i;
+                futuros.add(pool.submit(() -> {
+                    nodoA.guardar("morb/f" + n, new byte[]{(byte) n});
+                    return null;
+                }));
+            }
+            for (Future<?> f : futuros) f.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(160, servidor.comandosSet.get());
+        // una ronda por SET serían 160; mientras una ronda espera, los demás hilos llenan el lote siguiente
+        assertTrue(servidor.rondasSet.get() <= 40, "rondas: " + servidor.rondasSet.get());
+    }
+
+    @Test
+    void lecturasConcurrentesNoAbrenMasConexionesQueElPool() throws Exception {
+        servidor.demoraMs = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Optional<byte[]>>> futuros = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                int n = i;
+                futuros.add(pool.submit(() -> nodoB.obtener("pyp/no_existe_" + n)));
+            }
+            for (Future<Optional<byte[]>> f : futuros) assertTrue(f.get().isEmpty());
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(2, servidor.conexiones.get());
+    }
+
+    @Test
+    void detenerDesbloqueaUnaLecturaEnCurso() throws Exception {
+        servidor.demoraMs = 30_000;
+        ReportStoreRed nodo = new ReportStoreRed("localhost", servidor.puerto(), "", 0, 30_000, "test:", 0, 64, 2, 100, 60_000);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> lectura = pool.submit(() -> nodo.obtener("pyp/f3"));
+            while (servidor.conexiones.get() == 0) Thread.sleep(10);
+            Thread.sleep(100);
+
+            long inicio = System.nanoTime();
+            nodo.detener();
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> lectura.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(java.io.IOException.class, e.getCause());
+            assertTrue((System.nanoTime() - inicio) / 1_000_000 < 5_000);
+            assertThrows(java.io.IOException.class, () -> nodo.obtener("pyp/f3"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void cacheCercanaSirveSinIrAlServidor() throws Exception {
+        nodoA.guardar("pyp/f1", "uno".getBytes(StandardCharsets.UTF_8));
+        assertTrue(nodoB.obtener("pyp/f1").isPresent());
+
+        servidor.close();
+
+        assertEquals("uno", new String(nodoA.obtener("pyp/f1").orElseThrow(), StandardCharsets.UTF_8));
+        assertEquals("uno", new String(nodoB.obtener("pyp/f1").orElseThrow(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void servidorCaidoSeReportaComoError() throws Exception {
+        servidor.close();
+        assertThrows(java.io.IOException.class, () -> nodoA.guardar("pyp/f2", new byte[]{1}));
+    }
+
+    @Test
+    void conPasswordYBaseCadaConexionSeAutenticaUnaSolaVez() throws Exception {
+        try (ServidorRespLocal protegido = new ServidorRespLocal("secreto")) {
+            ReportStoreRed escritor = nodo(protegido, "secreto", 3);
+            ReportStoreRed lector = nodo(protegido, "secreto", 3);
+            ReportStoreRed otraBase = nodo(protegido, "secreto", 0);
+            try {
+                for (int i = 0; i < 20; i++) {
+                    escritor.guardar("pyp/f" + i, ("r" + i).getBytes(StandardCharsets.UTF_8));
+                }
+                for (int i = 0; i < 20; i++) {
+                    assertEquals("r" + i, new String(lector.obtener("pyp/f" + i).orElseThrow(), StandardCharsets.UTF_8));
+                }
+                assertTrue(otraBase.obtener("pyp/f0").isEmpty());
+
+                // AUTH (y SELECT) solo al abrir: una vez por conexión, no por comando
+                assertEquals(protegido.conexiones.get(), protegido.comandosAuth.get());
+                assertTrue(protegido.conexiones.get() <= 5, "conexiones: " + protegido.conexiones.get());
+            } finally {
+                escritor.detener();
+                lector.detener();
+                otraBase.detener();
+            }
+        }
+    }
+
+    @Test
+    void passwordIncorrectoEsError() throws Exception {
+        try (ServidorRespLocal protegido = new ServidorRespLocal("secreto")) {
+            ReportStoreRed sinPassword = nodo(protegido, "", 0);
+            ReportStoreRed equivocado = nodo(protegido, "otra", 0);
+            try {
+                java.io.IOException e = assertThrows(java.io.IOException.class, () -> equivocado.guardar("pyp/f1", new byte[]{1}));
+                assertTrue(e.getMessage().contains("WRONGPASS"), e.getMessage());
+                assertThrows(java.io.IOException.class, () -> equivocado.obtener("pyp/f1"));
+                e = assertThrows(java.io.IOException.class, () -> sinPassword.obtener("pyp/f1"));
+                assertTrue(e.getMessage().contains("NOAUTH"), e.getMessage());
+                assertEquals(0, protegido.comandosSet.get());
+            } finally {
+                sinPassword.detener();
+                equivocado.detener();
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.validadorjson.reporte;
+
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.service.ReglaValidacion;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReporteTest {
+
+    private static final String S = System.lineSeparator();
+
+    @Test
+    void agrupaPorReglaCodigoYSeccionConLosConsecutivosDeCadaUsuario() {
+        Reporte r = new Reporte(FormatoReporte.AGRUPADO);
+        r.linea("Validación factura: F1");
+        for (int servicio : new int[]{1, 2, 3, 5}) {
+            r.hallazgo(ReglaValidacion.DOCUMENTO_VS_EDAD, "RC", 7, "consultas", servicio, "Tipo de documento no coincide (" + servicio + ")");
+        }
+        r.hallazgo(ReglaValidacion.DOCUMENTO_VS_EDAD, "RC", 9, "consultas", 2, "Tipo de documento no coincide (2)");
+        r.hallazgo(ReglaValidacion.DOCUMENTO_VS_EDAD, "TI", 9, "consultas", 3, "Solo uno");
+        r.hallazgo(ReglaValidacion.CONSECUTIVO_SERVICIO, null, 9, "procedimientos", new int[]{2, 3}, "Faltan consecutivos de procedimiento: 2-3.");
+        r.hallazgoFactura("Faltan consecutivos de usuario: 8.");
+
+        assertEquals(8, r.hallazgos());
+        assertEquals("Validación factura: F1" + S
+                + "Factura -> Faltan consecutivos de usuario: 8." + S
+                + "Tipo de documento no coincide con la edad [RC] en consultas: 5 hallazgos en 2 usuarios -> 7 (1-3, 5); 9 (2)."
+                + " Ejemplo: Usuario consecutivo 7 -> Tipo de documento no coincide (1)" + S
+                + "Usuario consecutivo 9 -> Solo uno" + S
+                + "Usuario consecutivo 9 -> Faltan consecutivos de procedimiento: 2-3." + S, r.texto());
+    }
+
+    @Test
+    void lasVariantesDeUnaReglaNoSeMezclan() {
+        Reporte r = new Reporte(FormatoReporte.AGRUPADO);
+        r.hallazgo(ReglaValidacion.DIAGNOSTICO_PRINCIPAL, "A099", "relacionado1", 1, "consultas", 1, "mover relacionado1");
+        r.hallazgo(ReglaValidacion.DIAGNOSTICO_PRINCIPAL, "A099", "ninguno", 1, "consultas", 2, "ninguno corresponde");
+        r.hallazgo(ReglaValidacion.DIAGNOSTICO_PRINCIPAL, "A099", "relacionado1", 2, "consultas", 1, "mover relacionado1");
+
+        assertEquals("Diagnóstico principal vs relacionados [A099] en consultas: 2 hallazgos en 2 usuarios -> 1 (1); 2 (1)."
+                + " Ejemplo: Usuario consecutivo 1 -> mover relacionado1" + S
+                + "Usuario consecutivo 1 -> ninguno corresponde" + S, r.texto());
+    }
+
+    @Test
+    void cuentaUsuariosDistintosAunqueLleguenEnTandas() {
+        Reporte r = new Reporte(FormatoReporte.AGRUPADO);
+        r.hallazgo(ReglaValidacion.DOCUMENTO_REPETIDO, "CC", 5, null, Reporte.SIN_SERVICIO, "repetido");
+        r.hallazgo(ReglaValidacion.DOCUMENTO_REPETIDO, "CC", 3, null, Reporte.SIN_SERVICIO, "repetido");
+        r.hallazgo(ReglaValidacion.DOCUMENTO_REPETIDO, "CC", 5, null, Reporte.SIN_SERVICIO, "repetido");
+
+        assertTrue(r.texto().startsWith("Documento repetido en otro usuario [CC]: 3 hallazgos en 2 usuarios -> 3; 5 (x2)."), r.texto());
+    }
+
+    @Test
+    void detalladoEsUnaLineaPorHallazgo() {
+        Reporte r = new Reporte(FormatoReporte.DETALLADO);
+        r.hallazgo(ReglaValidacion.ERROR_FECHAS, null, 3, null, Reporte.SIN_SERVICIO, "uno");
+        r.hallazgo(ReglaValidacion.ERROR_FECHAS, null, 3, null, Reporte.SIN_SERVICIO, "dos");
+
+        assertEquals("Usuario consecutivo 3 -> uno" + S + "Usuario consecutivo 3 -> dos" + S, r.texto());
+    }
+
+    @Test
+    void elAgrupadoDeUnaFacturaGrandeEsMuchoMasChico() throws Exception {
+        Factura factura = LectorFactura.leer(FixturesGolden.mapperPlano(), FixturesGolden.factura("fact_0102264"));
+
+        byte[] detallado = FixturesGolden.morb().validarFactura(factura).getByteArray();
+        byte[] agrupado = FixturesGolden.morb().validarFactura(factura, FormatoReporte.AGRUPADO).getByteArray();
+
+        assertTrue(agrupado.length * 5 < detallado.length, agrupado.length + " vs " + detallado.length);
+    }
+}
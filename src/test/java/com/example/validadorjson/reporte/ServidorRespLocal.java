@@ -0,0 +1,188 @@
+package com.example.validadorjson.reporte;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor RESP en memoria para pruebas: entiende PING, AUTH, SELECT, SET (con EX ignorado), GET y DEL.
+ * Hace las veces de Redis sin necesitar uno real. Con password, como Redis con requirepass: todo
+ * comando antes de un AUTH correcto responde NOAUTH. Cada base de SELECT tiene sus propias claves.
+ *
+ * Cuenta conexiones y rondas (cada flush de respuestas es una ida y vuelta) y puede demorar
+ * cada ronda para simular la latencia de red.
+ */
+class ServidorRespLocal implements Closeable {
+
+    private final ServerSocket serverSocket = new ServerSocket(0);
+    private final Map<String, byte[]> datos = new ConcurrentHashMap<>();
+    private final List<Socket> clientes = new ArrayList<>();
+    private final String password;
+    private volatile boolean cerrado;
+    final AtomicInteger comandosSet = new AtomicInteger();
+    final AtomicInteger rondasSet = new AtomicInteger();
+    final AtomicInteger conexiones = new AtomicInteger();
+    final AtomicInteger comandosAuth = new AtomicInteger();
+    volatile long demoraMs;
+
+    ServidorRespLocal() throws IOException {
+        this(null);
+    }
+
+    ServidorRespLocal(String password) throws IOException {
+        this.password = password;
+        Thread aceptador = new Thread(this::aceptar, "resp-local");
+        aceptador.setDaemon(true);
+        aceptador.start();
+    }
+
+    int puerto() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void aceptar() {
+        try {
+            while (true) {
+                Socket s = serverSocket.accept();
+                synchronized (clientes) {
+                    // aceptada mientras se cerraba: no se atiende
+                    if (cerrado) {
+                        s.close();
+                        return;
+                    }
+                    clientes.add(s);
+                }
+                conexiones.incrementAndGet();
+                Thread t = new Thread(() -> atender(s), "resp-local-cliente");
+                t.setDaemon(true);
+                t.start();
+            }
+        } catch (IOException ignored) {
+            // servidor cerrado
+        }
+    }
+
+    private void atender(Socket s) {
+        try (s) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            OutputStream out = new BufferedOutputStream(s.getOutputStream());
+            Sesion sesion = new Sesion();
+            boolean inicioRonda = true;
+            boolean rondaConSet = false;
+            while (true) {
+                List<byte[]> comando = leerComando(in);
+                if (comando == null) return;
+                if (inicioRonda && demoraMs > 0) Thread.sleep(demoraMs);
+                inicioRonda = false;
+                rondaConSet |= responder(comando, sesion, out);
+                // pipelining: solo se vacía cuando ya no hay más comandos en el buffer
+                if (in.available() == 0) {
+                    out.flush();
+                    if (rondaConSet) rondasSet.incrementAndGet();
+                    inicioRonda = true;
+                    rondaConSet = false;
+                }
+            }
+        } catch (SocketException | EOFException | InterruptedException ignored) {
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Devuelve true si el comando fue un SET. */
+    private boolean responder(List<byte[]> comando, Sesion sesion, OutputStream out) throws IOException {
+        String nombre = new String(comando.get(0), StandardCharsets.US_ASCII).toUpperCase();
+        if (nombre.equals("AUTH")) {
+            comandosAuth.incrementAndGet();
+            sesion.autenticada = password != null && password.equals(clave(comando.get(comando.size() - 1)));
+            out.write((sesion.autenticada ? "+OK\r\n" : "-WRONGPASS invalid username-password pair\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            return false;
+        }
+        if (password != null && !sesion.autenticada) {
+            out.write("-NOAUTH Authentication required.\r\n".getBytes(StandardCharsets.US_ASCII));
+            return false;
+        }
+        switch (nombre) {
+            case "PING" -> out.write("+PONG\r\n".getBytes(StandardCharsets.US_ASCII));
+            case "SELECT" -> {
+                sesion.base = Integer.parseInt(clave(comando.get(1)));
+                out.write("+OK\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            case "SET" -> {
+                comandosSet.incrementAndGet();
+                datos.put(sesion.base + " " + clave(comando.get(1)), comando.get(2));
+                out.write("+OK\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            case "GET" -> {
+                byte[] v = datos.get(sesion.base + " " + clave(comando.get(1)));
+                if (v == null) {
+                    out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+                } else {
+                    out.write(("$" + v.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    out.write(v);
+                    out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                }
+            }
+            case "DEL" -> {
+                long n = datos.remove(sesion.base + " " + clave(comando.get(1))) != null ? 1 : 0;
+                out.write((":" + n + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            }
+            default -> out.write(("-ERR comando no soportado " + nombre + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        return "SET".equals(nombre);
+    }
+
+    private static List<byte[]> leerComando(DataInputStream in) throws IOException {
+        int tipo = in.read();
+        if (tipo == -1) return null;
+        if (tipo != '*') throw new IOException("Se esperaba un arreglo RESP");
+        int n = Integer.parseInt(leerLinea(in));
+        List<byte[]> partes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (in.read() != '$') throw new IOException("Se esperaba un bulk string");
+            int largo = Integer.parseInt(leerLinea(in));
+            byte[] b = new byte[largo];
+            in.readFully(b);
+            in.readFully(new byte[2]);
+            partes.add(b);
+        }
+        return partes;
+    }
+
+    private static String leerLinea(DataInputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c == -1) throw new EOFException();
+            sb.append((char) c);
+        }
+        in.read();
+        return sb.toString();
+    }
+
+    private static String clave(byte[] b) {
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (clientes) {
+            cerrado = true;
+            serverSocket.close();
+            for (Socket s : clientes) s.close();
+        }
+    }
+
+    private static final class Sesion {
+        boolean autenticada;
+        int base;
+    }
+}
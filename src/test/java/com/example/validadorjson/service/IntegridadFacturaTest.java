@@ -0,0 +1,150 @@
+package com.example.validadorjson.service;
+
+import com.example.validadorjson.analitica.AnaliticaErrores;
+import com.example.validadorjson.dto.Factura;
+import com.example.validadorjson.golden.FixturesGolden;
+import com.example.validadorjson.json.LectorFactura;
+import com.example.validadorjson.reporte.FormatoReporte;
+import com.example.validadorjson.reporte.Reporte;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.example.validadorjson.service.IntegridadFactura.MAX_CONSECUTIVO;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cada caso corre sobre los records (readValue) y sobre las columnas (LectorFactura), que deben dar
+ * el mismo reporte, y la analítica debe contar lo mismo que el reporte.
+ */
+class IntegridadFacturaTest {
+
+    private static final String S = System.lineSeparator();
+
+    private final ObjectMapper mapper = FixturesGolden.mapperPlano();
+
+    @Test
+    void elMismoDocumentoConOtroTipoEsRepetido() {
+        String reporte = revisar(FormatoReporte.DETALLADO,
+                usuario("CC", "111", 1, "[1]", null),
+                usuario("TI", " 111 ", 2, "[1]", null),
+                // sin documento no se compara
+                usuario("CC", "  ", 3, "[1]", null),
+                usuario("CC", null, 4, "[1]", null));
+
+        assertEquals("Usuario consecutivo 2 -> Documento 111 (TI) repetido: ya aparece en el usuario consecutivo 1 (CC)." + S,
+                reporte);
+    }
+
+    @Test
+    void consecutivoDeUsuarioRepetidoOFaltante() {
+        String reporte = revisar(FormatoReporte.DETALLADO,
+                usuario("CC", "1", 1, "[1]", null),
+                usuario("CC", "2", 1, "[1]", null),
+                usuario("CC", "3", 4, "[1]", null));
+
+        assertEquals("Usuario consecutivo 1 -> Consecutivo de usuario repetido (posición 2 en la factura)." + S
+                + "Factura -> Faltan consecutivos de usuario: 2-3." + S, reporte);
+    }
+
+    @Test
+    void consecutivosFueraDeRango() {
+        String reporte = revisar(FormatoReporte.DETALLADO,
+                usuario("CC", "1", 0, "[0, 1]", "[-1, 1]"),
+                usuario("CC", "2", -3, "[1]", null),
+                usuario("CC", "3", MAX_CONSECUTIVO + 1, "[1, " + (MAX_CONSECUTIVO + 1) + "]", null),
+                usuario("CC", "4", 1, "[1]", null));
+
+        assertEquals("Usuario consecutivo 0 -> Consecutivo de usuario fuera de rango." + S
+                + "Usuario consecutivo 0 -> Consecutivo de consulta 0 fuera de rango." + S
+                + "Usuario consecutivo 0 -> Consecutivo de procedimiento -1 fuera de rango." + S
+                + "Usuario consecutivo -3 -> Consecutivo de usuario fuera de rango." + S
+                + "Usuario consecutivo " + (MAX_CONSECUTIVO + 1) + " -> Consecutivo de usuario fuera de rango." + S
+                + "Usuario consecutivo " + (MAX_CONSECUTIVO + 1) + " -> Consecutivo de consulta " + (MAX_CONSECUTIVO + 1)
+                + " fuera de rango." + S, reporte);
+    }
+
+    @Test
+    void losHuecosSeRevisanPorSeccionYPorUsuario() {
+        String reporte = revisar(FormatoReporte.DETALLADO,
+                usuario("CC", "1", 1, "[1, 3, 3]", "[2, 5]"),
+                // el BitSet de servicios se reutiliza: lo del usuario anterior no cuenta
+                usuario("CC", "2", 2, "[2, 1]", "[1]"));
+
+        assertEquals("Usuario consecutivo 1 -> Consecutivo de consulta 3 repetido." + S
+                + "Usuario consecutivo 1 -> Faltan consecutivos de consulta: 2." + S
+                + "Usuario consecutivo 1 -> Faltan consecutivos de procedimiento: 1, 3-4." + S, reporte);
+    }
+
+    @Test
+    void enElAgrupadoLosFaltantesVanEnLaListaDelUsuario() {
+        String[] usuarios = {
+                usuario("CC", "1", 1, "[1, 4]", null),
+                usuario("CC", "2", 2, "[3]", null)};
+
+        assertEquals("Usuario consecutivo 1 -> Faltan consecutivos de consulta: 2-3." + S
+                + "Usuario consecutivo 2 -> Faltan consecutivos de consulta: 1-2." + S,
+                revisar(FormatoReporte.DETALLADO, usuarios));
+        assertEquals("Consecutivo de consulta/procedimiento repetido o faltante en consultas: 2 hallazgos en 2 usuarios -> 1 (2-3); 2 (1-2)."
+                + " Ejemplo: Usuario consecutivo 1 -> Faltan consecutivos de consulta: 2-3." + S,
+                revisar(FormatoReporte.AGRUPADO, usuarios));
+    }
+
+    @Test
+    void enElAgrupadoMuchosFaltantesNoSeListanUnoPorUno() {
+        String[] usuarios = {
+                usuario("CC", "1", 1, "[" + MAX_CONSECUTIVO + "]", null),
+                usuario("CC", "2", 2, "[" + (IntegridadFactura.MAX_FALTANTES_AGRUPADO + 1) + "]", null)};
+
+        assertEquals("Usuario consecutivo 1 -> Faltan consecutivos de consulta: 1-" + (MAX_CONSECUTIVO - 1) + "." + S
+                + "Usuario consecutivo 2 -> Faltan consecutivos de consulta: 1-" + IntegridadFactura.MAX_FALTANTES_AGRUPADO + "." + S,
+                revisar(FormatoReporte.DETALLADO, usuarios));
+        // el rango completo queda en el detalle del ejemplo; el segundo, justo en el límite, sí se lista
+        assertEquals("Consecutivo de consulta/procedimiento repetido o faltante en consultas: 2 hallazgos en 2 usuarios -> 1; 2 (1-"
+                + IntegridadFactura.MAX_FALTANTES_AGRUPADO + ")."
+                + " Ejemplo: Usuario consecutivo 1 -> Faltan consecutivos de consulta: 1-" + (MAX_CONSECUTIVO - 1) + "." + S,
+                revisar(FormatoReporte.AGRUPADO, usuarios));
+    }
+
+    /** Texto del reporte, igual leyendo con records y con columnas. */
+    private String revisar(FormatoReporte formato, String... usuarios) {
+        byte[] json = ("{\"numFactura\":\"F1\",\"usuarios\":[" + String.join(",", usuarios) + "]}")
+                .getBytes(StandardCharsets.UTF_8);
+        try {
+            String registros = revisar(formato, mapper.readValue(json, Factura.class));
+            assertEquals(registros, revisar(formato, LectorFactura.leer(mapper, json)), "columnas");
+            return registros;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String revisar(FormatoReporte formato, Factura factura) {
+        Reporte errores = new Reporte(formato);
+        AnaliticaErrores analitica = new AnaliticaErrores(60, 60, FixturesGolden.RELOJ);
+        IntegridadFactura.revisar(factura.usuarios(), errores, analitica);
+        assertEquals(errores.hallazgos(), analitica.consultar(0, 0, null, null).totalHallazgos());
+        return errores.texto();
+    }
+
+    /** @param consultas, procedimientos consecutivos como arreglo JSON, o null sin la sección */
+    private static String usuario(String tipo, String documento, int consecutivo, String consultas, String procedimientos) {
+        return "{\"tipoDocumentoIdentificacion\":\"" + tipo + "\",\"numDocumentoIdentificacion\":"
+                + (documento == null ? "null" : "\"" + documento + "\"") + ",\"consecutivo\":" + consecutivo
+                + ",\"servicios\":{" + (consultas == null ? "" : "\"consultas\":" + servicios(consultas, "codConsulta"))
+                + (consultas != null && procedimientos != null ? "," : "")
+                + (procedimientos == null ? "" : "\"procedimientos\":" + servicios(procedimientos, "codProcedimiento"))
+                + "}}";
+    }
+
+    private static String servicios(String consecutivos, String codigo) {
+        StringBuilder sb = new StringBuilder("[");
+        String[] cs = consecutivos.replaceAll("[\\[\\] ]", "").split(",");
+        for (int i = 0; i < cs.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"codPrestador\":\"P1\",\"").append(codigo).append("\":\"890201\",\"consecutivo\":").append(cs[i]).append('}');
+        }
+        return sb.append(']').toString();
+    }
+}